@@ -20,7 +20,10 @@ package org.springframework.cloud.gateway.actuate;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.HttpClientPools;
+import org.springframework.cloud.gateway.filter.factory.CircuitBreakerGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiterCircuit;
 import org.springframework.cloud.gateway.route.*;
 import org.springframework.cloud.gateway.support.NotFoundException;
 import org.springframework.context.ApplicationEventPublisher;
@@ -32,6 +35,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -69,6 +73,14 @@ public class GatewayWebfluxEndpoint implements ApplicationEventPublisherAware {
      * 应用事件发布器
      */
 	private ApplicationEventPublisher publisher;
+	/**
+	 * Connection pools of the routing client, if any
+	 */
+	private HttpClientPools httpClientPools;
+	/**
+	 * Health of Redis for the rate limiter, if any
+	 */
+	private RedisRateLimiterCircuit redisRateLimiterCircuit;
 
 	public GatewayWebfluxEndpoint(RouteDefinitionLocator routeDefinitionLocator, List<GlobalFilter> globalFilters,
 								  List<GatewayFilterFactory> GatewayFilters, RouteDefinitionWriter routeDefinitionWriter,
@@ -80,6 +92,14 @@ public class GatewayWebfluxEndpoint implements ApplicationEventPublisherAware {
 		this.routeLocator = routeLocator;
 	}
 
+	public void setHttpClientPools(HttpClientPools httpClientPools) {
+		this.httpClientPools = httpClientPools;
+	}
+
+	public void setRedisRateLimiterCircuit(RedisRateLimiterCircuit redisRateLimiterCircuit) {
+		this.redisRateLimiterCircuit = redisRateLimiterCircuit;
+	}
+
 	@Override
 	public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
 		this.publisher = publisher;
@@ -99,6 +119,31 @@ public class GatewayWebfluxEndpoint implements ApplicationEventPublisherAware {
 		return getNamesToOrders(this.globalFilters);
 	}
 
+	@GetMapping("/pools")
+	public Mono<Map<String, Map<String, Object>>> pools() {
+		if (this.httpClientPools == null) {
+			return Mono.just(Collections.emptyMap());
+		}
+		return Mono.fromSupplier(this.httpClientPools::getMetrics);
+	}
+
+	@GetMapping("/circuitbreakers")
+	public Mono<Map<String, Map<String, Object>>> circuitbreakers() {
+		return Flux.fromIterable(this.gatewayFilters)
+				.ofType(CircuitBreakerGatewayFilterFactory.class)
+				.next()
+				.map(CircuitBreakerGatewayFilterFactory::getMetrics)
+				.defaultIfEmpty(Collections.emptyMap());
+	}
+
+	@GetMapping("/ratelimiter/circuit")
+	public Mono<Map<String, Object>> rateLimiterCircuit() {
+		if (this.redisRateLimiterCircuit == null) {
+			return Mono.just(Collections.emptyMap());
+		}
+		return Mono.fromSupplier(this.redisRateLimiterCircuit::getMetrics);
+	}
+
 	@GetMapping("/routefilters")
 	public Mono<HashMap<String, Object>> routefilers() {
 		return getNamesToOrders(this.gatewayFilters);
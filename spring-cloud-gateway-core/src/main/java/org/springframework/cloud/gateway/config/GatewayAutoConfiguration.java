@@ -18,6 +18,7 @@
 package org.springframework.cloud.gateway.config;
 
 import com.netflix.hystrix.HystrixObservableCommand;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.actuate.autoconfigure.web.ManagementContextConfiguration;
 import org.springframework.boot.actuate.health.Health;
@@ -35,6 +36,7 @@ import org.springframework.cloud.gateway.filter.factory.*;
 import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
 import org.springframework.cloud.gateway.filter.ratelimit.PrincipalNameKeyResolver;
 import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiterCircuit;
 import org.springframework.cloud.gateway.handler.FilteringWebHandler;
 import org.springframework.cloud.gateway.handler.RoutePredicateHandlerMapping;
 import org.springframework.cloud.gateway.handler.predicate.*;
@@ -54,7 +56,6 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.ipc.netty.http.client.HttpClient;
 import reactor.ipc.netty.http.client.HttpClientOptions;
-import reactor.ipc.netty.resources.PoolResources;
 import rx.RxReactiveStreams;
 
 import java.util.List;
@@ -83,12 +84,20 @@ public class GatewayAutoConfiguration {
 			return HttpClient.create(options);
 		}
 
+		@Bean
+		public HttpClientProperties httpClientProperties() {
+			return new HttpClientProperties();
+		}
+
+		@Bean
+		@ConditionalOnMissingBean
+		public HttpClientPools httpClientPools(HttpClientProperties properties) {
+			return new HttpClientPools(properties);
+		}
+
 		@Bean // 1.1
-		public Consumer<? super HttpClientOptions.Builder> nettyClientOptions() {
-			return opts -> {
-				opts.poolResources(PoolResources.elastic("proxy"));
-				// opts.disablePool(); //TODO: why do I need this again?
-			};
+		public Consumer<? super HttpClientOptions.Builder> nettyClientOptions(HttpClientPools pools) {
+			return pools.getClientOptions(pools.getDefaultPool());
 		}
 
 //		@Bean // 1.3 使用 HttpClient Bean ，创建一个类型为 NettyRoutingFilter 的 Bean 对象
@@ -202,13 +211,21 @@ public class GatewayAutoConfiguration {
 
 	@Bean // TODO 芋艿，需要确认下原因
 	//TODO: default over netty? configurable
-	public WebClientHttpRoutingFilter webClientHttpRoutingFilter() {
+	public WebClientHttpRoutingFilter webClientHttpRoutingFilter(ObjectProvider<HttpClientPools> pools) {
+		HttpClientPools httpClientPools = pools.getIfAvailable();
+		if (httpClientPools != null) {
+			return new WebClientHttpRoutingFilter(httpClientPools.getWebClient(null), httpClientPools);
+		}
 		//TODO: WebClient bean
 		return new WebClientHttpRoutingFilter(WebClient.builder().build());
 	}
 
 	@Bean
-	public WebClientWriteResponseFilter webClientWriteResponseFilter() {
+	public WebClientWriteResponseFilter webClientWriteResponseFilter(ObjectProvider<HttpClientProperties> properties) {
+		HttpClientProperties httpClientProperties = properties.getIfAvailable();
+		if (httpClientProperties != null) {
+			return new WebClientWriteResponseFilter(httpClientProperties.getFlushStrategy());
+		}
 		return new WebClientWriteResponseFilter();
 	}
 
@@ -281,12 +298,22 @@ public class GatewayAutoConfiguration {
 		return new AddResponseHeaderGatewayFilterFactory();
 	}
 
+	@Bean
+	public CircuitBreakerGatewayFilterFactory circuitBreakerGatewayFilterFactory(ObjectProvider<ForwardRoutingFilter> forwardRoutingFilter) {
+		return new CircuitBreakerGatewayFilterFactory(forwardRoutingFilter.getIfAvailable());
+	}
+
+	@Bean
+	public HedgeGatewayFilterFactory hedgeGatewayFilterFactory() {
+		return new HedgeGatewayFilterFactory();
+	}
+
 	@Configuration
 	@ConditionalOnClass({HystrixObservableCommand.class, RxReactiveStreams.class})
 	protected static class HystrixConfiguration {
 		@Bean
-		public HystrixGatewayFilterFactory hystrixGatewayFilterFactory() {
-			return new HystrixGatewayFilterFactory();
+		public HystrixGatewayFilterFactory hystrixGatewayFilterFactory(ObjectProvider<ForwardRoutingFilter> forwardRoutingFilter) {
+			return new HystrixGatewayFilterFactory(forwardRoutingFilter.getIfAvailable());
 		}
 	}
 
@@ -327,6 +354,11 @@ public class GatewayAutoConfiguration {
 		return new RequestRateLimiterGatewayFilterFactory(rateLimiter, resolver);
 	}
 
+	@Bean
+	public RetryGatewayFilterFactory retryGatewayFilterFactory() {
+		return new RetryGatewayFilterFactory();
+	}
+
 	@Bean // 3.9
 	public RewritePathGatewayFilterFactory rewritePathGatewayFilterFactory() {
 		return new RewritePathGatewayFilterFactory();
@@ -363,8 +395,12 @@ public class GatewayAutoConfiguration {
 		@Bean
 		public GatewayWebfluxEndpoint gatewayWebfluxEndpoint(RouteDefinitionLocator routeDefinitionLocator, List<GlobalFilter> globalFilters,
 															 List<GatewayFilterFactory> GatewayFilters, RouteDefinitionWriter routeDefinitionWriter,
-															 RouteLocator routeLocator) {
-			return new GatewayWebfluxEndpoint(routeDefinitionLocator, globalFilters, GatewayFilters, routeDefinitionWriter, routeLocator);
+															 RouteLocator routeLocator, ObjectProvider<HttpClientPools> httpClientPools,
+															 ObjectProvider<RedisRateLimiterCircuit> redisRateLimiterCircuit) {
+			GatewayWebfluxEndpoint endpoint = new GatewayWebfluxEndpoint(routeDefinitionLocator, globalFilters, GatewayFilters, routeDefinitionWriter, routeLocator);
+			endpoint.setHttpClientPools(httpClientPools.getIfAvailable());
+			endpoint.setRedisRateLimiterCircuit(redisRateLimiterCircuit.getIfAvailable());
+			return endpoint;
 		}
 	}
 
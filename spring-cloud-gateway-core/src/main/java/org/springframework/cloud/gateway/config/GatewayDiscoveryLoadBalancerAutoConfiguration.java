@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.springframework.cloud.gateway.config;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.gateway.filter.LoadBalancerClientFilter;
+import org.springframework.cloud.gateway.filter.loadbalancer.DiscoveryClientLoadBalancer;
+import org.springframework.cloud.gateway.filter.loadbalancer.OutlierDetection;
+import org.springframework.cloud.gateway.filter.loadbalancer.ServiceInstanceCache;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.DispatcherHandler;
+
+/**
+ * Load balances {@code lb://} routes among the instances of the {@link DiscoveryClient},
+ * instead of with the {@code LoadBalancerClient}.
+ *
+ * @author Spencer Gibb
+ */
+@Configuration
+@ConditionalOnClass({DiscoveryClient.class, DispatcherHandler.class})
+@ConditionalOnProperty(name = "spring.cloud.gateway.loadbalancer.enabled")
+@AutoConfigureBefore(GatewayLoadBalancerClientAutoConfiguration.class)
+public class GatewayDiscoveryLoadBalancerAutoConfiguration {
+
+	@Bean
+	public LoadBalancerProperties loadBalancerProperties() {
+		return new LoadBalancerProperties();
+	}
+
+	@Bean
+	public ServiceInstanceCache serviceInstanceCache(DiscoveryClient discoveryClient,
+			LoadBalancerProperties properties) {
+		LoadBalancerProperties.OutlierDetection settings = properties.getOutlierDetection();
+		OutlierDetection outlierDetection = !settings.isEnabled() ? null
+				: new OutlierDetection(settings.getConsecutiveFailures(), settings.getFailureRateThreshold(),
+						settings.getMinimumRequests(), Duration.ofMillis(settings.getInterval()),
+						Duration.ofMillis(settings.getBaseEjectionTime()), Duration.ofMillis(settings.getMaxEjectionTime()),
+						settings.getMaxEjectedPercent());
+		return new ServiceInstanceCache(discoveryClient, Duration.ofMillis(properties.getRefreshInterval()),
+				outlierDetection);
+	}
+
+	@Bean
+	public DiscoveryClientLoadBalancer discoveryClientLoadBalancer(ServiceInstanceCache cache,
+			LoadBalancerProperties properties, ObjectProvider<Map<String, KeyResolver>> keyResolvers) {
+		return new DiscoveryClientLoadBalancer(cache, properties.getStrategy(),
+				keyResolvers.getIfAvailable(Collections::emptyMap), properties.getHashKey());
+	}
+
+	@Bean
+	public LoadBalancerClientFilter loadBalancerClientFilter(DiscoveryClientLoadBalancer loadBalancer) {
+		return new LoadBalancerClientFilter(loadBalancer);
+	}
+
+}
@@ -1,14 +1,22 @@
 package org.springframework.cloud.gateway.config;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.data.redis.RedisReactiveAutoConfiguration;
+import org.springframework.cloud.gateway.filter.ratelimit.LocalRateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimitAlgorithm;
 import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiterBatcher;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiterCircuit;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiterProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
@@ -22,6 +30,7 @@ import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.scripting.support.ResourceScriptSource;
 import org.springframework.web.reactive.DispatcherHandler;
 
+import java.time.Duration;
 import java.util.List;
 
 @Configuration
@@ -32,14 +41,57 @@ import java.util.List;
 class GatewayRedisAutoConfiguration {
 
 	@Bean
-	@SuppressWarnings("unchecked")
 	public RedisScript redisRequestRateLimiterScript() {
+		return redisScript("META-INF/scripts/request_rate_limiter.lua");
+	}
+
+	@Bean
+	public RedisScript redisRequestRateLimiterBatchScript() {
+		return redisScript("META-INF/scripts/request_rate_limiter_batch.lua");
+	}
+
+	@Bean
+	public RedisScript redisRequestRateLimiterHashScript() {
+		return redisScript("META-INF/scripts/request_rate_limiter_hash.lua");
+	}
+
+	@Bean
+	public RedisScript redisRequestRateLimiterHashBatchScript() {
+		return redisScript("META-INF/scripts/request_rate_limiter_hash_batch.lua");
+	}
+
+	@Bean
+	public RedisScript redisRequestRateLimiterGcraScript() {
+		return redisScript("META-INF/scripts/request_rate_limiter_gcra.lua");
+	}
+
+	@Bean
+	public RedisScript redisRequestRateLimiterSlidingWindowScript() {
+		return redisScript("META-INF/scripts/request_rate_limiter_sliding_window.lua");
+	}
+
+	@SuppressWarnings("unchecked")
+	private static RedisScript redisScript(String path) {
 		DefaultRedisScript redisScript = new DefaultRedisScript<>();
-		redisScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("META-INF/scripts/request_rate_limiter.lua")));
+		redisScript.setScriptSource(new ResourceScriptSource(new ClassPathResource(path)));
 		redisScript.setResultType(List.class);
 		return redisScript;
 	}
 
+	@Bean
+	public RedisRateLimiterProperties redisRateLimiterProperties() {
+		return new RedisRateLimiterProperties();
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "spring.cloud.gateway.redis-rate-limiter.circuit.enabled")
+	public RedisRateLimiterCircuit redisRateLimiterCircuit(ReactiveRedisTemplate<String, String> redisTemplate,
+														   RedisRateLimiterProperties properties) {
+		RedisRateLimiterProperties.Circuit circuit = properties.getCircuit();
+		return new RedisRateLimiterCircuit(() -> redisTemplate.hasKey("request_rate_limiter.probe"),
+				circuit.getFailureThreshold(), Duration.ofMillis(circuit.getProbeInterval()));
+	}
+
 	@Bean
 	//TODO: replace with ReactiveStringRedisTemplate in future
 	public ReactiveRedisTemplate<String, String> stringReactiveRedisTemplate(
@@ -58,9 +110,41 @@ class GatewayRedisAutoConfiguration {
 	}
 
 	@Bean
+	@Primary
 	public RedisRateLimiter redisRateLimiter(ReactiveRedisTemplate<String, String> redisTemplate,
-											 @Qualifier("redisRequestRateLimiterScript") RedisScript<List<Long>> redisScript) {
-		return new RedisRateLimiter(redisTemplate, redisScript);
+											 @Qualifier("redisRequestRateLimiterScript") RedisScript<List<Long>> redisScript,
+											 @Qualifier("redisRequestRateLimiterBatchScript") RedisScript<List<Long>> batchScript,
+											 @Qualifier("redisRequestRateLimiterHashScript") RedisScript<List<Long>> hashScript,
+											 @Qualifier("redisRequestRateLimiterHashBatchScript") RedisScript<List<Long>> hashBatchScript,
+											 @Qualifier("redisRequestRateLimiterGcraScript") RedisScript<List<Long>> gcraScript,
+											 @Qualifier("redisRequestRateLimiterSlidingWindowScript") RedisScript<List<Long>> slidingWindowScript,
+											 RedisRateLimiterProperties properties,
+											 ObjectProvider<LocalRateLimiter> localRateLimiter,
+											 ObjectProvider<RedisRateLimiterCircuit> circuit) {
+		boolean hash = properties.getMode() == RedisRateLimiter.Mode.HASH;
+		RedisRateLimiter rateLimiter = new RedisRateLimiter(redisTemplate, hash ? hashScript : redisScript,
+				properties.getMode());
+		rateLimiter.setScript(RateLimitAlgorithm.GCRA, gcraScript);
+		rateLimiter.setScript(RateLimitAlgorithm.SLIDING_WINDOW, slidingWindowScript);
+		// checked before Redis only if declared
+		LocalRateLimiter preCheck = localRateLimiter.getIfAvailable();
+		rateLimiter.setLocalRateLimiter(preCheck);
+		RedisRateLimiterCircuit redisCircuit = circuit.getIfAvailable();
+		if (redisCircuit != null) {
+			rateLimiter.setCircuit(redisCircuit);
+			// limits while Redis is down only
+			rateLimiter.setFallbackRateLimiter(preCheck != null ? preCheck : new LocalRateLimiter());
+		}
+		if (properties.getTimeout() > 0) {
+			rateLimiter.setTimeout(Duration.ofMillis(properties.getTimeout()));
+		}
+		RedisRateLimiterProperties.Batch batch = properties.getBatch();
+		if (batch.isEnabled()) {
+			// the script returns allowed and tokens left for each call
+			rateLimiter.setBatcher(new RedisRateLimiterBatcher(redisTemplate, hash ? hashBatchScript : batchScript, 2,
+					batch.getMaxSize(), Duration.ofMillis(batch.getWindow())));
+		}
+		return rateLimiter;
 	}
 
 }
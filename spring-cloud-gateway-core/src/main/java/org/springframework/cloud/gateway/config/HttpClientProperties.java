@@ -0,0 +1,174 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.config;
+
+import java.util.Objects;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.gateway.filter.FlushStrategy;
+import reactor.ipc.netty.resources.PoolResources;
+
+/**
+ * Configuration of the Netty client that forwards requests to the routes.
+ * @author Spencer Gibb
+ */
+@ConfigurationProperties("spring.cloud.gateway.httpclient")
+public class HttpClientProperties {
+
+	/**
+	 * Pool of connections to the routed services, shared by all routes that have no pool of their own.
+	 */
+	private Pool pool = new Pool();
+
+	/**
+	 * When chunks of proxied response bodies are flushed. Forwarded request bodies follow
+	 * it only with NettyRoutingFilter, the WebClient connector flushes them on its own.
+	 */
+	private FlushStrategy flushStrategy = FlushStrategy.ADAPTIVE;
+
+	public Pool getPool() {
+		return pool;
+	}
+
+	public void setPool(Pool pool) {
+		this.pool = pool;
+	}
+
+	public FlushStrategy getFlushStrategy() {
+		return flushStrategy;
+	}
+
+	public void setFlushStrategy(FlushStrategy flushStrategy) {
+		this.flushStrategy = flushStrategy;
+	}
+
+	@Override
+	public String toString() {
+		return "HttpClientProperties{" +
+				"pool=" + pool +
+				", flushStrategy=" + flushStrategy +
+				'}';
+	}
+
+	public enum PoolType {
+		/**
+		 * Opens a new connection whenever none is idle, without any limit.
+		 */
+		ELASTIC,
+		/**
+		 * Opens at most maxConnections per remote address, others wait for a connection to be released.
+		 */
+		FIXED
+	}
+
+	public static class Pool {
+
+		/**
+		 * Type of the pool.
+		 */
+		private PoolType type = PoolType.ELASTIC;
+
+		/**
+		 * Name of the pool.
+		 */
+		private String name = "proxy";
+
+		/**
+		 * Maximum number of connections per remote address, only used by FIXED pools.
+		 */
+		private int maxConnections = PoolResources.DEFAULT_POOL_MAX_CONNECTION;
+
+		/**
+		 * Time to wait for a connection in milliseconds, only used by FIXED pools.
+		 */
+		private long acquireTimeout = PoolResources.DEFAULT_POOL_ACQUIRE_TIMEOUT;
+
+		/**
+		 * Time in milliseconds after which a connection that is not in use is closed, 0 to keep it open.
+		 */
+		private long maxIdleTime = 0;
+
+		public PoolType getType() {
+			return type;
+		}
+
+		public void setType(PoolType type) {
+			this.type = type;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public int getMaxConnections() {
+			return maxConnections;
+		}
+
+		public void setMaxConnections(int maxConnections) {
+			this.maxConnections = maxConnections;
+		}
+
+		public long getAcquireTimeout() {
+			return acquireTimeout;
+		}
+
+		public void setAcquireTimeout(long acquireTimeout) {
+			this.acquireTimeout = acquireTimeout;
+		}
+
+		public long getMaxIdleTime() {
+			return maxIdleTime;
+		}
+
+		public void setMaxIdleTime(long maxIdleTime) {
+			this.maxIdleTime = maxIdleTime;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			Pool pool = (Pool) o;
+			return maxConnections == pool.maxConnections &&
+					acquireTimeout == pool.acquireTimeout &&
+					maxIdleTime == pool.maxIdleTime &&
+					type == pool.type &&
+					Objects.equals(name, pool.name);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(type, name, maxConnections, acquireTimeout, maxIdleTime);
+		}
+
+		@Override
+		public String toString() {
+			return "Pool{" +
+					"type=" + type +
+					", name='" + name + '\'' +
+					", maxConnections=" + maxConnections +
+					", acquireTimeout=" + acquireTimeout +
+					", maxIdleTime=" + maxIdleTime +
+					'}';
+		}
+	}
+}
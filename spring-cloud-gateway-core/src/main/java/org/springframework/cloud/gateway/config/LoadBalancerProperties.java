@@ -0,0 +1,226 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.springframework.cloud.gateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.gateway.filter.loadbalancer.LoadBalancerStrategy;
+
+/**
+ * Configuration of the load balancer of {@code lb://} routes, based on the
+ * {@code DiscoveryClient}.
+ * @author Spencer Gibb
+ */
+@ConfigurationProperties("spring.cloud.gateway.loadbalancer")
+public class LoadBalancerProperties {
+
+	/**
+	 * Whether to choose instances among the ones of the DiscoveryClient, instead of with the LoadBalancerClient.
+	 */
+	private boolean enabled;
+
+	/**
+	 * How instances are chosen, unless the loadbalancer.strategy metadata of the route says otherwise.
+	 */
+	private LoadBalancerStrategy strategy = LoadBalancerStrategy.ROUND_ROBIN;
+
+	/**
+	 * Key hashed by the consistent-hash strategy, unless the loadbalancer.hash-key metadata of the route says otherwise: header:<name>, cookie:<name> or the name of a KeyResolver bean. Defaults to the principalNameKeyResolver.
+	 */
+	private String hashKey;
+
+	/**
+	 * Interval between refreshes of the instances of the services, in milliseconds.
+	 */
+	private long refreshInterval = 30000;
+
+	/**
+	 * Ejection of the instances whose requests fail.
+	 */
+	private OutlierDetection outlierDetection = new OutlierDetection();
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public LoadBalancerStrategy getStrategy() {
+		return strategy;
+	}
+
+	public void setStrategy(LoadBalancerStrategy strategy) {
+		this.strategy = strategy;
+	}
+
+	public String getHashKey() {
+		return hashKey;
+	}
+
+	public void setHashKey(String hashKey) {
+		this.hashKey = hashKey;
+	}
+
+	public long getRefreshInterval() {
+		return refreshInterval;
+	}
+
+	public void setRefreshInterval(long refreshInterval) {
+		this.refreshInterval = refreshInterval;
+	}
+
+	public OutlierDetection getOutlierDetection() {
+		return outlierDetection;
+	}
+
+	public void setOutlierDetection(OutlierDetection outlierDetection) {
+		this.outlierDetection = outlierDetection;
+	}
+
+	@Override
+	public String toString() {
+		return "LoadBalancerProperties{" +
+				"enabled=" + enabled +
+				", strategy=" + strategy +
+				", hashKey='" + hashKey + '\'' +
+				", refreshInterval=" + refreshInterval +
+				", outlierDetection=" + outlierDetection +
+				'}';
+	}
+
+	public static class OutlierDetection {
+
+		/**
+		 * Whether instances whose requests fail, with an error or a 5xx status, are ejected for a while.
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * Requests failed in a row that eject an instance, 0 for no limit.
+		 */
+		private int consecutiveFailures = 5;
+
+		/**
+		 * Percent of the requests of an interval failed that eject an instance, 0 for no limit.
+		 */
+		private int failureRateThreshold = 50;
+
+		/**
+		 * Requests of an interval needed to eject an instance for its failure rate.
+		 */
+		private int minimumRequests = 20;
+
+		/**
+		 * Length in milliseconds of the intervals the failure rate is computed over.
+		 */
+		private long interval = 10000;
+
+		/**
+		 * Time in milliseconds an instance is ejected for the first time, doubled each time it is ejected again.
+		 */
+		private long baseEjectionTime = 30000;
+
+		/**
+		 * Time in milliseconds an instance is ejected for at most.
+		 */
+		private long maxEjectionTime = 300000;
+
+		/**
+		 * Percent of the instances of a service ejected at most, at least one is ejected if needed.
+		 */
+		private int maxEjectedPercent = 10;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getConsecutiveFailures() {
+			return consecutiveFailures;
+		}
+
+		public void setConsecutiveFailures(int consecutiveFailures) {
+			this.consecutiveFailures = consecutiveFailures;
+		}
+
+		public int getFailureRateThreshold() {
+			return failureRateThreshold;
+		}
+
+		public void setFailureRateThreshold(int failureRateThreshold) {
+			this.failureRateThreshold = failureRateThreshold;
+		}
+
+		public int getMinimumRequests() {
+			return minimumRequests;
+		}
+
+		public void setMinimumRequests(int minimumRequests) {
+			this.minimumRequests = minimumRequests;
+		}
+
+		public long getInterval() {
+			return interval;
+		}
+
+		public void setInterval(long interval) {
+			this.interval = interval;
+		}
+
+		public long getBaseEjectionTime() {
+			return baseEjectionTime;
+		}
+
+		public void setBaseEjectionTime(long baseEjectionTime) {
+			this.baseEjectionTime = baseEjectionTime;
+		}
+
+		public long getMaxEjectionTime() {
+			return maxEjectionTime;
+		}
+
+		public void setMaxEjectionTime(long maxEjectionTime) {
+			this.maxEjectionTime = maxEjectionTime;
+		}
+
+		public int getMaxEjectedPercent() {
+			return maxEjectedPercent;
+		}
+
+		public void setMaxEjectedPercent(int maxEjectedPercent) {
+			this.maxEjectedPercent = maxEjectedPercent;
+		}
+
+		@Override
+		public String toString() {
+			return "OutlierDetection{" +
+					"enabled=" + enabled +
+					", consecutiveFailures=" + consecutiveFailures +
+					", failureRateThreshold=" + failureRateThreshold +
+					", minimumRequests=" + minimumRequests +
+					", interval=" + interval +
+					", baseEjectionTime=" + baseEjectionTime +
+					", maxEjectionTime=" + maxEjectionTime +
+					", maxEjectedPercent=" + maxEjectedPercent +
+					'}';
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+/**
+ * When the chunks of a proxied body are flushed to the network.
+ * @author Spencer Gibb
+ */
+public enum FlushStrategy {
+
+	/**
+	 * Flush every chunk as soon as it is written, one syscall per chunk.
+	 */
+	EACH,
+
+	/**
+	 * Flush once a batch of chunks has been written, or the body is complete.
+	 */
+	BOUNDARY,
+
+	/**
+	 * {@link #EACH} for streaming content types, such as {@code text/event-stream},
+	 * {@link #BOUNDARY} for all others.
+	 */
+	ADAPTIVE;
+
+	private static final List<MediaType> STREAMING_MEDIA_TYPES = Arrays.asList(
+			MediaType.TEXT_EVENT_STREAM, MediaType.APPLICATION_STREAM_JSON);
+
+	/**
+	 * @param headers headers of the body being written
+	 * @return whether each chunk of the body should be flushed on its own
+	 */
+	public boolean isFlushOnEach(HttpHeaders headers) {
+		switch (this) {
+			case EACH:
+				return true;
+			case BOUNDARY:
+				return false;
+			default:
+				return isStreaming(headers);
+		}
+	}
+
+	private static boolean isStreaming(HttpHeaders headers) {
+		MediaType contentType;
+		try {
+			contentType = headers.getContentType();
+		}
+		catch (InvalidMediaTypeException e) {
+			return false;
+		}
+		if (contentType == null) {
+			return false;
+		}
+		for (MediaType streamingType : STREAMING_MEDIA_TYPES) {
+			if (streamingType.isCompatibleWith(contentType)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -3,6 +3,7 @@ package org.springframework.cloud.gateway.filter;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.core.Ordered;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.reactive.DispatcherHandler;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
@@ -49,4 +50,26 @@ public class ForwardRoutingFilter implements GlobalFilter, Ordered {
 		// DispatcherHandler 匹配并转发到当前网关实例本地接口
 		return this.dispatcherHandler.handle(exchange);
 	}
+
+	/**
+	 * Forwards the request to another path of this gateway, e.g. the fallback of a route.
+	 * The path should be handled by a controller, as the request counts as routed.
+	 * @param exchange the current exchange
+	 * @param forwardUri a {@code forward:} URI, its path replaces the path of the request
+	 * @return completes once the request has been handled
+	 */
+	public Mono<Void> forward(ServerWebExchange exchange, URI forwardUri) {
+		addOriginalRequestUrl(exchange, exchange.getRequest().getURI());
+		ServerHttpRequest request = exchange.getRequest().mutate()
+				.path(forwardUri.getRawPath())
+				.build();
+		ServerWebExchange forwarded = exchange.mutate().request(request).build();
+		forwarded.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, forwardUri);
+		setAlreadyRouted(forwarded);
+
+		if (log.isTraceEnabled()) {
+			log.trace("Forwarding to URI: " + forwardUri);
+		}
+		return this.dispatcherHandler.handle(forwarded);
+	}
 }
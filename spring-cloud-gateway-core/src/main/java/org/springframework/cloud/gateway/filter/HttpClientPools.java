@@ -0,0 +1,414 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter;
+
+import java.net.SocketAddress;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.Promise;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientProperties.Pool;
+import org.springframework.cloud.gateway.config.HttpClientProperties.PoolType;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RoutesRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.ipc.netty.http.client.HttpClient;
+import reactor.ipc.netty.http.client.HttpClientOptions;
+import reactor.ipc.netty.resources.PoolResources;
+
+/**
+ * Connection pools of the clients forwarding requests to the routes. Routes share the
+ * pool configured by {@link HttpClientProperties}, unless their metadata configures a
+ * dedicated one, e.g. {@code pool.type: fixed} and {@code pool.max-connections: 50}.
+ * Settings missing from the metadata are taken from the shared pool. Once routes are
+ * refreshed, the pools of routes that are gone, or no longer configure one, are disposed.
+ * The metadata is parsed once per route, when routes are refreshed or on the first
+ * request otherwise. A route with invalid settings is reported then, and uses the shared
+ * pool.
+ *
+ * @author Spencer Gibb
+ */
+public class HttpClientPools implements DisposableBean {
+
+	public static final String POOL_METADATA_PREFIX = "pool.";
+	public static final String POOL_TYPE_METADATA = POOL_METADATA_PREFIX + "type";
+	public static final String POOL_MAX_CONNECTIONS_METADATA = POOL_METADATA_PREFIX + "max-connections";
+	public static final String POOL_ACQUIRE_TIMEOUT_METADATA = POOL_METADATA_PREFIX + "acquire-timeout";
+	public static final String POOL_MAX_IDLE_TIME_METADATA = POOL_METADATA_PREFIX + "max-idle-time";
+
+	private static final Log log = LogFactory.getLog(HttpClientPools.class);
+
+	private static final AttributeKey<Boolean> IN_USE = AttributeKey.valueOf(HttpClientPools.class.getName() + ".inUse");
+
+	private final HttpClientProperties properties;
+	private final ClientPool defaultPool;
+	/**
+	 * Dedicated pools, keyed by route id
+	 */
+	private final ConcurrentMap<String, ClientPool> routePools = new ConcurrentHashMap<>();
+	/**
+	 * Settings parsed from the metadata of the current routes, keyed by route id
+	 */
+	private final ConcurrentMap<String, RouteSettings> routeSettings = new ConcurrentHashMap<>();
+
+	public HttpClientPools(HttpClientProperties properties) {
+		this.properties = properties;
+		this.defaultPool = new ClientPool(properties.getPool());
+	}
+
+	/**
+	 * @return the pool shared by the routes without a dedicated one
+	 */
+	public PoolResources getDefaultPool() {
+		return this.defaultPool.resources;
+	}
+
+	/**
+	 * @param route the route to forward a request to, may be {@code null}
+	 * @return the pool of connections to use for the route
+	 */
+	public PoolResources getPool(Route route) {
+		return getClientPool(route).resources;
+	}
+
+	public Consumer<? super HttpClientOptions.Builder> getClientOptions(PoolResources pool) {
+		return opts -> opts.poolResources(pool);
+	}
+
+	public HttpClient getHttpClient(Route route) {
+		return getClientPool(route).getHttpClient(this);
+	}
+
+	public WebClient getWebClient(Route route) {
+		return getClientPool(route).getWebClient(this);
+	}
+
+	/**
+	 * @return occupancy of each pool, keyed by pool name
+	 */
+	public Map<String, Map<String, Object>> getMetrics() {
+		Map<String, Map<String, Object>> metrics = new LinkedHashMap<>();
+		metrics.put(this.defaultPool.settings.getName(), this.defaultPool.resources.getMetrics());
+		this.routePools.values().forEach(pool -> metrics.put(pool.settings.getName(), pool.resources.getMetrics()));
+		return metrics;
+	}
+
+	private ClientPool getClientPool(Route route) {
+		Pool settings = route == null ? null : getRouteSettings(route);
+		if (settings == null) {
+			return this.defaultPool;
+		}
+		ClientPool pool = this.routePools.get(route.getId());
+		if (pool != null && pool.settings == settings) {
+			return pool;
+		}
+		return this.routePools.compute(route.getId(), (id, current) -> {
+			if (current != null && current.settings == settings) {
+				return current;
+			}
+			if (current != null) {
+				// connections in use are still released to it, idle ones are closed
+				current.resources.dispose();
+			}
+			return new ClientPool(settings);
+		});
+	}
+
+	/**
+	 * @return the settings of the dedicated pool of the route, {@code null} if it uses the
+	 * shared pool. Parsed once per route, invalid settings are reported then.
+	 */
+	private Pool getRouteSettings(Route route) {
+		RouteSettings cached = this.routeSettings.get(route.getId());
+		if (cached != null && cached.route == route) {
+			return cached.settings;
+		}
+		Pool settings = parseSettings(route);
+		ClientPool current = this.routePools.get(route.getId());
+		if (settings != null && current != null && current.settings.equals(settings)) {
+			// a rebuilt route keeps its pool
+			settings = current.settings;
+		}
+		this.routeSettings.put(route.getId(), new RouteSettings(route, settings));
+		return settings;
+	}
+
+	private Pool parseSettings(Route route) {
+		if (!hasDedicatedPool(route)) {
+			return null;
+		}
+		try {
+			return getSettings(route);
+		}
+		catch (IllegalArgumentException e) {
+			log.error("Invalid pool metadata of route " + route.getId() + ", it uses the shared pool", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Parses the settings of the refreshed routes, and disposes the pools of the routes
+	 * that are gone or no longer configure one.
+	 */
+	@EventListener(RoutesRefreshedEvent.class)
+	/* for testing */ void handleRefresh(RoutesRefreshedEvent event) {
+		Set<String> ids = new HashSet<>();
+		Set<String> dedicated = new HashSet<>();
+		for (Route route : event.getRoutes()) {
+			ids.add(route.getId());
+			if (getRouteSettings(route) != null) {
+				dedicated.add(route.getId());
+			}
+		}
+		this.routeSettings.keySet().retainAll(ids);
+		this.routePools.forEach((id, pool) -> {
+			if (!dedicated.contains(id) && this.routePools.remove(id, pool)) {
+				// connections in use are still released to it, idle ones are closed
+				pool.resources.dispose();
+			}
+		});
+	}
+
+	private boolean hasDedicatedPool(Route route) {
+		for (String key : route.getMetadata().keySet()) {
+			if (key.startsWith(POOL_METADATA_PREFIX)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/* for testing */ Pool getSettings(Route route) {
+		Map<String, String> metadata = route.getMetadata();
+		Pool defaults = this.properties.getPool();
+		Pool settings = new Pool();
+		settings.setName(route.getId());
+		String type = metadata.get(POOL_TYPE_METADATA);
+		settings.setType(type == null ? defaults.getType() : PoolType.valueOf(type.trim().toUpperCase()));
+		String maxConnections = metadata.get(POOL_MAX_CONNECTIONS_METADATA);
+		settings.setMaxConnections(maxConnections == null ? defaults.getMaxConnections() : Integer.parseInt(maxConnections.trim()));
+		String acquireTimeout = metadata.get(POOL_ACQUIRE_TIMEOUT_METADATA);
+		settings.setAcquireTimeout(acquireTimeout == null ? defaults.getAcquireTimeout() : Long.parseLong(acquireTimeout.trim()));
+		String maxIdleTime = metadata.get(POOL_MAX_IDLE_TIME_METADATA);
+		settings.setMaxIdleTime(maxIdleTime == null ? defaults.getMaxIdleTime() : Long.parseLong(maxIdleTime.trim()));
+		return settings;
+	}
+
+	@Override
+	public void destroy() {
+		this.routePools.values().forEach(pool -> pool.resources.dispose());
+		this.defaultPool.resources.dispose();
+	}
+
+	private static class RouteSettings {
+		private final Route route;
+		/**
+		 * {@code null} for the shared pool
+		 */
+		private final Pool settings;
+
+		RouteSettings(Route route, Pool settings) {
+			this.route = route;
+			this.settings = settings;
+		}
+	}
+
+	private static class ClientPool {
+		private final Pool settings;
+		private final InstrumentedPoolResources resources;
+		private volatile HttpClient httpClient;
+		private volatile WebClient webClient;
+
+		ClientPool(Pool settings) {
+			this.settings = settings;
+			PoolResources pool = settings.getType() == PoolType.FIXED
+					? PoolResources.fixed(settings.getName(), settings.getMaxConnections(), settings.getAcquireTimeout())
+					: PoolResources.elastic(settings.getName());
+			this.resources = new InstrumentedPoolResources(pool, settings);
+		}
+
+		HttpClient getHttpClient(HttpClientPools pools) {
+			if (this.httpClient == null) {
+				this.httpClient = HttpClient.create(pools.getClientOptions(this.resources));
+			}
+			return this.httpClient;
+		}
+
+		WebClient getWebClient(HttpClientPools pools) {
+			if (this.webClient == null) {
+				this.webClient = WebClient.builder()
+						.clientConnector(new ReactorClientHttpConnector(pools.getClientOptions(this.resources)))
+						.build();
+			}
+			return this.webClient;
+		}
+	}
+
+	/**
+	 * Counts the connections of a pool and closes the ones idle for too long.
+	 */
+	private static class InstrumentedPoolResources implements PoolResources {
+		private final PoolResources delegate;
+		private final Pool settings;
+		private final ConcurrentMap<ChannelPool, ChannelPool> channelPools = new ConcurrentHashMap<>();
+		private final AtomicInteger connections = new AtomicInteger();
+		private final AtomicInteger active = new AtomicInteger();
+		private final AtomicInteger pending = new AtomicInteger();
+
+		InstrumentedPoolResources(PoolResources delegate, Pool settings) {
+			this.delegate = delegate;
+			this.settings = settings;
+		}
+
+		@Override
+		public ChannelPool selectOrCreate(SocketAddress address, Supplier<? extends Bootstrap> bootstrap,
+				Consumer<? super Channel> onChannelCreate, EventLoopGroup group) {
+			ChannelPool pool = this.delegate.selectOrCreate(address, bootstrap, channel -> {
+				this.connections.incrementAndGet();
+				channel.closeFuture().addListener(future -> this.connections.decrementAndGet());
+				if (this.settings.getMaxIdleTime() > 0) {
+					channel.pipeline().addFirst(new IdleConnectionHandler(this.settings.getMaxIdleTime()));
+				}
+				onChannelCreate.accept(channel);
+			}, group);
+			return this.channelPools.computeIfAbsent(pool, InstrumentedChannelPool::new);
+		}
+
+		Map<String, Object> getMetrics() {
+			Map<String, Object> metrics = new LinkedHashMap<>();
+			metrics.put("type", this.settings.getType());
+			if (this.settings.getType() == PoolType.FIXED) {
+				metrics.put("maxConnections", this.settings.getMaxConnections());
+			}
+			int connections = this.connections.get();
+			int active = this.active.get();
+			metrics.put("connections", connections);
+			metrics.put("active", active);
+			metrics.put("idle", Math.max(connections - active, 0));
+			metrics.put("pending", this.pending.get());
+			return metrics;
+		}
+
+		@Override
+		public void dispose() {
+			this.delegate.dispose();
+		}
+
+		@Override
+		public boolean isDisposed() {
+			return this.delegate.isDisposed();
+		}
+
+		private class InstrumentedChannelPool implements ChannelPool {
+			private final ChannelPool delegate;
+
+			InstrumentedChannelPool(ChannelPool delegate) {
+				this.delegate = delegate;
+			}
+
+			@Override
+			public Future<Channel> acquire() {
+				pending.incrementAndGet();
+				return track(this.delegate.acquire());
+			}
+
+			@Override
+			public Future<Channel> acquire(Promise<Channel> promise) {
+				pending.incrementAndGet();
+				return track(this.delegate.acquire(promise));
+			}
+
+			private Future<Channel> track(Future<Channel> future) {
+				future.addListener((FutureListener<Channel>) acquired -> {
+					pending.decrementAndGet();
+					if (acquired.isSuccess()) {
+						acquired.getNow().attr(IN_USE).set(Boolean.TRUE);
+						active.incrementAndGet();
+					}
+				});
+				return future;
+			}
+
+			@Override
+			public Future<Void> release(Channel channel) {
+				untrack(channel);
+				return this.delegate.release(channel);
+			}
+
+			@Override
+			public Future<Void> release(Channel channel, Promise<Void> promise) {
+				untrack(channel);
+				return this.delegate.release(channel, promise);
+			}
+
+			private void untrack(Channel channel) {
+				if (Boolean.TRUE.equals(channel.attr(IN_USE).getAndSet(Boolean.FALSE))) {
+					active.decrementAndGet();
+				}
+			}
+
+			@Override
+			public void close() {
+				this.delegate.close();
+			}
+		}
+	}
+
+	/**
+	 * Closes a pooled connection that has been idle for too long, unless a request uses it.
+	 */
+	private static class IdleConnectionHandler extends IdleStateHandler {
+
+		IdleConnectionHandler(long maxIdleTime) {
+			super(0, 0, maxIdleTime, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		protected void channelIdle(ChannelHandlerContext ctx, IdleStateEvent evt) throws Exception {
+			if (!Boolean.TRUE.equals(ctx.channel().attr(IN_USE).get())) {
+				ctx.close();
+				return;
+			}
+			super.channelIdle(ctx, evt);
+		}
+	}
+}
@@ -19,16 +19,20 @@ package org.springframework.cloud.gateway.filter;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.cloud.gateway.filter.loadbalancer.LoadBalancedInstance;
+import org.springframework.cloud.gateway.filter.loadbalancer.LoadBalancerClientAdapter;
+import org.springframework.cloud.gateway.filter.loadbalancer.ReactiveLoadBalancer;
 import org.springframework.cloud.gateway.support.NotFoundException;
 import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ServerWebExchange;
-import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
 import java.net.URI;
 
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_INSTANCE_ATTR;
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.addOriginalRequestUrl;
 
@@ -40,9 +44,13 @@ public class LoadBalancerClientFilter implements GlobalFilter, Ordered {
 	private static final Log log = LogFactory.getLog(LoadBalancerClientFilter.class);
 	public static final int LOAD_BALANCER_CLIENT_FILTER_ORDER = 10100;
 
-	private final LoadBalancerClient loadBalancer;
+	private final ReactiveLoadBalancer loadBalancer;
 
 	public LoadBalancerClientFilter(LoadBalancerClient loadBalancer) {
+		this(new LoadBalancerClientAdapter(loadBalancer));
+	}
+
+	public LoadBalancerClientFilter(ReactiveLoadBalancer loadBalancer) {
 		this.loadBalancer = loadBalancer;
 	}
 
@@ -62,30 +70,47 @@ public class LoadBalancerClientFilter implements GlobalFilter, Ordered {
 		//preserve the original url
 		addOriginalRequestUrl(exchange, url);
 
-		log.trace("LoadBalancerClientFilter url before: " + url);
+		if (log.isTraceEnabled()) {
+			log.trace("LoadBalancerClientFilter url before: " + url);
+		}
 
 		// 获取 服务实例
-		final ServiceInstance instance = loadBalancer.choose(url.getHost());
-		if (instance == null) {
-			throw new NotFoundException("Unable to find instance for " + url.getHost());
-		}
+		return this.loadBalancer.choose(url.getHost(), exchange)
+				.switchIfEmpty(Mono.defer(() ->
+						Mono.error(new NotFoundException("Unable to find instance for " + url.getHost()))))
+				.flatMap(instance -> route(exchange, chain, url, instance));
+	}
 
-		/*URI uri = exchange.getRequest().getURI();
-		URI requestUrl = loadBalancer.reconstructURI(instance, uri);*/
-		//
-		URI requestUrl = UriComponentsBuilder.fromUri(url)
-				.scheme(instance.isSecure()? "https" : "http") //TODO: support websockets
-				.host(instance.getHost())
-				.port(instance.getPort())
-				.build(true)
-				.toUri();
-		log.trace("LoadBalancerClientFilter url chosen: " + requestUrl);
+	private Mono<Void> route(ServerWebExchange exchange, GatewayFilterChain chain, URI url,
+			LoadBalancedInstance instance) {
+		URI requestUrl = instance.reconstructUri(url); //TODO: support websockets
+		if (log.isTraceEnabled()) {
+			log.trace("LoadBalancerClientFilter url chosen: " + requestUrl);
+		}
 
         // 添加 请求URI 到 GATEWAY_REQUEST_URL_ATTR
 		exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, requestUrl);
+		exchange.getAttributes().put(GATEWAY_LOADBALANCER_INSTANCE_ATTR, instance.getKey());
 
         // 提交过滤器链继续过滤
-		return chain.filter(exchange);
+		// the chain completes once the routing filter got the response status and headers,
+		// a cancelled request counts with the time it had been waiting for
+		instance.onStart();
+		long start = System.nanoTime();
+		return chain.filter(exchange).doFinally(signal -> {
+			long latency = System.nanoTime() - start;
+			if (signal == SignalType.CANCEL) {
+				instance.onComplete(latency);
+			}
+			else {
+				instance.onComplete(latency, signal == SignalType.ON_ERROR || isServerError(exchange));
+			}
+		});
+	}
+
+	private boolean isServerError(ServerWebExchange exchange) {
+		HttpStatus status = exchange.getResponse().getStatusCode();
+		return status != null && status.is5xxServerError();
 	}
 
 }
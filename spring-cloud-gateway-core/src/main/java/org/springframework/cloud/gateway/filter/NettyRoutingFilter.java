@@ -17,11 +17,10 @@
 
 package org.springframework.cloud.gateway.filter;
 
-import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
 import org.springframework.core.Ordered;
-import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -45,9 +44,20 @@ import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.*
 public class NettyRoutingFilter implements GlobalFilter, Ordered {
 
 	private final HttpClient httpClient;
+	/**
+	 * Provides the clients of routes with a connection pool of their own, may be {@code null}
+	 */
+	private final HttpClientPools httpClientPools;
+	private final FlushStrategy flushStrategy;
 
 	public NettyRoutingFilter(HttpClient httpClient) {
+		this(httpClient, null, FlushStrategy.ADAPTIVE);
+	}
+
+	public NettyRoutingFilter(HttpClient httpClient, HttpClientPools httpClientPools, FlushStrategy flushStrategy) {
 		this.httpClient = httpClient;
+		this.httpClientPools = httpClientPools;
+		this.flushStrategy = flushStrategy;
 	}
 
 	@Override
@@ -81,9 +91,14 @@ public class NettyRoutingFilter implements GlobalFilter, Ordered {
 		final DefaultHttpHeaders httpHeaders = new DefaultHttpHeaders();
 		request.getHeaders().forEach(httpHeaders::set);
 
+		final boolean flushOnEach = this.flushStrategy.isFlushOnEach(request.getHeaders());
+
 		// 请求
-		return this.httpClient.request(method, url, req -> {
-			final HttpClientRequest proxyRequest = req.options(NettyPipeline.SendOptions::flushOnEach) // 【】
+		HttpClient httpClient = this.httpClientPools == null ? this.httpClient
+				: this.httpClientPools.getHttpClient(exchange.getAttribute(GATEWAY_ROUTE_ATTR));
+		return httpClient.request(method, url, req -> {
+			final HttpClientRequest proxyRequest = req.options(flushOnEach
+							? NettyPipeline.SendOptions::flushOnEach : NettyPipeline.SendOptions::flushOnBoundary)
 					.failOnClientError(false) // 是否请求失败，抛出异常
 					.headers(httpHeaders);
 
@@ -103,8 +118,7 @@ public class NettyRoutingFilter implements GlobalFilter, Ordered {
 			// Request Body
 			return proxyRequest.sendHeaders() //I shouldn't need this
 					.send(request.getBody()
-							.map(DataBuffer::asByteBuffer) // Flux<DataBuffer> => ByteBuffer
-							.map(Unpooled::wrappedBuffer)); // ByteBuffer => Flux<DataBuffer>
+							.map(NettyDataBufferFactory::toByteBuf)); // Flux<DataBuffer> => Flux<ByteBuf>, without copying
 		}).doOnNext(res -> {
 			ServerHttpResponse response = exchange.getResponse();
 			// Response Header
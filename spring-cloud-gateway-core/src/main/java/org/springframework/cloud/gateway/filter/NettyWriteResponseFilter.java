@@ -39,6 +39,16 @@ public class NettyWriteResponseFilter implements GlobalFilter, Ordered {
 
 	public static final int WRITE_RESPONSE_FILTER_ORDER = -1;
 
+	private final FlushStrategy flushStrategy;
+
+	public NettyWriteResponseFilter() {
+		this(FlushStrategy.ADAPTIVE);
+	}
+
+	public NettyWriteResponseFilter(FlushStrategy flushStrategy) {
+		this.flushStrategy = flushStrategy;
+	}
+
 	@Override
 	public int getOrder() {
 		return WRITE_RESPONSE_FILTER_ORDER;
@@ -64,6 +74,9 @@ public class NettyWriteResponseFilter implements GlobalFilter, Ordered {
 			final Flux<NettyDataBuffer> body = clientResponse.receive()
 					.retain() // ByteBufFlux => ByteBufFlux
 					.map(factory::wrap); // ByteBufFlux  => Flux<NettyDataBuffer>
+			if (this.flushStrategy.isFlushOnEach(response.getHeaders())) {
+				return response.writeAndFlushWith(body.map(Mono::just));
+			}
 			return response.writeWith(body);
 		}));
 	}
@@ -39,9 +39,18 @@ import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.*
 public class WebClientHttpRoutingFilter implements GlobalFilter, Ordered {
 
 	private final WebClient webClient;
+	/**
+	 * Provides the clients of routes with a connection pool of their own, may be {@code null}
+	 */
+	private final HttpClientPools httpClientPools;
 
 	public WebClientHttpRoutingFilter(WebClient webClient) {
+		this(webClient, null);
+	}
+
+	public WebClientHttpRoutingFilter(WebClient webClient, HttpClientPools httpClientPools) {
 		this.webClient = webClient;
+		this.httpClientPools = httpClientPools;
 	}
 
 	@Override
@@ -70,7 +79,9 @@ public class WebClientHttpRoutingFilter implements GlobalFilter, Ordered {
 		HttpMethod method = request.getMethod();
 
 		// Request
-		RequestBodySpec bodySpec = this.webClient.method(method)
+		WebClient webClient = this.httpClientPools == null ? this.webClient
+				: this.httpClientPools.getWebClient(exchange.getAttribute(GATEWAY_ROUTE_ATTR));
+		RequestBodySpec bodySpec = webClient.method(method)
 				.uri(requestUrl)
 				.headers(httpHeaders -> {
 					httpHeaders.addAll(request.getHeaders());
@@ -80,6 +91,7 @@ public class WebClientHttpRoutingFilter implements GlobalFilter, Ordered {
 		// Request Body
 		RequestHeadersSpec<?> headersSpec;
 		if (requiresBody(method)) {
+			// the Reactor Netty connector sends the native ByteBuf of each buffer, without copying
 			headersSpec = bodySpec.body(BodyInserters.fromDataBuffers(request.getBody()));
 		} else {
 			headersSpec = bodySpec;
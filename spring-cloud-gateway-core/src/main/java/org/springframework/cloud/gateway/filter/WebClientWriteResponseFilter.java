@@ -20,10 +20,12 @@ package org.springframework.cloud.gateway.filter;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.reactive.function.BodyExtractors;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_ATTR;
@@ -37,6 +39,16 @@ public class WebClientWriteResponseFilter implements GlobalFilter, Ordered {
 
 	public static final int WRITE_RESPONSE_FILTER_ORDER = -1;
 
+	private final FlushStrategy flushStrategy;
+
+	public WebClientWriteResponseFilter() {
+		this(FlushStrategy.ADAPTIVE);
+	}
+
+	public WebClientWriteResponseFilter(FlushStrategy flushStrategy) {
+		this.flushStrategy = flushStrategy;
+	}
+
 	@Override
 	public int getOrder() {
 		return WRITE_RESPONSE_FILTER_ORDER;
@@ -55,7 +67,11 @@ public class WebClientWriteResponseFilter implements GlobalFilter, Ordered {
 			log.trace("WebClientWriteResponseFilter start");
 			ServerHttpResponse response = exchange.getResponse();
 
-			return response.writeWith(clientResponse.body(BodyExtractors.toDataBuffers())).log("webClient response");
+			Flux<DataBuffer> body = clientResponse.body(BodyExtractors.toDataBuffers());
+			if (this.flushStrategy.isFlushOnEach(response.getHeaders())) {
+				return response.writeAndFlushWith(body.map(Mono::just));
+			}
+			return response.writeWith(body);
 		}));
 	}
 
@@ -0,0 +1,402 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.circuitbreaker;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Circuit breaker and bulkhead for the calls of a route, without locks nor threads of its
+ * own.
+ *
+ * <p>The outcomes of the last {@code slidingWindowSize} calls are kept in a ring buffer.
+ * Once it holds at least {@code minimumCalls} outcomes and the share of failures reaches
+ * {@code failureRateThreshold} percent, the circuit opens and calls are rejected for
+ * {@code waitDurationInOpenState} milliseconds. Then it lets
+ * {@code permittedCallsInHalfOpenState} calls through: if all of them succeed the
+ * circuit closes, a single failure opens it again.
+ *
+ * <p>At most {@code maxConcurrentCalls} calls run at once, 0 for no limit.
+ *
+ * @author Spencer Gibb
+ */
+public class CircuitBreaker {
+
+	private static final Log log = LogFactory.getLog(CircuitBreaker.class);
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	/**
+	 * Whether a call may run
+	 */
+	public enum Permission {
+		PERMITTED,
+		/**
+		 * The circuit is open
+		 */
+		CIRCUIT_OPEN,
+		/**
+		 * Too many calls run already
+		 */
+		BULKHEAD_FULL
+	}
+
+	private static final int EMPTY = 0;
+	private static final int SUCCESS = 1;
+	private static final int FAILURE = 2;
+
+	private final String name;
+	private final Settings settings;
+	private final LongSupplier nanoTime;
+	private final long waitNanos;
+
+	/**
+	 * Replaced as a whole on each transition, so that a call never sees a state with the
+	 * opening time or half-open counters of another one
+	 */
+	private final AtomicReference<Circuit> circuit = new AtomicReference<>(new Circuit(State.CLOSED, 0, 0));
+
+	private final AtomicIntegerArray outcomes;
+	private final AtomicLong nextOutcome = new AtomicLong();
+	private final AtomicInteger calls = new AtomicInteger();
+	private final AtomicInteger failures = new AtomicInteger();
+
+	private final AtomicInteger concurrentCalls = new AtomicInteger();
+	private final AtomicLong rejectedCalls = new AtomicLong();
+
+	public CircuitBreaker(String name, Settings settings) {
+		this(name, settings, System::nanoTime);
+	}
+
+	/* for testing */ CircuitBreaker(String name, Settings settings, LongSupplier nanoTime) {
+		Assert.isTrue(settings.getSlidingWindowSize() > 0, "slidingWindowSize must be greater than 0");
+		Assert.isTrue(settings.getPermittedCallsInHalfOpenState() > 0,
+				"permittedCallsInHalfOpenState must be greater than 0");
+		this.name = name;
+		this.settings = settings;
+		this.nanoTime = nanoTime;
+		this.waitNanos = TimeUnit.MILLISECONDS.toNanos(settings.getWaitDurationInOpenState());
+		this.outcomes = new AtomicIntegerArray(settings.getSlidingWindowSize());
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public Settings getSettings() {
+		return this.settings;
+	}
+
+	public State getState() {
+		return this.circuit.get().state;
+	}
+
+	/**
+	 * Takes a permission to run a call. A permitted call must report its outcome with
+	 * {@link #onSuccess()}, {@link #onFailure()} or {@link #onCancel()}, and then call
+	 * {@link #release()}.
+	 */
+	public Permission tryAcquire() {
+		int maxConcurrentCalls = this.settings.getMaxConcurrentCalls();
+		if (maxConcurrentCalls > 0 && this.concurrentCalls.incrementAndGet() > maxConcurrentCalls) {
+			this.concurrentCalls.decrementAndGet();
+			this.rejectedCalls.incrementAndGet();
+			return Permission.BULKHEAD_FULL;
+		}
+		if (!tryAcquireCircuit()) {
+			if (maxConcurrentCalls > 0) {
+				this.concurrentCalls.decrementAndGet();
+			}
+			this.rejectedCalls.incrementAndGet();
+			return Permission.CIRCUIT_OPEN;
+		}
+		return Permission.PERMITTED;
+	}
+
+	private boolean tryAcquireCircuit() {
+		Circuit current = this.circuit.get();
+		if (current.state == State.CLOSED) {
+			return true;
+		}
+		if (current.state == State.OPEN) {
+			if (this.nanoTime.getAsLong() - current.openedAt < this.waitNanos) {
+				return false;
+			}
+			this.circuit.compareAndSet(current, new Circuit(State.HALF_OPEN, current.openedAt,
+					this.settings.getPermittedCallsInHalfOpenState()));
+			current = this.circuit.get();
+			if (current.state != State.HALF_OPEN) {
+				return current.state == State.CLOSED;
+			}
+		}
+		return current.permits.getAndDecrement() > 0;
+	}
+
+	public void release() {
+		if (this.settings.getMaxConcurrentCalls() > 0) {
+			this.concurrentCalls.decrementAndGet();
+		}
+	}
+
+	public void onSuccess() {
+		Circuit current = this.circuit.get();
+		if (current.state == State.HALF_OPEN) {
+			if (current.successes.incrementAndGet() >= this.settings.getPermittedCallsInHalfOpenState()
+					&& this.circuit.compareAndSet(current, new Circuit(State.CLOSED, 0, 0))) {
+				resetOutcomes();
+				log.info("Circuit breaker " + this.name + " closed");
+			}
+			return;
+		}
+		record(SUCCESS);
+	}
+
+	public void onFailure() {
+		Circuit current = this.circuit.get();
+		if (current.state == State.HALF_OPEN) {
+			open(current);
+			return;
+		}
+		if (current.state == State.CLOSED && record(FAILURE)) {
+			open(current);
+		}
+	}
+
+	/**
+	 * A permitted call was cancelled before it had an outcome.
+	 */
+	public void onCancel() {
+		Circuit current = this.circuit.get();
+		if (current.state == State.HALF_OPEN) {
+			// let another call find out whether the route recovered
+			current.permits.incrementAndGet();
+		}
+	}
+
+	/**
+	 * @return whether the failure rate reached the threshold
+	 */
+	private boolean record(int outcome) {
+		int slot = (int) (this.nextOutcome.getAndIncrement() % this.outcomes.length());
+		int previous = this.outcomes.getAndSet(slot, outcome);
+		int calls = previous == EMPTY ? this.calls.incrementAndGet() : this.calls.get();
+		int failures;
+		if (outcome == FAILURE && previous != FAILURE) {
+			failures = this.failures.incrementAndGet();
+		}
+		else if (outcome != FAILURE && previous == FAILURE) {
+			failures = this.failures.decrementAndGet();
+		}
+		else {
+			failures = this.failures.get();
+		}
+		return calls >= Math.min(this.settings.getMinimumCalls(), this.outcomes.length())
+				&& failures * 100 >= this.settings.getFailureRateThreshold() * calls;
+	}
+
+	private void open(Circuit from) {
+		if (this.circuit.compareAndSet(from, new Circuit(State.OPEN, this.nanoTime.getAsLong(), 0))) {
+			log.warn("Circuit breaker " + this.name + " opened");
+		}
+	}
+
+	private void resetOutcomes() {
+		for (int i = 0; i < this.outcomes.length(); i++) {
+			this.outcomes.set(i, EMPTY);
+		}
+		this.calls.set(0);
+		this.failures.set(0);
+	}
+
+	/**
+	 * @return state of the circuit breaker, for monitoring
+	 */
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("state", getState());
+		int calls = this.calls.get();
+		metrics.put("calls", calls);
+		metrics.put("failureRate", calls == 0 ? 0f : this.failures.get() * 100f / calls);
+		metrics.put("concurrentCalls", this.concurrentCalls.get());
+		metrics.put("rejectedCalls", this.rejectedCalls.get());
+		return metrics;
+	}
+
+	private static class Circuit {
+		private final State state;
+		private final long openedAt;
+		/**
+		 * Trial calls left in half-open state
+		 */
+		private final AtomicInteger permits;
+		/**
+		 * Trial calls that succeeded in half-open state
+		 */
+		private final AtomicInteger successes = new AtomicInteger();
+
+		Circuit(State state, long openedAt, int permits) {
+			this.state = state;
+			this.openedAt = openedAt;
+			this.permits = new AtomicInteger(permits);
+		}
+	}
+
+	public static class Settings {
+
+		/**
+		 * Percentage of failed calls that opens the circuit.
+		 */
+		private int failureRateThreshold = 50;
+
+		/**
+		 * Number of the last calls whose outcome is kept.
+		 */
+		private int slidingWindowSize = 100;
+
+		/**
+		 * Outcomes needed before the failure rate is considered.
+		 */
+		private int minimumCalls = 20;
+
+		/**
+		 * Time in milliseconds the circuit stays open.
+		 */
+		private long waitDurationInOpenState = 5000;
+
+		/**
+		 * Calls let through to find out whether the route recovered.
+		 */
+		private int permittedCallsInHalfOpenState = 5;
+
+		/**
+		 * Calls running at once, 0 for no limit.
+		 */
+		private int maxConcurrentCalls = 0;
+
+		/**
+		 * Time in milliseconds before a call fails, 0 for no timeout.
+		 */
+		private long timeout = 0;
+
+		public int getFailureRateThreshold() {
+			return failureRateThreshold;
+		}
+
+		public void setFailureRateThreshold(int failureRateThreshold) {
+			this.failureRateThreshold = failureRateThreshold;
+		}
+
+		public int getSlidingWindowSize() {
+			return slidingWindowSize;
+		}
+
+		public void setSlidingWindowSize(int slidingWindowSize) {
+			this.slidingWindowSize = slidingWindowSize;
+		}
+
+		public int getMinimumCalls() {
+			return minimumCalls;
+		}
+
+		public void setMinimumCalls(int minimumCalls) {
+			this.minimumCalls = minimumCalls;
+		}
+
+		public long getWaitDurationInOpenState() {
+			return waitDurationInOpenState;
+		}
+
+		public void setWaitDurationInOpenState(long waitDurationInOpenState) {
+			this.waitDurationInOpenState = waitDurationInOpenState;
+		}
+
+		public int getPermittedCallsInHalfOpenState() {
+			return permittedCallsInHalfOpenState;
+		}
+
+		public void setPermittedCallsInHalfOpenState(int permittedCallsInHalfOpenState) {
+			this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+		}
+
+		public int getMaxConcurrentCalls() {
+			return maxConcurrentCalls;
+		}
+
+		public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+			this.maxConcurrentCalls = maxConcurrentCalls;
+		}
+
+		public long getTimeout() {
+			return timeout;
+		}
+
+		public void setTimeout(long timeout) {
+			this.timeout = timeout;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			Settings settings = (Settings) o;
+			return failureRateThreshold == settings.failureRateThreshold &&
+					slidingWindowSize == settings.slidingWindowSize &&
+					minimumCalls == settings.minimumCalls &&
+					waitDurationInOpenState == settings.waitDurationInOpenState &&
+					permittedCallsInHalfOpenState == settings.permittedCallsInHalfOpenState &&
+					maxConcurrentCalls == settings.maxConcurrentCalls &&
+					timeout == settings.timeout;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(failureRateThreshold, slidingWindowSize, minimumCalls, waitDurationInOpenState,
+					permittedCallsInHalfOpenState, maxConcurrentCalls, timeout);
+		}
+
+		@Override
+		public String toString() {
+			return "Settings{" +
+					"failureRateThreshold=" + failureRateThreshold +
+					", slidingWindowSize=" + slidingWindowSize +
+					", minimumCalls=" + minimumCalls +
+					", waitDurationInOpenState=" + waitDurationInOpenState +
+					", permittedCallsInHalfOpenState=" + permittedCallsInHalfOpenState +
+					", maxConcurrentCalls=" + maxConcurrentCalls +
+					", timeout=" + timeout +
+					'}';
+		}
+	}
+}
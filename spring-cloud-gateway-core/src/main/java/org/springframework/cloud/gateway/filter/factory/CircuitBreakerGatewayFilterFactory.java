@@ -0,0 +1,191 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.factory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.cloud.gateway.filter.ForwardRoutingFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.circuitbreaker.CircuitBreaker;
+import org.springframework.cloud.gateway.filter.circuitbreaker.CircuitBreaker.Permission;
+import org.springframework.http.HttpStatus;
+import org.springframework.tuple.Tuple;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.setResponseStatus;
+
+/**
+ * Circuit breaker, timeout and bulkhead for a route, built on Reactor alone: the call
+ * runs on the thread that subscribes to it, and the breaker keeps no locks. Routes using
+ * the same name share a {@link CircuitBreaker}.
+ *
+ * <p>Errors, timeouts and 5xx responses count as failures. Requests rejected by an open
+ * circuit or a full bulkhead get a 503 response, calls timing out a 504 response, unless
+ * a {@code fallbackUri} answers them instead. Failed calls fall back too, as long as
+ * their response has not been committed.
+ *
+ * @author Spencer Gibb
+ */
+public class CircuitBreakerGatewayFilterFactory implements GatewayFilterFactory {
+
+	public static final String FAILURE_RATE_THRESHOLD_KEY = "failureRateThreshold";
+	public static final String SLIDING_WINDOW_SIZE_KEY = "slidingWindowSize";
+	public static final String MINIMUM_CALLS_KEY = "minimumCalls";
+	public static final String WAIT_DURATION_IN_OPEN_STATE_KEY = "waitDurationInOpenState";
+	public static final String PERMITTED_CALLS_IN_HALF_OPEN_STATE_KEY = "permittedCallsInHalfOpenState";
+	public static final String MAX_CONCURRENT_CALLS_KEY = "maxConcurrentCalls";
+	public static final String TIMEOUT_KEY = "timeout";
+	public static final String FALLBACK_URI_KEY = "fallbackUri";
+
+	private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+	private final ForwardRoutingFilter forwardRoutingFilter;
+
+	public CircuitBreakerGatewayFilterFactory() {
+		this(null);
+	}
+
+	/**
+	 * @param forwardRoutingFilter serves {@code forward:} fallback URIs, may be {@code null}
+	 */
+	public CircuitBreakerGatewayFilterFactory(ForwardRoutingFilter forwardRoutingFilter) {
+		this.forwardRoutingFilter = forwardRoutingFilter;
+	}
+
+	@Override
+	public List<String> argNames() {
+		return Arrays.asList(NAME_KEY, TIMEOUT_KEY, MAX_CONCURRENT_CALLS_KEY, FAILURE_RATE_THRESHOLD_KEY,
+				SLIDING_WINDOW_SIZE_KEY, MINIMUM_CALLS_KEY, WAIT_DURATION_IN_OPEN_STATE_KEY,
+				PERMITTED_CALLS_IN_HALF_OPEN_STATE_KEY, FALLBACK_URI_KEY);
+	}
+
+	@Override
+	public boolean validateArgs() {
+		return false;
+	}
+
+	@Override
+	public GatewayFilter apply(Tuple args) {
+		validateMin(1, args);
+		String name = args.getString(NAME_KEY);
+		CircuitBreaker circuitBreaker = getCircuitBreaker(name, getSettings(args));
+		long timeout = circuitBreaker.getSettings().getTimeout();
+		Duration timeoutDuration = timeout > 0 ? Duration.ofMillis(timeout) : null;
+		FallbackHandler fallback = FallbackHandler.create(
+				args.hasFieldName(FALLBACK_URI_KEY) ? args.getString(FALLBACK_URI_KEY) : null,
+				this.forwardRoutingFilter);
+
+		return (exchange, chain) -> {
+			Permission permission = circuitBreaker.tryAcquire();
+			if (permission != Permission.PERMITTED) {
+				if (fallback != null) {
+					// don't touch the route at all
+					return fallback.handle(exchange);
+				}
+				setResponseStatus(exchange, HttpStatus.SERVICE_UNAVAILABLE);
+				return exchange.getResponse().setComplete();
+			}
+
+			Mono<Void> call = chain.filter(exchange);
+			if (timeoutDuration != null) {
+				call = call.timeout(timeoutDuration);
+			}
+			return call
+					.doOnSuccess(aVoid -> {
+						if (isServerError(exchange)) {
+							circuitBreaker.onFailure();
+						}
+						else {
+							circuitBreaker.onSuccess();
+						}
+					})
+					.doOnError(throwable -> circuitBreaker.onFailure())
+					.doOnCancel(circuitBreaker::onCancel)
+					.doFinally(signal -> circuitBreaker.release())
+					.onErrorResume(throwable -> {
+						if (fallback != null && fallback.canHandle(exchange)) {
+							return fallback.handle(exchange);
+						}
+						if (throwable instanceof TimeoutException) {
+							setResponseStatus(exchange, HttpStatus.GATEWAY_TIMEOUT);
+							return exchange.getResponse().setComplete();
+						}
+						return Mono.error(throwable);
+					});
+		};
+	}
+
+	private boolean isServerError(ServerWebExchange exchange) {
+		HttpStatus statusCode = exchange.getResponse().getStatusCode();
+		return statusCode != null && statusCode.is5xxServerError();
+	}
+
+	/* for testing */ CircuitBreaker getCircuitBreaker(String name, CircuitBreaker.Settings settings) {
+		CircuitBreaker circuitBreaker = this.circuitBreakers.get(name);
+		if (circuitBreaker != null && circuitBreaker.getSettings().equals(settings)) {
+			return circuitBreaker;
+		}
+		// changed settings start over with a closed circuit
+		return this.circuitBreakers.compute(name, (key, current) ->
+				current != null && current.getSettings().equals(settings) ? current : new CircuitBreaker(key, settings));
+	}
+
+	/**
+	 * @return state of each circuit breaker, keyed by name
+	 */
+	public Map<String, Map<String, Object>> getMetrics() {
+		Map<String, Map<String, Object>> metrics = new LinkedHashMap<>();
+		this.circuitBreakers.forEach((name, circuitBreaker) -> metrics.put(name, circuitBreaker.getMetrics()));
+		return Collections.unmodifiableMap(metrics);
+	}
+
+	private CircuitBreaker.Settings getSettings(Tuple args) {
+		CircuitBreaker.Settings settings = new CircuitBreaker.Settings();
+		if (args.hasFieldName(FAILURE_RATE_THRESHOLD_KEY)) {
+			settings.setFailureRateThreshold(args.getInt(FAILURE_RATE_THRESHOLD_KEY));
+		}
+		if (args.hasFieldName(SLIDING_WINDOW_SIZE_KEY)) {
+			settings.setSlidingWindowSize(args.getInt(SLIDING_WINDOW_SIZE_KEY));
+		}
+		if (args.hasFieldName(MINIMUM_CALLS_KEY)) {
+			settings.setMinimumCalls(args.getInt(MINIMUM_CALLS_KEY));
+		}
+		if (args.hasFieldName(WAIT_DURATION_IN_OPEN_STATE_KEY)) {
+			settings.setWaitDurationInOpenState(args.getLong(WAIT_DURATION_IN_OPEN_STATE_KEY));
+		}
+		if (args.hasFieldName(PERMITTED_CALLS_IN_HALF_OPEN_STATE_KEY)) {
+			settings.setPermittedCallsInHalfOpenState(args.getInt(PERMITTED_CALLS_IN_HALF_OPEN_STATE_KEY));
+		}
+		if (args.hasFieldName(MAX_CONCURRENT_CALLS_KEY)) {
+			settings.setMaxConcurrentCalls(args.getInt(MAX_CONCURRENT_CALLS_KEY));
+		}
+		if (args.hasFieldName(TIMEOUT_KEY)) {
+			settings.setTimeout(args.getLong(TIMEOUT_KEY));
+		}
+		return settings;
+	}
+}
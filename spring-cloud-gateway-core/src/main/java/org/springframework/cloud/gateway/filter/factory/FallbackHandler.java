@@ -0,0 +1,106 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.factory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+import org.springframework.cloud.gateway.filter.ForwardRoutingFilter;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Answers the requests a route cannot serve, e.g. while its circuit is open, without
+ * calling the route. The fallback is resolved once, when the filter is created: a
+ * {@code forward:} URI is parsed, any other location, e.g.
+ * {@code classpath:fallback/users.json}, is read into memory and served as is.
+ *
+ * @author Spencer Gibb
+ */
+class FallbackHandler {
+
+	private static final ResourceLoader resourceLoader = new DefaultResourceLoader();
+
+	private final URI forwardUri;
+	private final ForwardRoutingFilter forwardRoutingFilter;
+	private final byte[] body;
+	private final MediaType contentType;
+
+	private FallbackHandler(URI forwardUri, ForwardRoutingFilter forwardRoutingFilter, byte[] body,
+			MediaType contentType) {
+		this.forwardUri = forwardUri;
+		this.forwardRoutingFilter = forwardRoutingFilter;
+		this.body = body;
+		this.contentType = contentType;
+	}
+
+	/**
+	 * @param fallbackUri {@code forward:} URI or location of a static response,
+	 * may be {@code null}
+	 * @param forwardRoutingFilter forwards to {@code forward:} URIs, may be {@code null}
+	 * if there are none
+	 * @return the fallback, {@code null} if there is no fallback URI
+	 */
+	static FallbackHandler create(String fallbackUri, ForwardRoutingFilter forwardRoutingFilter) {
+		if (fallbackUri == null || fallbackUri.trim().isEmpty()) {
+			return null;
+		}
+		fallbackUri = fallbackUri.trim();
+		if (fallbackUri.startsWith("forward:")) {
+			Assert.notNull(forwardRoutingFilter, "forward: fallbacks need a ForwardRoutingFilter");
+			return new FallbackHandler(URI.create(fallbackUri), forwardRoutingFilter, null, null);
+		}
+		Resource resource = resourceLoader.getResource(fallbackUri);
+		try (InputStream in = resource.getInputStream()) {
+			byte[] body = StreamUtils.copyToByteArray(in);
+			MediaType contentType = MediaTypeFactory.getMediaType(resource).orElse(MediaType.APPLICATION_OCTET_STREAM);
+			return new FallbackHandler(null, null, body, contentType);
+		}
+		catch (IOException e) {
+			throw new IllegalArgumentException("Unable to read fallback " + fallbackUri, e);
+		}
+	}
+
+	/**
+	 * @return whether the response can still be replaced by the fallback
+	 */
+	boolean canHandle(ServerWebExchange exchange) {
+		return !exchange.getResponse().isCommitted();
+	}
+
+	Mono<Void> handle(ServerWebExchange exchange) {
+		if (this.forwardUri != null) {
+			return this.forwardRoutingFilter.forward(exchange, this.forwardUri);
+		}
+		ServerHttpResponse response = exchange.getResponse();
+		response.setStatusCode(HttpStatus.OK);
+		response.getHeaders().setContentType(this.contentType);
+		response.getHeaders().setContentLength(this.body.length);
+		return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(this.body)));
+	}
+}
@@ -53,6 +53,16 @@ public class GatewayFilters {
 		return new AddResponseHeaderGatewayFilterFactory().apply(args);
 	}
 
+	public static GatewayFilter circuitBreaker(String name) {
+		Tuple args = tuple().of(NAME_KEY, name);
+		return new CircuitBreakerGatewayFilterFactory().apply(args);
+	}
+
+	public static GatewayFilter hedge(long delayMillis) {
+		Tuple args = tuple().of(HedgeGatewayFilterFactory.DELAY_KEY, String.valueOf(delayMillis));
+		return new HedgeGatewayFilterFactory().apply(args);
+	}
+
 	public static GatewayFilter hystrix(String commandName) {
 		Tuple args = tuple().of(NAME_KEY, commandName);
 		return new HystrixGatewayFilterFactory().apply(args);
@@ -96,6 +106,11 @@ public class GatewayFilters {
 		return new RemoveResponseHeaderGatewayFilterFactory().apply(args);
 	}
 
+	public static GatewayFilter retry(int retries) {
+		Tuple args = tuple().of(RetryGatewayFilterFactory.RETRIES_KEY, retries);
+		return new RetryGatewayFilterFactory().apply(args);
+	}
+
 	public static GatewayFilter rewritePath(String regex, String replacement) {
 		Tuple args = tuple().of(REGEXP_KEY, regex, REPLACEMENT_KEY, replacement);
 		return new RewritePathGatewayFilterFactory().apply(args);
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.factory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.hedge.AttemptExchange;
+import org.springframework.cloud.gateway.filter.hedge.LatencyTracker;
+import org.springframework.cloud.gateway.filter.retry.RetryBudget;
+import org.springframework.http.HttpMethod;
+import org.springframework.tuple.Tuple;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_EXCLUDED_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_INSTANCE_ATTR;
+
+/**
+ * Routes a request a second time, concurrently, when the first attempt has not
+ * responded after a delay, keeps the first successful response and cancels the other
+ * attempt. The second attempt asks the load balancer for another instance than the
+ * first one.
+ *
+ * <p>The delay is either a number of milliseconds, or a percentile of the latencies of
+ * the route, e.g. {@code p95}. Until {@link #MIN_SAMPLES} latencies have been recorded,
+ * a percentile delay does not hedge. Hedged requests are capped to {@code maxHedgePercent}
+ * of the requests of the route by a {@link RetryBudget}. Request bodies are not replayed,
+ * so only methods without a body should be hedged.
+ *
+ * @author Spencer Gibb
+ */
+public class HedgeGatewayFilterFactory implements GatewayFilterFactory {
+
+	public static final String DELAY_KEY = "delay";
+	public static final String MAX_HEDGE_PERCENT_KEY = "maxHedgePercent";
+	public static final String METHODS_KEY = "methods";
+
+	public static final int MIN_SAMPLES = 100;
+
+	@Override
+	public List<String> argNames() {
+		return Arrays.asList(DELAY_KEY, MAX_HEDGE_PERCENT_KEY, METHODS_KEY);
+	}
+
+	@Override
+	public boolean validateArgs() {
+		return false;
+	}
+
+	@Override
+	public GatewayFilter apply(Tuple args) {
+		String delay = args.hasFieldName(DELAY_KEY) ? args.getString(DELAY_KEY).trim() : "p95";
+		long fixedDelayNanos = -1;
+		LatencyTracker tracker;
+		if (delay.startsWith("p") || delay.startsWith("P")) {
+			tracker = new LatencyTracker(Double.parseDouble(delay.substring(1)));
+		}
+		else {
+			tracker = null;
+			fixedDelayNanos = Duration.ofMillis(Long.parseLong(delay)).toNanos();
+		}
+		double maxHedgePercent = args.hasFieldName(MAX_HEDGE_PERCENT_KEY) ? args.getDouble(MAX_HEDGE_PERCENT_KEY) : 10;
+		RetryBudget budget = new RetryBudget(maxHedgePercent, 10);
+		Set<HttpMethod> methods = EnumSet.noneOf(HttpMethod.class);
+		String methodNames = args.hasFieldName(METHODS_KEY) ? args.getString(METHODS_KEY) : "GET,HEAD";
+		for (String method : StringUtils.tokenizeToStringArray(methodNames, ",| ")) {
+			methods.add(HttpMethod.valueOf(method.toUpperCase()));
+		}
+		long fixedDelay = fixedDelayNanos;
+
+		return (exchange, chain) -> {
+			if (!methods.contains(exchange.getRequest().getMethod())) {
+				return chain.filter(exchange);
+			}
+			budget.deposit();
+			long delayNanos = tracker == null ? fixedDelay : tracker.getPercentileNanos(MIN_SAMPLES);
+			if (delayNanos < 0) {
+				return timed(chain.filter(exchange), tracker);
+			}
+
+			AttemptExchange primary = new AttemptExchange(exchange);
+			AttemptExchange[] hedged = new AttemptExchange[1];
+			AtomicInteger inFlight = new AtomicInteger(1);
+			Mono<AttemptExchange> hedge = Mono.delay(Duration.ofNanos(delayNanos)).flatMap(tick -> {
+				if (!budget.tryWithdraw()) {
+					return Mono.empty();
+				}
+				AttemptExchange attempt = new AttemptExchange(exchange);
+				String primaryInstance = primary.getAttribute(GATEWAY_LOADBALANCER_INSTANCE_ATTR);
+				if (primaryInstance != null) {
+					attempt.getAttributes().put(GATEWAY_LOADBALANCER_EXCLUDED_ATTR,
+							Collections.singleton(primaryInstance));
+				}
+				hedged[0] = attempt;
+				inFlight.incrementAndGet();
+				return attempt(attempt, chain, tracker);
+			});
+
+			return Flux.merge(attempt(primary, chain, tracker), hedge)
+					// a failed attempt is kept only if no other attempt can succeed anymore
+					.filter(attempt -> attempt.isSuccessful() || inFlight.decrementAndGet() == 0)
+					.next()
+					.flatMap(winner -> {
+						AttemptExchange loser = winner == primary ? hedged[0] : primary;
+						if (loser != null) {
+							loser.discard();
+						}
+						winner.commit();
+						return winner.getError() == null ? Mono.empty() : Mono.error(winner.getError());
+					});
+		};
+	}
+
+	private Mono<AttemptExchange> attempt(AttemptExchange attempt, GatewayFilterChain chain,
+			LatencyTracker tracker) {
+		return timed(Mono.defer(() -> chain.filter(attempt)), tracker)
+				.then(Mono.just(attempt))
+				.onErrorResume(error -> {
+					attempt.setError(error);
+					return Mono.just(attempt);
+				});
+	}
+
+	/**
+	 * Records the time until the response status and headers are known.
+	 */
+	private Mono<Void> timed(Mono<Void> routing, LatencyTracker tracker) {
+		if (tracker == null) {
+			return routing;
+		}
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			return routing.doOnSuccess(v -> tracker.record(System.nanoTime() - start));
+		});
+	}
+}
@@ -21,6 +21,7 @@ import com.netflix.hystrix.HystrixCommandGroupKey;
 import com.netflix.hystrix.HystrixCommandKey;
 import com.netflix.hystrix.HystrixObservableCommand;
 import com.netflix.hystrix.exception.HystrixRuntimeException;
+import org.springframework.cloud.gateway.filter.ForwardRoutingFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.http.HttpStatus;
@@ -43,15 +44,40 @@ import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.s
  */
 public class HystrixGatewayFilterFactory implements GatewayFilterFactory {
 
+	public static final String FALLBACK_URI_KEY = "fallbackUri";
+
+	private final ForwardRoutingFilter forwardRoutingFilter;
+
+	public HystrixGatewayFilterFactory() {
+		this(null);
+	}
+
+	/**
+	 * @param forwardRoutingFilter serves {@code forward:} fallback URIs, may be {@code null}
+	 */
+	public HystrixGatewayFilterFactory(ForwardRoutingFilter forwardRoutingFilter) {
+		this.forwardRoutingFilter = forwardRoutingFilter;
+	}
+
 	@Override
 	public List<String> argNames() {
-		return Arrays.asList(NAME_KEY);
+		return Arrays.asList(NAME_KEY, FALLBACK_URI_KEY);
+	}
+
+	@Override
+	public boolean validateArgs() {
+		return false;
 	}
 
 	@Override
 	public GatewayFilter apply(Tuple args) {
+		validateMin(1, args);
 		//TODO: if no name is supplied, generate one from command id (useful for default filter)
 		final String commandName = args.getString(NAME_KEY);
+		// resolved once, a short-circuited command calls neither the route nor its pool
+		final FallbackHandler fallback = FallbackHandler.create(
+				args.hasFieldName(FALLBACK_URI_KEY) ? args.getString(FALLBACK_URI_KEY) : null,
+				this.forwardRoutingFilter);
 		final HystrixCommandGroupKey groupKey = HystrixCommandGroupKey.Factory.asKey(getClass().getSimpleName());
 		final HystrixCommandKey commandKey = HystrixCommandKey.Factory.asKey(commandName);
 
@@ -68,6 +94,10 @@ public class HystrixGatewayFilterFactory implements GatewayFilterFactory {
 				// Mono 取消时，取消 Hystrix Command Observable 的订阅，结束 Hystrix Command 的执行
 				s.onCancel(sub::unsubscribe);
 			}).onErrorResume((Function<Throwable, Mono<Void>>) throwable -> {
+				if (throwable instanceof HystrixRuntimeException && fallback != null
+						&& fallback.canHandle(exchange)) {
+					return fallback.handle(exchange);
+				}
 				if (throwable instanceof HystrixRuntimeException) {
 					HystrixRuntimeException e = (HystrixRuntimeException) throwable;
 					if (e.getFailureType() == TIMEOUT) { //TODO: optionally set status
@@ -19,8 +19,11 @@ package org.springframework.cloud.gateway.filter.factory;
 
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimitAlgorithm;
 import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
 import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.tuple.Tuple;
 
@@ -34,6 +37,10 @@ public class RequestRateLimiterGatewayFilterFactory implements GatewayFilterFact
 
 	public static final String KEY_RESOLVER_KEY = "keyResolver";
 
+	public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+	public static final String LIMIT_HEADER = "X-RateLimit-Limit";
+	public static final String RESET_HEADER = "X-RateLimit-Reset";
+
 	private final RateLimiter rateLimiter;
 	private final KeyResolver defaultKeyResolver;
 
@@ -48,7 +55,9 @@ public class RequestRateLimiterGatewayFilterFactory implements GatewayFilterFact
         return Arrays.asList(
                 RedisRateLimiter.REPLENISH_RATE_KEY,
                 RedisRateLimiter.BURST_CAPACITY_KEY,
-                KEY_RESOLVER_KEY
+                KEY_RESOLVER_KEY,
+                RedisRateLimiter.REQUESTED_TOKENS_KEY,
+                RateLimitAlgorithm.ALGORITHM_KEY
         );
     }
 
@@ -59,8 +68,12 @@ public class RequestRateLimiterGatewayFilterFactory implements GatewayFilterFact
 
     @SuppressWarnings("unchecked")
 	@Override
-	public GatewayFilter apply(Tuple args) {
-        validateMin(2, args);
+	public GatewayFilter apply(Tuple routeArgs) {
+        validateMin(2, routeArgs);
+        // fails a misspelled algorithm now, rather than on each request
+        Tuple args = RateLimitAlgorithm.resolve(routeArgs);
+
+        RateLimitHeaders headers = new RateLimitHeaders(args);
 
         // 获得 KeyResolver
 		KeyResolver keyResolver;
@@ -73,7 +86,7 @@ public class RequestRateLimiterGatewayFilterFactory implements GatewayFilterFact
 		return (exchange, chain) -> keyResolver.resolve(exchange).flatMap(key ->
             // TODO: if key is empty?
             rateLimiter.isAllowed(key, args).flatMap(response -> {
-                // TODO: set some headers for rate, tokens left
+                headers.apply(exchange.getResponse().getHeaders(), response);
 
                 // 允许访问
                 if (response.isAllowed()) {
@@ -81,9 +94,75 @@ public class RequestRateLimiterGatewayFilterFactory implements GatewayFilterFact
                 }
 
                 // 被限流，不允许访问
+                headers.applyRetryAfter(exchange.getResponse().getHeaders(), response);
                 exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
                 return exchange.getResponse().setComplete();
             }));
 	}
 
+	/**
+	 * Rate limit headers of a route. The values a response can carry are encoded once,
+	 * when the filter is created, as the limits of the route are known by then.
+	 */
+	/* for testing */ static class RateLimitHeaders {
+
+		/**
+		 * Values above are encoded per response
+		 */
+		private static final int MAX_ENCODED = 1024;
+
+		private final int replenishRate;
+		private final int burstCapacity;
+		private final int requestedTokens;
+
+		private final String limit;
+		private final String[] counts;
+
+		RateLimitHeaders(Tuple args) {
+			this.replenishRate = args.getInt(RedisRateLimiter.REPLENISH_RATE_KEY);
+			// resolved like the rate limiter does, so the limit is the one applied
+			this.burstCapacity = RedisRateLimiter.getBurstCapacity(args);
+			this.requestedTokens = RedisRateLimiter.getRequestedTokens(args);
+			this.limit = String.valueOf(this.burstCapacity);
+			// tokens remaining, and seconds until the bucket is full
+			this.counts = new String[Math.min(Math.max(this.burstCapacity, 0), MAX_ENCODED) + 1];
+			for (int i = 0; i < this.counts.length; i++) {
+				this.counts[i] = String.valueOf(i);
+			}
+		}
+
+		void apply(HttpHeaders headers, Response response) {
+			headers.set(LIMIT_HEADER, this.limit);
+			long remaining = response.getTokensRemaining();
+			if (remaining < 0) {
+				// not known, e.g. when Redis is not available
+				return;
+			}
+			headers.set(REMAINING_HEADER, encode(remaining));
+			headers.set(RESET_HEADER, encode(secondsUntil(this.burstCapacity, remaining)));
+		}
+
+		void applyRetryAfter(HttpHeaders headers, Response response) {
+			long remaining = response.getTokensRemaining();
+			if (remaining < 0 || this.replenishRate <= 0) {
+				return;
+			}
+			headers.set(HttpHeaders.RETRY_AFTER, encode(Math.max(1, secondsUntil(this.requestedTokens, remaining))));
+		}
+
+		/**
+		 * @return whole seconds until the bucket holds the given tokens
+		 */
+		private long secondsUntil(long tokens, long remaining) {
+			if (remaining >= tokens || this.replenishRate <= 0) {
+				return 0;
+			}
+			return (tokens - remaining + this.replenishRate - 1) / this.replenishRate;
+		}
+
+		private String encode(long value) {
+			return value < this.counts.length ? this.counts[(int) value] : String.valueOf(value);
+		}
+	}
+
 }
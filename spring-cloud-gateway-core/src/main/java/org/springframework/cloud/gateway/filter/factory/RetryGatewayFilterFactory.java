@@ -0,0 +1,221 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.factory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.retry.ReplayableBodyRequest;
+import org.springframework.cloud.gateway.filter.retry.RetryBudget;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.tuple.Tuple;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.ipc.netty.http.client.HttpClientResponse;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ALREADY_ROUTED_ATTR;
+
+/**
+ * Runs the rest of the chain again, routing the request again, when it fails with one of
+ * the configured exceptions or responds with one of the configured statuses. Only
+ * requests with one of the configured, by default idempotent, methods are retried.
+ *
+ * <p>Retries wait for an exponential backoff, randomly shortened by up to
+ * {@code jitter} of it, and are capped by a {@link RetryBudget} of the route. Request
+ * bodies up to {@code maxBodySize} bytes are kept in memory to be sent again, requests
+ * with larger bodies are not retried. A retry discards the response of the previous
+ * attempt, so the filter must run before the response is written, as route filters do.
+ *
+ * @author Spencer Gibb
+ */
+public class RetryGatewayFilterFactory implements GatewayFilterFactory {
+
+	public static final String RETRIES_KEY = "retries";
+	public static final String STATUSES_KEY = "statuses";
+	public static final String METHODS_KEY = "methods";
+	public static final String EXCEPTIONS_KEY = "exceptions";
+	public static final String FIRST_BACKOFF_KEY = "firstBackoff";
+	public static final String MAX_BACKOFF_KEY = "maxBackoff";
+	public static final String FACTOR_KEY = "factor";
+	public static final String JITTER_KEY = "jitter";
+	public static final String BUDGET_PERCENT_KEY = "budgetPercent";
+	public static final String MAX_BODY_SIZE_KEY = "maxBodySize";
+
+	@Override
+	public List<String> argNames() {
+		return Arrays.asList(RETRIES_KEY, STATUSES_KEY, METHODS_KEY, EXCEPTIONS_KEY, FIRST_BACKOFF_KEY,
+				MAX_BACKOFF_KEY, FACTOR_KEY, JITTER_KEY, BUDGET_PERCENT_KEY, MAX_BODY_SIZE_KEY);
+	}
+
+	@Override
+	public boolean validateArgs() {
+		return false;
+	}
+
+	@Override
+	public GatewayFilter apply(Tuple args) {
+		RetryConfig config = new RetryConfig(args);
+		RetryBudget budget = new RetryBudget(config.budgetPercent, Math.max(config.retries, 10));
+
+		return (exchange, chain) -> {
+			if (config.retries <= 0 || !config.methods.contains(exchange.getRequest().getMethod())) {
+				return chain.filter(exchange);
+			}
+			budget.deposit();
+
+			ReplayableBodyRequest request = new ReplayableBodyRequest(exchange.getRequest(), config.maxBodySize);
+			ServerWebExchange retryable = exchange.mutate().request(request).build();
+			ServerHttpResponse response = retryable.getResponse();
+			HttpStatus initialStatus = response.getStatusCode();
+			HttpHeaders initialHeaders = new HttpHeaders();
+			initialHeaders.putAll(response.getHeaders());
+
+			Mono<Void> attempt = Mono.defer(() -> chain.filter(retryable))
+					.then(Mono.defer(() -> {
+						HttpStatus status = response.getStatusCode();
+						if (status != null && config.statuses.contains(status)) {
+							return Mono.error(new RetryableStatusException(status));
+						}
+						return Mono.empty();
+					}));
+
+			return attempt
+					.retryWhen(errors -> errors.zipWith(Flux.range(1, Integer.MAX_VALUE)).concatMap(error -> {
+						int retry = error.getT2();
+						if (retry > config.retries || !config.isRetryable(error.getT1())
+								|| response.isCommitted() || !request.isReplayable() || !budget.tryWithdraw()) {
+							return Mono.error(error.getT1());
+						}
+						reset(retryable, initialStatus, initialHeaders);
+						Duration backoff = config.getBackoff(retry);
+						return backoff.isZero() ? Mono.just(0L) : Mono.delay(backoff);
+					}))
+					// out of retries, the last response is written as is
+					.onErrorResume(RetryableStatusException.class, e -> Mono.empty());
+		};
+	}
+
+	/**
+	 * Brings the exchange back to its state before the request was routed.
+	 */
+	private void reset(ServerWebExchange exchange, HttpStatus initialStatus, HttpHeaders initialHeaders) {
+		Object clientResponse = exchange.getAttributes().remove(CLIENT_RESPONSE_ATTR);
+		if (clientResponse instanceof ClientResponse) {
+			// releases the body, and the connection
+			((ClientResponse) clientResponse).bodyToMono(Void.class).subscribe(null, e -> { });
+		}
+		else if (clientResponse instanceof HttpClientResponse) {
+			((HttpClientResponse) clientResponse).receive().subscribe(null, e -> { });
+		}
+		exchange.getAttributes().remove(GATEWAY_ALREADY_ROUTED_ATTR);
+		ServerHttpResponse response = exchange.getResponse();
+		response.setStatusCode(initialStatus);
+		response.getHeaders().clear();
+		response.getHeaders().putAll(initialHeaders);
+	}
+
+	/**
+	 * A response with a status to retry, the exception is not surfaced.
+	 */
+	private static class RetryableStatusException extends RuntimeException {
+		RetryableStatusException(HttpStatus status) {
+			super("Retryable status " + status, null, false, false);
+		}
+	}
+
+	private static class RetryConfig {
+		private final int retries;
+		private final Set<HttpStatus> statuses;
+		private final Set<HttpMethod> methods;
+		private final List<Class<?>> exceptions;
+		private final long firstBackoff;
+		private final long maxBackoff;
+		private final double factor;
+		private final double jitter;
+		private final double budgetPercent;
+		private final int maxBodySize;
+
+		RetryConfig(Tuple args) {
+			this.retries = args.hasFieldName(RETRIES_KEY) ? args.getInt(RETRIES_KEY) : 3;
+			this.statuses = EnumSet.noneOf(HttpStatus.class);
+			for (String status : split(args, STATUSES_KEY, "BAD_GATEWAY,SERVICE_UNAVAILABLE,GATEWAY_TIMEOUT")) {
+				this.statuses.add(Character.isDigit(status.charAt(0)) ? HttpStatus.valueOf(Integer.parseInt(status))
+						: HttpStatus.valueOf(status.toUpperCase()));
+			}
+			this.methods = EnumSet.noneOf(HttpMethod.class);
+			for (String method : split(args, METHODS_KEY, "GET,HEAD,OPTIONS,PUT,DELETE")) {
+				this.methods.add(HttpMethod.valueOf(method.toUpperCase()));
+			}
+			this.exceptions = new ArrayList<>();
+			for (String exception : split(args, EXCEPTIONS_KEY,
+					IOException.class.getName() + "," + TimeoutException.class.getName())) {
+				this.exceptions.add(ClassUtils.resolveClassName(exception, getClass().getClassLoader()));
+			}
+			this.firstBackoff = args.hasFieldName(FIRST_BACKOFF_KEY) ? args.getLong(FIRST_BACKOFF_KEY) : 10;
+			this.maxBackoff = args.hasFieldName(MAX_BACKOFF_KEY) ? args.getLong(MAX_BACKOFF_KEY) : 1000;
+			this.factor = args.hasFieldName(FACTOR_KEY) ? args.getDouble(FACTOR_KEY) : 2;
+			this.jitter = args.hasFieldName(JITTER_KEY) ? args.getDouble(JITTER_KEY) : 0.5;
+			this.budgetPercent = args.hasFieldName(BUDGET_PERCENT_KEY) ? args.getDouble(BUDGET_PERCENT_KEY) : 10;
+			this.maxBodySize = args.hasFieldName(MAX_BODY_SIZE_KEY) ? args.getInt(MAX_BODY_SIZE_KEY) : 64 * 1024;
+		}
+
+		private static String[] split(Tuple args, String key, String defaultValue) {
+			String value = args.hasFieldName(key) ? args.getString(key) : defaultValue;
+			return StringUtils.tokenizeToStringArray(value, ",| ");
+		}
+
+		boolean isRetryable(Throwable error) {
+			if (error instanceof RetryableStatusException) {
+				return true;
+			}
+			for (Class<?> exception : this.exceptions) {
+				if (exception.isInstance(error)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * @param retry 1 for the first retry
+		 */
+		Duration getBackoff(int retry) {
+			double backoff = Math.min(this.maxBackoff, this.firstBackoff * Math.pow(this.factor, retry - 1));
+			if (this.jitter > 0) {
+				backoff -= backoff * this.jitter * ThreadLocalRandom.current().nextDouble();
+			}
+			return Duration.ofMillis((long) backoff);
+		}
+	}
+}
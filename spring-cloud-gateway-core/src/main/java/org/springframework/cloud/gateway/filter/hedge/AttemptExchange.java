@@ -0,0 +1,173 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.hedge;
+
+import java.net.URI;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import reactor.core.publisher.Mono;
+import reactor.ipc.netty.http.client.HttpClientResponse;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ORIGINAL_REQUEST_URL_ATTR;
+
+/**
+ * One of several concurrent attempts to route an exchange. The attributes, the status
+ * and the headers of the response are copies, so attempts do not see each other's
+ * changes. Only the attempt that is kept copies them back to the exchange. Writing the
+ * response body is passed to the exchange as is.
+ *
+ * @author Spencer Gibb
+ */
+public class AttemptExchange extends ServerWebExchangeDecorator {
+
+	private final Map<String, Object> attributes;
+	private final AttemptResponse response;
+	private volatile Throwable error;
+
+	@SuppressWarnings("unchecked")
+	public AttemptExchange(ServerWebExchange delegate) {
+		super(delegate);
+		this.attributes = new ConcurrentHashMap<>(delegate.getAttributes());
+		Set<URI> originalUrls = (Set<URI>) this.attributes.get(GATEWAY_ORIGINAL_REQUEST_URL_ATTR);
+		if (originalUrls != null) {
+			this.attributes.put(GATEWAY_ORIGINAL_REQUEST_URL_ATTR, new LinkedHashSet<>(originalUrls));
+		}
+		this.response = new AttemptResponse(delegate.getResponse());
+	}
+
+	@Override
+	public Map<String, Object> getAttributes() {
+		return this.attributes;
+	}
+
+	@Override
+	public ServerHttpResponse getResponse() {
+		return this.response;
+	}
+
+	public Throwable getError() {
+		return this.error;
+	}
+
+	public void setError(Throwable error) {
+		this.error = error;
+	}
+
+	/**
+	 * @return whether the attempt completed without an error nor a server error status
+	 */
+	public boolean isSuccessful() {
+		HttpStatus status = this.response.getStatusCode();
+		return this.error == null && (status == null || !status.is5xxServerError());
+	}
+
+	/**
+	 * Copies the attributes, the status and the headers of the attempt to the exchange.
+	 */
+	public void commit() {
+		Map<String, Object> target = getDelegate().getAttributes();
+		target.keySet().retainAll(this.attributes.keySet());
+		target.putAll(this.attributes);
+		this.response.commit();
+	}
+
+	/**
+	 * Releases the response of the upstream service, if the attempt got one.
+	 */
+	public void discard() {
+		Object clientResponse = this.attributes.remove(CLIENT_RESPONSE_ATTR);
+		if (clientResponse instanceof ClientResponse) {
+			((ClientResponse) clientResponse).bodyToMono(Void.class).subscribe(null, e -> { });
+		}
+		else if (clientResponse instanceof HttpClientResponse) {
+			((HttpClientResponse) clientResponse).receive().subscribe(null, e -> { });
+		}
+	}
+
+	private static class AttemptResponse extends ServerHttpResponseDecorator {
+
+		private final HttpHeaders headers = new HttpHeaders();
+		private volatile HttpStatus statusCode;
+
+		AttemptResponse(ServerHttpResponse delegate) {
+			super(delegate);
+			this.headers.putAll(delegate.getHeaders());
+			this.statusCode = delegate.getStatusCode();
+		}
+
+		@Override
+		public boolean setStatusCode(HttpStatus status) {
+			if (getDelegate().isCommitted()) {
+				return false;
+			}
+			this.statusCode = status;
+			return true;
+		}
+
+		@Override
+		public HttpStatus getStatusCode() {
+			return this.statusCode;
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return this.headers;
+		}
+
+		@Override
+		public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+			commit();
+			return super.writeWith(body);
+		}
+
+		@Override
+		public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+			commit();
+			return super.writeAndFlushWith(body);
+		}
+
+		@Override
+		public Mono<Void> setComplete() {
+			commit();
+			return super.setComplete();
+		}
+
+		void commit() {
+			ServerHttpResponse response = getDelegate();
+			if (response.isCommitted()) {
+				return;
+			}
+			response.setStatusCode(this.statusCode);
+			response.getHeaders().clear();
+			response.getHeaders().putAll(this.headers);
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.hedge;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+import org.springframework.util.Assert;
+
+/**
+ * Keeps the latest latencies of a route in a ring buffer, to estimate a percentile of
+ * them. The percentile is computed again at most every {@code refreshInterval}, so most
+ * reads return a cached value without sorting the samples.
+ *
+ * @author Spencer Gibb
+ */
+public class LatencyTracker {
+
+	public static final int DEFAULT_SAMPLES = 1024;
+
+	private static final long UNSET = -1;
+
+	private final AtomicLongArray samples;
+	private final AtomicLong recorded = new AtomicLong();
+	private final double percentile;
+	private final long refreshNanos;
+	private final LongSupplier nanoTime;
+
+	private volatile long cachedNanos = UNSET;
+	private volatile long refreshedAt;
+	private volatile long refreshedCount;
+
+	/**
+	 * @param percentile the percentile to estimate, e.g. 95
+	 */
+	public LatencyTracker(double percentile) {
+		this(percentile, DEFAULT_SAMPLES, 100, System::nanoTime);
+	}
+
+	/* for testing */ LatencyTracker(double percentile, int samples, long refreshIntervalMillis,
+			LongSupplier nanoTime) {
+		Assert.isTrue(percentile > 0 && percentile <= 100, "percentile must be between 0 and 100");
+		Assert.isTrue(samples > 0, "samples must be greater than 0");
+		this.samples = new AtomicLongArray(samples);
+		this.percentile = percentile;
+		this.refreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshIntervalMillis);
+		this.nanoTime = nanoTime;
+	}
+
+	public void record(long latencyNanos) {
+		long index = this.recorded.getAndIncrement();
+		this.samples.set((int) (index % this.samples.length()), latencyNanos);
+	}
+
+	/**
+	 * @param minSamples samples needed for an estimate
+	 * @return the percentile of the latest latencies in nanoseconds, or -1 while fewer
+	 * than {@code minSamples} latencies have been recorded
+	 */
+	public long getPercentileNanos(int minSamples) {
+		long count = this.recorded.get();
+		if (count < minSamples || count == 0) {
+			return UNSET;
+		}
+		long now = this.nanoTime.getAsLong();
+		long cached = this.cachedNanos;
+		if (cached != UNSET && (now - this.refreshedAt < this.refreshNanos || count == this.refreshedCount)) {
+			return cached;
+		}
+		int size = (int) Math.min(count, this.samples.length());
+		long[] sorted = new long[size];
+		for (int i = 0; i < size; i++) {
+			sorted[i] = this.samples.get(i);
+		}
+		Arrays.sort(sorted);
+		int rank = (int) Math.ceil(this.percentile / 100 * size) - 1;
+		cached = sorted[Math.max(0, Math.min(size - 1, rank))];
+		this.cachedNanos = cached;
+		this.refreshedAt = now;
+		this.refreshedCount = count;
+		return cached;
+	}
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.springframework.cloud.gateway.filter.loadbalancer;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.CookieKeyResolver;
+import org.springframework.cloud.gateway.filter.ratelimit.HeaderKeyResolver;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.filter.ratelimit.PrincipalNameKeyResolver;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RoutesRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_EXCLUDED_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_HASH_KEY_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Load balancer choosing among the instances cached by a {@link ServiceInstanceCache},
+ * with the {@link LoadBalancerStrategy} of the route. Only the first request to a
+ * service waits for its instances to be fetched.
+ *
+ * <p>Strategies hashing a key of the request, such as
+ * {@link LoadBalancerStrategy#CONSISTENT_HASH}, get it from the {@link KeyResolver} named
+ * by the {@code loadbalancer.hash-key} metadata of the route: {@code header:<name>},
+ * {@code cookie:<name>}, or the name of a {@link KeyResolver} bean.
+ *
+ * <p>The metadata of a route is parsed once, when the routes are refreshed or on its
+ * first request. Routes with invalid metadata are reported then, and use the default
+ * strategy and hash key.
+ *
+ * @author Spencer Gibb
+ */
+public class DiscoveryClientLoadBalancer implements ReactiveLoadBalancer {
+
+	private static final Log log = LogFactory.getLog(DiscoveryClientLoadBalancer.class);
+
+	public static final String HASH_KEY_METADATA = "loadbalancer.hash-key";
+	public static final String HEADER_HASH_KEY_PREFIX = "header:";
+	public static final String COOKIE_HASH_KEY_PREFIX = "cookie:";
+
+	/**
+	 * Times the strategy is asked again when it chooses an excluded instance
+	 */
+	private static final int MAX_EXCLUDED_CHOICES = 3;
+
+	private final ServiceInstanceCache cache;
+	private final LoadBalancerStrategy defaultStrategy;
+	/**
+	 * Key resolver beans, keyed by bean name
+	 */
+	private final Map<String, KeyResolver> keyResolverBeans;
+	private final KeyResolver defaultKeyResolver;
+	/**
+	 * Parsed metadata of the routes, keyed by route id
+	 */
+	private final ConcurrentMap<String, RouteSettings> routeSettings = new ConcurrentHashMap<>();
+
+	public DiscoveryClientLoadBalancer(ServiceInstanceCache cache, LoadBalancerStrategy defaultStrategy) {
+		this(cache, defaultStrategy, Collections.emptyMap(), null);
+	}
+
+	/**
+	 * @param keyResolverBeans key resolvers the routes can name, keyed by bean name
+	 * @param defaultHashKey hash key of the routes without one, {@code null} for the
+	 * {@link PrincipalNameKeyResolver}
+	 */
+	public DiscoveryClientLoadBalancer(ServiceInstanceCache cache, LoadBalancerStrategy defaultStrategy,
+			Map<String, KeyResolver> keyResolverBeans, String defaultHashKey) {
+		this.cache = cache;
+		this.defaultStrategy = defaultStrategy;
+		this.keyResolverBeans = keyResolverBeans;
+		this.defaultKeyResolver = defaultHashKey == null ? new PrincipalNameKeyResolver()
+				: createKeyResolver(defaultHashKey);
+	}
+
+	@Override
+	public Mono<LoadBalancedInstance> choose(String serviceId, ServerWebExchange exchange) {
+		LoadBalancerStrategy strategy;
+		try {
+			strategy = getStrategy(exchange);
+		}
+		catch (RuntimeException e) {
+			return Mono.error(e);
+		}
+		if (strategy.isKeyed() && !exchange.getAttributes().containsKey(GATEWAY_LOADBALANCER_HASH_KEY_ATTR)) {
+			return Mono.defer(() -> getKeyResolver(exchange).resolve(exchange))
+					.doOnNext(key -> exchange.getAttributes().put(GATEWAY_LOADBALANCER_HASH_KEY_ATTR, key))
+					.then(Mono.defer(() -> chooseInstance(serviceId, exchange)));
+		}
+		return chooseInstance(serviceId, exchange);
+	}
+
+	private Mono<LoadBalancedInstance> chooseInstance(String serviceId, ServerWebExchange exchange) {
+		ServiceInstances service = this.cache.getIfPresent(serviceId);
+		if (service != null) {
+			return Mono.justOrEmpty(choose(service, exchange));
+		}
+		return this.cache.get(serviceId).flatMap(fetched -> Mono.justOrEmpty(choose(fetched, exchange)));
+	}
+
+	private LoadBalancedInstance choose(ServiceInstances service, ServerWebExchange exchange) {
+		LoadBalancerStrategy strategy = getStrategy(exchange);
+		LoadBalancedInstance instance = strategy.choose(service, exchange);
+		Set<String> excluded = exchange.getAttribute(GATEWAY_LOADBALANCER_EXCLUDED_ATTR);
+		// settles for an excluded instance rather than failing the request
+		for (int i = 0; i < MAX_EXCLUDED_CHOICES && instance != null && excluded != null
+				&& excluded.contains(instance.getKey()); i++) {
+			instance = strategy.choose(service, exchange);
+		}
+		return instance;
+	}
+
+	/* for testing */ LoadBalancerStrategy getStrategy(ServerWebExchange exchange) {
+		Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+		return route == null ? this.defaultStrategy : getRouteSettings(route).strategy;
+	}
+
+	/* for testing */ KeyResolver getKeyResolver(ServerWebExchange exchange) {
+		Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+		return route == null ? this.defaultKeyResolver : getRouteSettings(route).keyResolver;
+	}
+
+	private RouteSettings getRouteSettings(Route route) {
+		RouteSettings cached = this.routeSettings.get(route.getId());
+		if (cached != null && cached.route == route) {
+			return cached;
+		}
+		RouteSettings settings = parseSettings(route);
+		this.routeSettings.put(route.getId(), settings);
+		return settings;
+	}
+
+	private RouteSettings parseSettings(Route route) {
+		Map<String, String> metadata = route.getMetadata();
+		LoadBalancerStrategy strategy = this.defaultStrategy;
+		String strategyName = metadata.get(LoadBalancerStrategy.STRATEGY_METADATA);
+		if (strategyName != null) {
+			try {
+				strategy = LoadBalancerStrategy.from(strategyName);
+			}
+			catch (IllegalArgumentException e) {
+				log.error("Invalid " + LoadBalancerStrategy.STRATEGY_METADATA + " metadata of route "
+						+ route.getId() + ", it uses " + this.defaultStrategy, e);
+			}
+		}
+		KeyResolver keyResolver = this.defaultKeyResolver;
+		String hashKey = metadata.get(HASH_KEY_METADATA);
+		if (hashKey != null) {
+			try {
+				keyResolver = createKeyResolver(hashKey);
+			}
+			catch (IllegalArgumentException e) {
+				log.error("Invalid " + HASH_KEY_METADATA + " metadata of route " + route.getId()
+						+ ", it uses the default hash key", e);
+			}
+		}
+		return new RouteSettings(route, strategy, keyResolver);
+	}
+
+	/**
+	 * Parses the metadata of the refreshed routes, and forgets the routes that are gone.
+	 */
+	@EventListener(RoutesRefreshedEvent.class)
+	/* for testing */ void handleRefresh(RoutesRefreshedEvent event) {
+		Set<String> ids = new HashSet<>();
+		for (Route route : event.getRoutes()) {
+			ids.add(route.getId());
+			getRouteSettings(route);
+		}
+		this.routeSettings.keySet().retainAll(ids);
+	}
+
+	private KeyResolver createKeyResolver(String hashKey) {
+		String trimmed = hashKey.trim();
+		if (trimmed.startsWith(HEADER_HASH_KEY_PREFIX)) {
+			return new HeaderKeyResolver(trimmed.substring(HEADER_HASH_KEY_PREFIX.length()).trim());
+		}
+		if (trimmed.startsWith(COOKIE_HASH_KEY_PREFIX)) {
+			return new CookieKeyResolver(trimmed.substring(COOKIE_HASH_KEY_PREFIX.length()).trim());
+		}
+		KeyResolver bean = this.keyResolverBeans.get(trimmed);
+		if (bean == null) {
+			throw new IllegalArgumentException("No KeyResolver named " + trimmed + ", expected "
+					+ HEADER_HASH_KEY_PREFIX + "<name>, " + COOKIE_HASH_KEY_PREFIX + "<name> or one of "
+					+ this.keyResolverBeans.keySet());
+		}
+		return bean;
+	}
+
+	private static class RouteSettings {
+		private final Route route;
+		private final LoadBalancerStrategy strategy;
+		private final KeyResolver keyResolver;
+
+		RouteSettings(Route route, LoadBalancerStrategy strategy, KeyResolver keyResolver) {
+			this.route = route;
+			this.strategy = strategy;
+			this.keyResolver = keyResolver;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.loadbalancer;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Consistent hash ring of the instances of a service. Each instance is placed at
+ * {@link #VIRTUAL_NODES} points of the ring, hashed from its {@code host:port}, and a key
+ * goes to the instance of the first point at or after its hash. An instance joining or
+ * leaving only moves the keys of its own points, about {@code 1/n} of them, and instances
+ * keep their points whatever their position in the registry.
+ *
+ * <p>Lookups are a binary search and allocate nothing, the ring is built once per array
+ * of instances.
+ *
+ * @author Spencer Gibb
+ */
+final class HashRing {
+
+	/**
+	 * Points of each instance, enough to spread the keys within a few percent
+	 */
+	static final int VIRTUAL_NODES = 160;
+
+	private final LoadBalancedInstance[] instances;
+	/**
+	 * Hashes of the points, sorted
+	 */
+	private final int[] points;
+	/**
+	 * Index in {@link #instances} of the instance of each point
+	 */
+	private final int[] owners;
+
+	HashRing(LoadBalancedInstance[] instances) {
+		this.instances = instances;
+		long[] ring = new long[instances.length * VIRTUAL_NODES];
+		for (int i = 0; i < instances.length; i++) {
+			String key = instances[i].getKey();
+			for (int node = 0; node < VIRTUAL_NODES; node++) {
+				// the hash in the upper half, sorting by it, the owner in the lower one
+				ring[i * VIRTUAL_NODES + node] = (long) hash(key + "#" + node) << 32 | i;
+			}
+		}
+		Arrays.sort(ring);
+		this.points = new int[ring.length];
+		this.owners = new int[ring.length];
+		for (int i = 0; i < ring.length; i++) {
+			this.points[i] = (int) (ring[i] >> 32);
+			this.owners[i] = (int) ring[i];
+		}
+	}
+
+	/**
+	 * @return whether the ring was built for the given instances
+	 */
+	boolean isFor(LoadBalancedInstance[] instances) {
+		return this.instances == instances;
+	}
+
+	/**
+	 * @param key the key of the request
+	 * @param excluded instances, as {@code host:port}, to skip if another one is left,
+	 * may be {@code null}
+	 * @return the instance of the key, {@code null} if the ring is empty
+	 */
+	LoadBalancedInstance get(String key, Set<String> excluded) {
+		if (this.points.length == 0) {
+			return null;
+		}
+		int index = Arrays.binarySearch(this.points, hash(key));
+		if (index < 0) {
+			index = -index - 1;
+		}
+		index %= this.points.length;
+		LoadBalancedInstance instance = this.instances[this.owners[index]];
+		if (excluded == null || excluded.isEmpty()) {
+			return instance;
+		}
+		// the next points of the ring, as if the excluded instances had left it
+		for (int i = 1; i < this.points.length && excluded.contains(instance.getKey()); i++) {
+			instance = this.instances[this.owners[(index + i) % this.points.length]];
+		}
+		return excluded.contains(instance.getKey()) ? this.instances[this.owners[index]] : instance;
+	}
+
+	/**
+	 * 64-bit FNV-1a of the characters, finished with the MurmurHash3 mix so that similar
+	 * keys land far apart.
+	 */
+	static int hash(CharSequence value) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return (int) (hash >>> 32);
+	}
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.springframework.cloud.gateway.filter.loadbalancer;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * A {@link ServiceInstance} along with what the gateway knows of it, kept as long as the
+ * instance is registered: the requests in flight, and a peak exponentially weighted
+ * moving average of the latencies of the instance. A latency above the average replaces
+ * it at once, so that an instance pausing is avoided right away, and lower latencies
+ * bring it back down over {@link #DECAY_TIME}. Instances of a {@link ServiceInstances}
+ * also keep the outcomes of their requests, for {@link OutlierDetection}.
+ *
+ * @author Spencer Gibb
+ */
+public class LoadBalancedInstance {
+
+	public static final long DECAY_TIME = TimeUnit.SECONDS.toNanos(10);
+
+	/**
+	 * Cost of an instance with requests in flight but no latency yet, higher than any
+	 * instance with a latency, so that a new instance gets one request at a time
+	 */
+	private static final double PENALTY = Long.MAX_VALUE >> 16;
+
+	/**
+	 * A request, in the upper half of {@link #window}
+	 */
+	private static final long REQUEST = 1L << 32;
+	private static final long FAILURES = REQUEST - 1;
+
+	private final ServiceInstance instance;
+	/**
+	 * Service the instance belongs to, {@code null} if it is not cached
+	 */
+	private final ServiceInstances service;
+	/**
+	 * {@code host:port} of the instance
+	 */
+	private final String key;
+	/**
+	 * {@code scheme://host:port} of the instance
+	 */
+	private final String baseUrl;
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	/**
+	 * Written under the instance lock
+	 */
+	private volatile double latency;
+	private volatile long latencyTime;
+
+	private final AtomicInteger consecutiveFailures = new AtomicInteger();
+	/**
+	 * Requests and failures of the current interval
+	 */
+	private final AtomicLong window = new AtomicLong();
+	private final AtomicLong windowStart = new AtomicLong();
+	/**
+	 * Written under the lock of the service
+	 */
+	private volatile boolean ejected;
+	private volatile long ejectedUntil;
+	private int ejections;
+
+	public LoadBalancedInstance(ServiceInstance instance) {
+		this(instance, null);
+	}
+
+	LoadBalancedInstance(ServiceInstance instance, ServiceInstances service) {
+		this.instance = instance;
+		this.service = service;
+		String host = instance.getHost();
+		if (host.indexOf(':') >= 0 && !host.startsWith("[")) {
+			host = "[" + host + "]";
+		}
+		this.key = instance.getHost() + ":" + instance.getPort();
+		this.baseUrl = (instance.isSecure() ? "https://" : "http://") + host + ":" + instance.getPort();
+		if (service != null) {
+			this.windowStart.set(service.nanoTime());
+		}
+	}
+
+	public ServiceInstance getInstance() {
+		return this.instance;
+	}
+
+	public String getKey() {
+		return this.key;
+	}
+
+	/**
+	 * @return requests routed to the instance that have not completed yet
+	 */
+	public int getInFlight() {
+		return this.inFlight.get();
+	}
+
+	/**
+	 * Called when a request is routed to the instance.
+	 */
+	public void onStart() {
+		this.inFlight.incrementAndGet();
+	}
+
+	/**
+	 * Called when a request routed to the instance completes.
+	 * @param latencyNanos the time until the response status and headers were received
+	 */
+	public void onComplete(long latencyNanos) {
+		this.inFlight.decrementAndGet();
+		observe(latencyNanos, System.nanoTime());
+	}
+
+	/**
+	 * Called when a request routed to the instance completes.
+	 * @param latencyNanos the time until the response status and headers were received
+	 * @param failed whether the request got an error or a server error status
+	 */
+	public void onComplete(long latencyNanos, boolean failed) {
+		onComplete(latencyNanos);
+		if (this.service != null) {
+			this.service.onOutcome(this, failed);
+		}
+	}
+
+	/* for testing */ synchronized void observe(long latencyNanos, long now) {
+		double weight = weight(now);
+		this.latency = latencyNanos > this.latency ? latencyNanos
+				: this.latency * weight + latencyNanos * (1 - weight);
+		this.latencyTime = now;
+	}
+
+	/**
+	 * @return the average latency in nanoseconds, 0 until a request completed
+	 */
+	public double getLatency() {
+		return getLatency(System.nanoTime());
+	}
+
+	/* for testing */ double getLatency(long now) {
+		return decayed(now);
+	}
+
+	/**
+	 * @return the expected latency of one more request, the average latency of the
+	 * instance times the requests in flight along with it
+	 */
+	public double getCost() {
+		return getCost(System.nanoTime());
+	}
+
+	/* for testing */ double getCost(long now) {
+		double latency = decayed(now);
+		int inFlight = getInFlight();
+		if (latency == 0 && inFlight > 0) {
+			return PENALTY + inFlight;
+		}
+		return latency * (inFlight + 1);
+	}
+
+	/**
+	 * The average decays towards 0 while no request completes, an idle instance is
+	 * expected to have recovered.
+	 */
+	private double decayed(long now) {
+		return this.latency * weight(now);
+	}
+
+	private double weight(long now) {
+		long elapsed = Math.max(0, now - this.latencyTime);
+		return Math.exp(-(double) elapsed / DECAY_TIME);
+	}
+
+	/**
+	 * @return whether the instance is ejected and not chosen
+	 */
+	public boolean isEjected() {
+		return this.ejected;
+	}
+
+	/**
+	 * Counts the outcome of a request.
+	 * @return whether the instance should be ejected
+	 */
+	boolean recordOutcome(boolean failed, long now, OutlierDetection outlierDetection) {
+		long start = this.windowStart.get();
+		if (now - start >= outlierDetection.getIntervalNanos() && this.windowStart.compareAndSet(start, now)) {
+			this.window.set(0);
+		}
+		long counts = this.window.addAndGet(failed ? REQUEST + 1 : REQUEST);
+		if (!failed) {
+			this.consecutiveFailures.set(0);
+			return false;
+		}
+		int consecutive = this.consecutiveFailures.incrementAndGet();
+		if (this.ejected) {
+			return false;
+		}
+		if (outlierDetection.getConsecutiveFailures() > 0 && consecutive >= outlierDetection.getConsecutiveFailures()) {
+			return true;
+		}
+		long requests = counts >>> 32;
+		long failures = counts & FAILURES;
+		return outlierDetection.getFailureRateThreshold() > 0 && requests >= outlierDetection.getMinimumRequests()
+				&& failures * 100 >= requests * outlierDetection.getFailureRateThreshold();
+	}
+
+	/**
+	 * Called under the lock of the service.
+	 */
+	void eject(long now, OutlierDetection outlierDetection) {
+		if (this.ejectedUntil != 0 && now - this.ejectedUntil > outlierDetection.getMaxEjectionNanos()) {
+			// healthy for long enough, starts over from the base ejection time
+			this.ejections = 0;
+		}
+		this.ejections++;
+		this.ejectedUntil = now + outlierDetection.getEjectionNanos(this.ejections);
+		this.ejected = true;
+		this.consecutiveFailures.set(0);
+		this.window.set(0);
+		this.windowStart.set(now);
+	}
+
+	/**
+	 * Called under the lock of the service.
+	 * @return whether the instance has been ejected and can be chosen again
+	 */
+	boolean tryReturn(long now) {
+		if (this.ejected && now - this.ejectedUntil >= 0) {
+			this.ejected = false;
+			return true;
+		}
+		return false;
+	}
+
+	long getEjectedUntil() {
+		return this.ejectedUntil;
+	}
+
+	/**
+	 * @param url a {@code lb://} url
+	 * @return the url with the scheme, the host and the port of the instance
+	 */
+	public URI reconstructUri(URI url) {
+		StringBuilder builder = new StringBuilder(this.baseUrl);
+		if (url.getRawPath() != null) {
+			builder.append(url.getRawPath());
+		}
+		if (url.getRawQuery() != null) {
+			builder.append('?').append(url.getRawQuery());
+		}
+		if (url.getRawFragment() != null) {
+			builder.append('#').append(url.getRawFragment());
+		}
+		return URI.create(builder.toString());
+	}
+
+	@Override
+	public String toString() {
+		return this.key;
+	}
+}
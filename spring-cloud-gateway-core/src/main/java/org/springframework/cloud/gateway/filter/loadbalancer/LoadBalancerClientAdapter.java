@@ -0,0 +1,64 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.springframework.cloud.gateway.filter.loadbalancer;
+
+import java.util.Set;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_EXCLUDED_ATTR;
+
+/**
+ * Adapts a {@link LoadBalancerClient}, such as Ribbon's, which keeps its own instances
+ * and statistics. The client is called on the thread of the request.
+ *
+ * @author Spencer Gibb
+ */
+public class LoadBalancerClientAdapter implements ReactiveLoadBalancer {
+
+	/**
+	 * Times the client is asked again when it chooses an excluded instance
+	 */
+	private static final int MAX_EXCLUDED_CHOICES = 3;
+
+	private final LoadBalancerClient loadBalancer;
+
+	public LoadBalancerClientAdapter(LoadBalancerClient loadBalancer) {
+		this.loadBalancer = loadBalancer;
+	}
+
+	@Override
+	public Mono<LoadBalancedInstance> choose(String serviceId, ServerWebExchange exchange) {
+		return Mono.fromSupplier(() -> {
+			ServiceInstance instance = this.loadBalancer.choose(serviceId);
+			Set<String> excluded = exchange.getAttribute(GATEWAY_LOADBALANCER_EXCLUDED_ATTR);
+			// settles for an excluded instance rather than failing the request
+			for (int i = 0; i < MAX_EXCLUDED_CHOICES && instance != null && excluded != null
+					&& excluded.contains(instance.getHost() + ":" + instance.getPort()); i++) {
+				ServiceInstance next = this.loadBalancer.choose(serviceId);
+				if (next == null) {
+					break;
+				}
+				instance = next;
+			}
+			return instance == null ? null : new LoadBalancedInstance(instance);
+		});
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.springframework.cloud.gateway.filter.loadbalancer;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_EXCLUDED_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_HASH_KEY_ATTR;
+
+/**
+ * How the {@link DiscoveryClientLoadBalancer} chooses among the instances of a service,
+ * by default or per route with the {@code loadbalancer.strategy} metadata. Choosing
+ * allocates nothing.
+ *
+ * @author Spencer Gibb
+ */
+public enum LoadBalancerStrategy {
+
+	/**
+	 * Each instance in turn.
+	 */
+	ROUND_ROBIN {
+		@Override
+		public LoadBalancedInstance choose(ServiceInstances service, ServerWebExchange exchange) {
+			LoadBalancedInstance[] instances = service.getInstances();
+			if (instances.length == 0) {
+				return null;
+			}
+			return instances[service.nextPosition() % instances.length];
+		}
+	},
+
+	/**
+	 * An instance at random.
+	 */
+	RANDOM {
+		@Override
+		public LoadBalancedInstance choose(ServiceInstances service, ServerWebExchange exchange) {
+			LoadBalancedInstance[] instances = service.getInstances();
+			if (instances.length == 0) {
+				return null;
+			}
+			return instances[ThreadLocalRandom.current().nextInt(instances.length)];
+		}
+	},
+
+	/**
+	 * The instance with the fewest requests in flight among two instances at random,
+	 * which avoids both the busiest instances and herding on the least busy one.
+	 */
+	POWER_OF_TWO_CHOICES {
+		@Override
+		public LoadBalancedInstance choose(ServiceInstances service, ServerWebExchange exchange) {
+			LoadBalancedInstance[] instances = service.getInstances();
+			if (instances.length < 2) {
+				return instances.length == 0 ? null : instances[0];
+			}
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			int first = random.nextInt(instances.length);
+			// a second instance, different from the first one
+			int second = (first + 1 + random.nextInt(instances.length - 1)) % instances.length;
+			LoadBalancedInstance a = instances[first];
+			LoadBalancedInstance b = instances[second];
+			return a.getInFlight() <= b.getInFlight() ? a : b;
+		}
+	},
+
+	/**
+	 * The instance with the fewest requests in flight, the first one after a position
+	 * shared by the requests of the service among equally busy ones.
+	 */
+	LEAST_OUTSTANDING {
+		@Override
+		public LoadBalancedInstance choose(ServiceInstances service, ServerWebExchange exchange) {
+			LoadBalancedInstance[] instances = service.getInstances();
+			if (instances.length == 0) {
+				return null;
+			}
+			int start = service.nextPosition();
+			LoadBalancedInstance least = null;
+			int leastInFlight = Integer.MAX_VALUE;
+			for (int i = 0; i < instances.length; i++) {
+				LoadBalancedInstance instance = instances[(start + i) % instances.length];
+				int inFlight = instance.getInFlight();
+				if (inFlight < leastInFlight) {
+					least = instance;
+					leastInFlight = inFlight;
+				}
+			}
+			return least;
+		}
+	},
+
+	/**
+	 * The instance with the lowest {@link LoadBalancedInstance#getCost() cost}, its peak
+	 * average latency times its requests in flight, among two instances at random.
+	 * Instances pausing, e.g. for garbage collection, get slow responses and pile up
+	 * requests, and are avoided until they recover.
+	 */
+	PEAK_EWMA {
+		@Override
+		public LoadBalancedInstance choose(ServiceInstances service, ServerWebExchange exchange) {
+			LoadBalancedInstance[] instances = service.getInstances();
+			if (instances.length < 2) {
+				return instances.length == 0 ? null : instances[0];
+			}
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			int first = random.nextInt(instances.length);
+			int second = (first + 1 + random.nextInt(instances.length - 1)) % instances.length;
+			LoadBalancedInstance a = instances[first];
+			LoadBalancedInstance b = instances[second];
+			return a.getCost() <= b.getCost() ? a : b;
+		}
+	},
+
+	/**
+	 * The instance of the hash key of the request on a consistent hash ring, so that the
+	 * requests of a key go to the same instance, and only the keys of an instance joining
+	 * or leaving move. Requests without a key are routed round robin.
+	 * @see ServerWebExchangeUtils#GATEWAY_LOADBALANCER_HASH_KEY_ATTR
+	 */
+	CONSISTENT_HASH {
+		@Override
+		public LoadBalancedInstance choose(ServiceInstances service, ServerWebExchange exchange) {
+			String key = exchange.getAttribute(GATEWAY_LOADBALANCER_HASH_KEY_ATTR);
+			if (key == null) {
+				return ROUND_ROBIN.choose(service, exchange);
+			}
+			return service.getRing().get(key, exchange.getAttribute(GATEWAY_LOADBALANCER_EXCLUDED_ATTR));
+		}
+
+		@Override
+		public boolean isKeyed() {
+			return true;
+		}
+	};
+
+	public static final String STRATEGY_METADATA = "loadbalancer.strategy";
+
+	/**
+	 * @param service the instances of the service
+	 * @param exchange the exchange to route
+	 * @return the chosen instance, {@code null} if the service has none
+	 */
+	public abstract LoadBalancedInstance choose(ServiceInstances service, ServerWebExchange exchange);
+
+	/**
+	 * @return whether the strategy needs the hash key of the request
+	 */
+	public boolean isKeyed() {
+		return false;
+	}
+
+	/**
+	 * @param strategy a strategy name, e.g. {@code round-robin} or {@code power-of-two-choices}
+	 */
+	public static LoadBalancerStrategy from(String strategy) {
+		return valueOf(strategy.trim().replace('-', '_').toUpperCase());
+	}
+}
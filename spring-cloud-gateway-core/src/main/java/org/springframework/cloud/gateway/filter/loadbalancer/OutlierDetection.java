@@ -0,0 +1,114 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.springframework.cloud.gateway.filter.loadbalancer;
+
+import java.time.Duration;
+
+import org.springframework.util.Assert;
+
+/**
+ * Settings of the passive health checks of the instances of a service, based on the
+ * outcome of the requests routed to them. An instance is ejected, no longer chosen, once
+ * {@code consecutiveFailures} requests in a row failed, or once at least
+ * {@code failureRateThreshold} percent of the requests of the current {@code interval}
+ * failed, provided there were {@code minimumRequests} of them. A request fails when it
+ * gets an error, e.g. a refused connection, or a {@code 5xx} status.
+ *
+ * <p>An instance is ejected for {@code baseEjectionTime}, doubled each time it is
+ * ejected again, up to {@code maxEjectionTime}. At most {@code maxEjectedPercent} of the
+ * instances of a service are ejected at once, but at least one, and never all of them.
+ *
+ * @author Spencer Gibb
+ */
+public class OutlierDetection {
+
+	private final int consecutiveFailures;
+	private final int failureRateThreshold;
+	private final int minimumRequests;
+	private final long intervalNanos;
+	private final long baseEjectionNanos;
+	private final long maxEjectionNanos;
+	private final int maxEjectedPercent;
+
+	/**
+	 * @param consecutiveFailures failures in a row that eject an instance, 0 for no limit
+	 * @param failureRateThreshold percent of failed requests that eject an instance, 0 for no limit
+	 * @param minimumRequests requests of an interval needed to eject an instance for its failure rate
+	 * @param interval length of the intervals the failure rate is computed over
+	 * @param baseEjectionTime time an instance is ejected for the first time
+	 * @param maxEjectionTime time an instance is ejected for at most
+	 * @param maxEjectedPercent percent of the instances of a service ejected at most
+	 */
+	public OutlierDetection(int consecutiveFailures, int failureRateThreshold, int minimumRequests,
+			Duration interval, Duration baseEjectionTime, Duration maxEjectionTime, int maxEjectedPercent) {
+		Assert.isTrue(consecutiveFailures >= 0, "consecutiveFailures must not be negative");
+		Assert.isTrue(failureRateThreshold >= 0 && failureRateThreshold <= 100,
+				"failureRateThreshold must be between 0 and 100");
+		Assert.isTrue(maxEjectedPercent >= 0 && maxEjectedPercent <= 100,
+				"maxEjectedPercent must be between 0 and 100");
+		this.consecutiveFailures = consecutiveFailures;
+		this.failureRateThreshold = failureRateThreshold;
+		this.minimumRequests = Math.max(1, minimumRequests);
+		this.intervalNanos = interval.toNanos();
+		this.baseEjectionNanos = baseEjectionTime.toNanos();
+		this.maxEjectionNanos = Math.max(this.baseEjectionNanos, maxEjectionTime.toNanos());
+		this.maxEjectedPercent = maxEjectedPercent;
+	}
+
+	public int getConsecutiveFailures() {
+		return this.consecutiveFailures;
+	}
+
+	public int getFailureRateThreshold() {
+		return this.failureRateThreshold;
+	}
+
+	public int getMinimumRequests() {
+		return this.minimumRequests;
+	}
+
+	public long getIntervalNanos() {
+		return this.intervalNanos;
+	}
+
+	public long getMaxEjectionNanos() {
+		return this.maxEjectionNanos;
+	}
+
+	/**
+	 * @param ejections times the instance has been ejected, including this one
+	 * @return how long the instance is ejected for
+	 */
+	public long getEjectionNanos(int ejections) {
+		long ejection = this.baseEjectionNanos;
+		for (int i = 1; i < ejections && ejection < this.maxEjectionNanos; i++) {
+			ejection <<= 1;
+		}
+		return Math.min(ejection, this.maxEjectionNanos);
+	}
+
+	/**
+	 * @param instances instances of the service
+	 * @return instances of the service that can be ejected at once
+	 */
+	public int getMaxEjected(int instances) {
+		if (instances < 2 || this.maxEjectedPercent == 0) {
+			return 0;
+		}
+		return Math.min(instances - 1, Math.max(1, instances * this.maxEjectedPercent / 100));
+	}
+}
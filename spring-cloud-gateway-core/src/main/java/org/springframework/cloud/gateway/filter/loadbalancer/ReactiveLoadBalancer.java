@@ -0,0 +1,35 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.springframework.cloud.gateway.filter.loadbalancer;
+
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Chooses the instance of a service to route a request to, without blocking.
+ *
+ * @author Spencer Gibb
+ */
+public interface ReactiveLoadBalancer {
+
+	/**
+	 * @param serviceId the service to route to
+	 * @param exchange the exchange to route
+	 * @return the chosen instance, empty if the service has none
+	 */
+	Mono<LoadBalancedInstance> choose(String serviceId, ServerWebExchange exchange);
+}
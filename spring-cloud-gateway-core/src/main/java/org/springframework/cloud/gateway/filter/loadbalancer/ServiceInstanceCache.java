@@ -0,0 +1,118 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.springframework.cloud.gateway.filter.loadbalancer;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Instances of the services known to a {@link DiscoveryClient}, fetched when a service is
+ * first asked for and refreshed in the background every {@code refreshInterval}. The
+ * discovery client may block, it is only called on the given scheduler.
+ *
+ * @author Spencer Gibb
+ */
+public class ServiceInstanceCache implements DisposableBean {
+
+	private static final Log log = LogFactory.getLog(ServiceInstanceCache.class);
+
+	private final DiscoveryClient discoveryClient;
+	private final OutlierDetection outlierDetection;
+	private final Scheduler scheduler;
+	private final ConcurrentMap<String, ServiceInstances> services = new ConcurrentHashMap<>();
+	private final Disposable refresher;
+
+	public ServiceInstanceCache(DiscoveryClient discoveryClient, Duration refreshInterval) {
+		this(discoveryClient, refreshInterval, null);
+	}
+
+	/**
+	 * @param outlierDetection how instances are ejected, {@code null} for never
+	 */
+	public ServiceInstanceCache(DiscoveryClient discoveryClient, Duration refreshInterval,
+			OutlierDetection outlierDetection) {
+		this(discoveryClient, refreshInterval, outlierDetection, Schedulers.elastic());
+	}
+
+	/* for testing */ ServiceInstanceCache(DiscoveryClient discoveryClient, Duration refreshInterval,
+			OutlierDetection outlierDetection, Scheduler scheduler) {
+		this.discoveryClient = discoveryClient;
+		this.outlierDetection = outlierDetection;
+		this.scheduler = scheduler;
+		long interval = refreshInterval.toNanos();
+		this.refresher = interval > 0
+				? scheduler.schedulePeriodically(this::refresh, interval, interval, TimeUnit.NANOSECONDS) : null;
+	}
+
+	/**
+	 * @return the instances of the service, fetched first if the service is not cached yet
+	 */
+	public Mono<ServiceInstances> get(String serviceId) {
+		ServiceInstances service = this.services.get(serviceId);
+		if (service != null) {
+			return service.asMono();
+		}
+		return Mono.fromCallable(() -> this.services.computeIfAbsent(serviceId, this::fetch))
+				.subscribeOn(this.scheduler);
+	}
+
+	/**
+	 * @return the instances of the service, {@code null} if the service is not cached yet
+	 */
+	public ServiceInstances getIfPresent(String serviceId) {
+		return this.services.get(serviceId);
+	}
+
+	private ServiceInstances fetch(String serviceId) {
+		ServiceInstances service = new ServiceInstances(serviceId, this.outlierDetection);
+		service.update(this.discoveryClient.getInstances(serviceId));
+		return service;
+	}
+
+	/**
+	 * Fetches the instances of the cached services again.
+	 */
+	public void refresh() {
+		for (ServiceInstances service : this.services.values()) {
+			try {
+				service.update(this.discoveryClient.getInstances(service.getServiceId()));
+			}
+			catch (Exception e) {
+				// keeps the instances last known
+				log.warn("Unable to refresh the instances of " + service.getServiceId(), e);
+			}
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (this.refresher != null) {
+			this.refresher.dispose();
+		}
+	}
+}
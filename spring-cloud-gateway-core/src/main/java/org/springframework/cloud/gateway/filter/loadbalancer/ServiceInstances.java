@@ -0,0 +1,207 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.springframework.cloud.gateway.filter.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import org.springframework.cloud.client.ServiceInstance;
+import reactor.core.publisher.Mono;
+
+/**
+ * Instances of a service, replaced as a whole when they are refreshed so that choosing
+ * one of them needs no lock. Instances still registered after a refresh keep what the
+ * gateway knows of them.
+ *
+ * <p>With an {@link OutlierDetection}, instances whose requests fail are ejected, and
+ * left out of {@link #getInstances()} until their ejection time is over. Only ejecting
+ * and returning instances takes the lock of the service.
+ *
+ * @author Spencer Gibb
+ */
+public class ServiceInstances {
+
+	private static final LoadBalancedInstance[] NO_INSTANCES = new LoadBalancedInstance[0];
+
+	private final String serviceId;
+	private final OutlierDetection outlierDetection;
+	private final LongSupplier nanoTime;
+	private final Mono<ServiceInstances> mono;
+	private final AtomicInteger position = new AtomicInteger();
+	private volatile LoadBalancedInstance[] instances = NO_INSTANCES;
+	/**
+	 * Instances that are not ejected
+	 */
+	private volatile LoadBalancedInstance[] available = NO_INSTANCES;
+	private volatile int ejected;
+	/**
+	 * When the next ejected instance can be chosen again
+	 */
+	private volatile long nextReturn;
+	/**
+	 * Ring of the available instances, built when first needed
+	 */
+	private volatile HashRing ring;
+
+	public ServiceInstances(String serviceId) {
+		this(serviceId, null);
+	}
+
+	/**
+	 * @param outlierDetection how instances are ejected, {@code null} for never
+	 */
+	public ServiceInstances(String serviceId, OutlierDetection outlierDetection) {
+		this(serviceId, outlierDetection, System::nanoTime);
+	}
+
+	/* for testing */ ServiceInstances(String serviceId, OutlierDetection outlierDetection, LongSupplier nanoTime) {
+		this.serviceId = serviceId;
+		this.outlierDetection = outlierDetection;
+		this.nanoTime = nanoTime;
+		this.mono = Mono.just(this);
+	}
+
+	public String getServiceId() {
+		return this.serviceId;
+	}
+
+	/**
+	 * @return the instances to choose from, not to be modified: the ones that are not
+	 * ejected
+	 */
+	public LoadBalancedInstance[] getInstances() {
+		if (this.ejected > 0 && this.nanoTime.getAsLong() - this.nextReturn >= 0) {
+			returnInstances();
+		}
+		return this.available;
+	}
+
+	/**
+	 * @return all instances registered, ejected ones included, not to be modified
+	 */
+	public LoadBalancedInstance[] getAllInstances() {
+		return this.instances;
+	}
+
+	/**
+	 * @return a position shared by the requests to the service, incremented on each call
+	 */
+	public int nextPosition() {
+		return this.position.getAndIncrement() & Integer.MAX_VALUE;
+	}
+
+	/**
+	 * @return the consistent hash ring of the instances to choose from
+	 */
+	HashRing getRing() {
+		LoadBalancedInstance[] instances = getInstances();
+		HashRing ring = this.ring;
+		if (ring == null || !ring.isFor(instances)) {
+			// concurrent requests may build the same ring, only the last one is kept
+			ring = new HashRing(instances);
+			this.ring = ring;
+		}
+		return ring;
+	}
+
+	long nanoTime() {
+		return this.nanoTime.getAsLong();
+	}
+
+	Mono<ServiceInstances> asMono() {
+		return this.mono;
+	}
+
+	/**
+	 * @param registered the instances now registered
+	 */
+	public void update(List<ServiceInstance> registered) {
+		LoadBalancedInstance[] current = this.instances;
+		Map<String, LoadBalancedInstance> known = new HashMap<>();
+		for (LoadBalancedInstance instance : current) {
+			known.put(instance.getKey(), instance);
+		}
+		LoadBalancedInstance[] updated = new LoadBalancedInstance[registered.size()];
+		for (int i = 0; i < updated.length; i++) {
+			ServiceInstance instance = registered.get(i);
+			LoadBalancedInstance existing = known.get(instance.getHost() + ":" + instance.getPort());
+			updated[i] = existing != null && existing.getInstance().isSecure() == instance.isSecure() ? existing
+					: new LoadBalancedInstance(instance, this);
+		}
+		synchronized (this) {
+			this.instances = updated;
+			updateAvailable();
+		}
+	}
+
+	void onOutcome(LoadBalancedInstance instance, boolean failed) {
+		if (this.outlierDetection == null) {
+			return;
+		}
+		long now = this.nanoTime.getAsLong();
+		if (instance.recordOutcome(failed, now, this.outlierDetection)) {
+			eject(instance, now);
+		}
+	}
+
+	private synchronized void eject(LoadBalancedInstance instance, long now) {
+		if (instance.isEjected() || this.ejected >= this.outlierDetection.getMaxEjected(this.instances.length)) {
+			return;
+		}
+		instance.eject(now, this.outlierDetection);
+		updateAvailable();
+	}
+
+	private synchronized void returnInstances() {
+		long now = this.nanoTime.getAsLong();
+		boolean returned = false;
+		for (LoadBalancedInstance instance : this.instances) {
+			returned |= instance.tryReturn(now);
+		}
+		if (returned) {
+			updateAvailable();
+		}
+	}
+
+	/**
+	 * Called under the lock of the service.
+	 */
+	private void updateAvailable() {
+		LoadBalancedInstance[] all = this.instances;
+		List<LoadBalancedInstance> available = new ArrayList<>(all.length);
+		long nextReturn = 0;
+		int ejected = 0;
+		for (LoadBalancedInstance instance : all) {
+			if (!instance.isEjected()) {
+				available.add(instance);
+				continue;
+			}
+			if (ejected == 0 || instance.getEjectedUntil() - nextReturn < 0) {
+				nextReturn = instance.getEjectedUntil();
+			}
+			ejected++;
+		}
+		this.nextReturn = nextReturn;
+		this.ejected = ejected;
+		// all instances ejected, e.g. after the others were deregistered
+		this.available = available.isEmpty() ? all : available.toArray(NO_INSTANCES);
+	}
+}
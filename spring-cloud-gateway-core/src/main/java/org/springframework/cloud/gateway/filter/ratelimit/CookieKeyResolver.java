@@ -0,0 +1,44 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.ratelimit;
+
+import org.springframework.http.HttpCookie;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Resolves the value of a request cookie, no key if the request has none.
+ *
+ * @author Spencer Gibb
+ */
+public class CookieKeyResolver implements KeyResolver {
+
+	private final String cookie;
+
+	public CookieKeyResolver(String cookie) {
+		Assert.hasText(cookie, "cookie must not be empty");
+		this.cookie = cookie;
+	}
+
+	@Override
+	public Mono<String> resolve(ServerWebExchange exchange) {
+		HttpCookie cookie = exchange.getRequest().getCookies().getFirst(this.cookie);
+		return cookie == null ? Mono.empty() : Mono.just(cookie.getValue());
+	}
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.ratelimit;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.tuple.Tuple;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter.REPLENISH_RATE_KEY;
+
+/**
+ * Rate limiter that keeps its buckets in memory, so limits apply per gateway instance.
+ * Takes the same arguments as {@link RedisRateLimiter}, with the same defaults.
+ *
+ * <p>The state of a token bucket is a single {@code long}, the time at which it was empty,
+ * updated with compare-and-set. This is GCRA already, so {@link RateLimitAlgorithm#GCRA}
+ * and {@link RateLimitAlgorithm#TOKEN_BUCKET} share it. A bucket that has refilled
+ * completely, or a sliding window that counts no requests anymore, holds no state worth
+ * keeping. Such buckets expire, they are swept every ten seconds when new keys arrive.
+ * Once more than {@code maxKeys} keys are tracked, they are swept right away and, if that
+ * is not enough, other buckets are evicted too, letting their keys start over with a full
+ * bucket. Eviction goes down to 90% of {@code maxKeys}, so that it runs once per batch of
+ * new keys rather than for each of them.
+ *
+ * @author Spencer Gibb
+ */
+public class LocalRateLimiter implements RateLimiter {
+
+	public static final int DEFAULT_MAX_KEYS = 100_000;
+
+	private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+	private final ConcurrentMap<String, Limit> buckets = new ConcurrentHashMap<>();
+	private final int maxKeys;
+	/**
+	 * Keys left once buckets had to be evicted
+	 */
+	private final int lowWaterMark;
+	private final LongSupplier nanoTime;
+	private final AtomicBoolean evicting = new AtomicBoolean();
+	private volatile long nextSweep;
+	private volatile int evictions;
+
+	public LocalRateLimiter() {
+		this(DEFAULT_MAX_KEYS);
+	}
+
+	public LocalRateLimiter(int maxKeys) {
+		this(maxKeys, System::nanoTime);
+	}
+
+	/* for testing */ LocalRateLimiter(int maxKeys, LongSupplier nanoTime) {
+		Assert.isTrue(maxKeys > 0, "maxKeys must be greater than 0");
+		this.maxKeys = maxKeys;
+		this.lowWaterMark = maxKeys - Math.max(1, maxKeys / 10);
+		this.nanoTime = nanoTime;
+		this.nextSweep = nanoTime.getAsLong() + SWEEP_INTERVAL_NANOS;
+	}
+
+	@Override
+	public Mono<Response> isAllowed(String id, Tuple args) {
+		int replenishRate = args.getInt(REPLENISH_RATE_KEY);
+		int burstCapacity = RedisRateLimiter.getBurstCapacity(args);
+		int requestedTokens = RedisRateLimiter.getRequestedTokens(args);
+		return Mono.just(tryAcquire(id, RateLimitAlgorithm.from(args), replenishRate, burstCapacity, requestedTokens));
+	}
+
+	/**
+	 * Takes tokens from the bucket of the given key, if it holds enough of them.
+	 * @param id key of the bucket
+	 * @param replenishRate tokens added to the bucket per second
+	 * @param burstCapacity tokens the bucket holds at most
+	 * @param requested tokens to take
+	 * @return whether the tokens were taken, and the tokens left
+	 */
+	public Response tryAcquire(String id, int replenishRate, int burstCapacity, int requested) {
+		return tryAcquire(id, RateLimitAlgorithm.TOKEN_BUCKET, replenishRate, burstCapacity, requested);
+	}
+
+	/**
+	 * Takes tokens from the bucket of the given key, if it holds enough of them.
+	 * @param id key of the bucket
+	 * @param algorithm how the bucket is kept
+	 * @param replenishRate tokens added to the bucket per second
+	 * @param burstCapacity tokens the bucket holds at most
+	 * @param requested tokens to take
+	 * @return whether the tokens were taken, and the tokens left
+	 */
+	public Response tryAcquire(String id, RateLimitAlgorithm algorithm, int replenishRate, int burstCapacity,
+			int requested) {
+		Assert.isTrue(replenishRate > 0, "replenishRate must be greater than 0");
+		long now = this.nanoTime.getAsLong();
+		return getBucket(id, algorithm, replenishRate, burstCapacity, now).tryAcquire(now, requested);
+	}
+
+	/**
+	 * Gives back tokens taken by {@link #tryAcquire}, e.g. for a request denied by
+	 * another limiter after all.
+	 * @param id key of the bucket
+	 * @param algorithm how the bucket is kept
+	 * @param replenishRate tokens added to the bucket per second
+	 * @param burstCapacity tokens the bucket holds at most
+	 * @param requested tokens to give back
+	 */
+	public void release(String id, RateLimitAlgorithm algorithm, int replenishRate, int burstCapacity,
+			int requested) {
+		Limit bucket = this.buckets.get(id);
+		if (bucket != null && bucket.hasSettings(algorithm == RateLimitAlgorithm.SLIDING_WINDOW, replenishRate,
+				burstCapacity)) {
+			bucket.release(requested);
+		}
+	}
+
+	/* for testing */ int size() {
+		return this.buckets.size();
+	}
+
+	/* for testing */ int evictions() {
+		return this.evictions;
+	}
+
+	private Limit getBucket(String id, RateLimitAlgorithm algorithm, int replenishRate, int burstCapacity,
+			long now) {
+		boolean slidingWindow = algorithm == RateLimitAlgorithm.SLIDING_WINDOW;
+		Limit bucket = this.buckets.get(id);
+		if (bucket != null && bucket.hasSettings(slidingWindow, replenishRate, burstCapacity)) {
+			return bucket;
+		}
+		Limit created = slidingWindow ? new SlidingWindow(replenishRate, burstCapacity, now)
+				: new Bucket(replenishRate, burstCapacity, now);
+		if (bucket != null) {
+			// settings of the key changed, start over
+			this.buckets.put(id, created);
+			return created;
+		}
+		bucket = this.buckets.putIfAbsent(id, created);
+		if (bucket != null) {
+			return bucket;
+		}
+		boolean overflow = this.buckets.size() > this.maxKeys;
+		if (overflow || now - this.nextSweep >= 0) {
+			evict(now, overflow);
+		}
+		return created;
+	}
+
+	private void evict(long now, boolean overflow) {
+		if (!this.evicting.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			this.evictions++;
+			this.nextSweep = now + SWEEP_INTERVAL_NANOS;
+			this.buckets.values().removeIf(bucket -> bucket.isFull(now));
+			if (!overflow) {
+				return;
+			}
+			Iterator<Limit> iterator = this.buckets.values().iterator();
+			while (this.buckets.size() > this.lowWaterMark && iterator.hasNext()) {
+				iterator.next();
+				iterator.remove();
+			}
+		}
+		finally {
+			this.evicting.set(false);
+		}
+	}
+
+	private interface Limit {
+
+		boolean hasSettings(boolean slidingWindow, int replenishRate, int burstCapacity);
+
+		/**
+		 * @return whether the limit is back to its initial state
+		 */
+		boolean isFull(long now);
+
+		Response tryAcquire(long now, int requested);
+
+		void release(int requested);
+	}
+
+	private static final class Bucket extends AtomicLong implements Limit {
+
+		private final int replenishRate;
+		private final int burstCapacity;
+		private final long nanosPerToken;
+		private final long capacityNanos;
+
+		Bucket(int replenishRate, int burstCapacity, long now) {
+			this.replenishRate = replenishRate;
+			this.burstCapacity = burstCapacity;
+			this.nanosPerToken = Math.max(1, NANOS_PER_SECOND / replenishRate);
+			this.capacityNanos = this.nanosPerToken * Math.max(0, burstCapacity);
+			// starts full
+			set(now - this.capacityNanos);
+		}
+
+		@Override
+		public boolean hasSettings(boolean slidingWindow, int replenishRate, int burstCapacity) {
+			return !slidingWindow && this.replenishRate == replenishRate && this.burstCapacity == burstCapacity;
+		}
+
+		@Override
+		public boolean isFull(long now) {
+			return now - get() >= this.capacityNanos;
+		}
+
+		@Override
+		public Response tryAcquire(long now, int requested) {
+			long cost = this.nanosPerToken * requested;
+			for (;;) {
+				long emptyAt = get();
+				// the bucket never holds more than its capacity
+				long start = now - emptyAt > this.capacityNanos ? now - this.capacityNanos : emptyAt;
+				long available = now - start;
+				if (available < cost) {
+					return new Response(false, Math.max(0, available) / this.nanosPerToken);
+				}
+				long next = start + cost;
+				if (compareAndSet(emptyAt, next)) {
+					return new Response(true, (now - next) / this.nanosPerToken);
+				}
+			}
+		}
+
+		@Override
+		public void release(int requested) {
+			// tryAcquire caps the tokens at the capacity
+			addAndGet(-this.nanosPerToken * requested);
+		}
+	}
+
+	/**
+	 * Counts of the current and the previous fixed window, guarded by the instance lock.
+	 */
+	private static final class SlidingWindow implements Limit {
+
+		private final int replenishRate;
+		private final int burstCapacity;
+		private final long windowNanos;
+
+		private long start;
+		private long current;
+		private long previous;
+
+		SlidingWindow(int replenishRate, int burstCapacity, long now) {
+			this.replenishRate = replenishRate;
+			this.burstCapacity = burstCapacity;
+			this.windowNanos = Math.max(1, NANOS_PER_SECOND * Math.max(0, burstCapacity) / replenishRate);
+			this.start = now;
+		}
+
+		@Override
+		public boolean hasSettings(boolean slidingWindow, int replenishRate, int burstCapacity) {
+			return slidingWindow && this.replenishRate == replenishRate && this.burstCapacity == burstCapacity;
+		}
+
+		@Override
+		public synchronized boolean isFull(long now) {
+			return now - this.start >= 2 * this.windowNanos;
+		}
+
+		@Override
+		public synchronized Response tryAcquire(long now, int requested) {
+			long elapsed = now - this.start;
+			if (elapsed >= this.windowNanos) {
+				this.previous = elapsed < 2 * this.windowNanos ? this.current : 0;
+				this.current = 0;
+				this.start = now - elapsed % this.windowNanos;
+				elapsed = now - this.start;
+			}
+			double weight = 1 - (double) elapsed / this.windowNanos;
+			double count = this.previous * weight + this.current;
+			if (count + requested > this.burstCapacity) {
+				return new Response(false, Math.max(0, (long) (this.burstCapacity - count)));
+			}
+			this.current += requested;
+			return new Response(true, Math.max(0, (long) (this.burstCapacity - count - requested)));
+		}
+
+		@Override
+		public synchronized void release(int requested) {
+			this.current = Math.max(0, this.current - requested);
+		}
+	}
+}
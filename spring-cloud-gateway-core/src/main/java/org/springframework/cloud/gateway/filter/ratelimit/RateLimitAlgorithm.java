@@ -0,0 +1,93 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.ratelimit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.tuple.Tuple;
+import org.springframework.tuple.TupleBuilder;
+
+/**
+ * Algorithms of the {@link RedisRateLimiter} and the {@link LocalRateLimiter}, selected
+ * per route with the {@code algorithm} argument. All of them admit {@code burstCapacity}
+ * requests at once and {@code replenishRate} requests per second on average.
+ *
+ * @author Spencer Gibb
+ */
+public enum RateLimitAlgorithm {
+
+	/**
+	 * Token bucket, keeping the tokens left and the time of the last refill.
+	 */
+	TOKEN_BUCKET,
+
+	/**
+	 * Generic cell rate algorithm, the token bucket kept as a single timestamp, the
+	 * theoretical arrival time of the next request. Cheapest in memory and in writes.
+	 */
+	GCRA,
+
+	/**
+	 * Sliding window counter, the requests of the current and of the previous window of
+	 * {@code burstCapacity / replenishRate} seconds, the latter weighted by how much of it
+	 * the sliding window still covers.
+	 */
+	SLIDING_WINDOW;
+
+	public static final String ALGORITHM_KEY = "algorithm";
+
+	/**
+	 * @param args arguments of the rate limiter
+	 * @return the algorithm of the {@code algorithm} argument, e.g. {@code gcra} or
+	 * {@code sliding-window}, {@link #TOKEN_BUCKET} if there is none
+	 */
+	public static RateLimitAlgorithm from(Tuple args) {
+		if (!args.hasFieldName(ALGORITHM_KEY)) {
+			return TOKEN_BUCKET;
+		}
+		Object algorithm = args.getValue(ALGORITHM_KEY);
+		if (algorithm instanceof RateLimitAlgorithm) {
+			return (RateLimitAlgorithm) algorithm;
+		}
+		String name = algorithm.toString().trim();
+		try {
+			return valueOf(name.replace('-', '_').toUpperCase());
+		}
+		catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unknown rate limit algorithm: " + name, e);
+		}
+	}
+
+	/**
+	 * Parses the {@code algorithm} argument once, when the route is loaded, so that a
+	 * misspelled algorithm fails the route rather than each of its requests.
+	 * @param args arguments of the rate limiter
+	 * @return the arguments with the algorithm, if any, as a {@link RateLimitAlgorithm}
+	 */
+	public static Tuple resolve(Tuple args) {
+		if (!args.hasFieldName(ALGORITHM_KEY) || args.getValue(ALGORITHM_KEY) instanceof RateLimitAlgorithm) {
+			return args;
+		}
+		RateLimitAlgorithm algorithm = from(args);
+		List<String> names = args.getFieldNames();
+		List<Object> values = new ArrayList<>(args.getValues());
+		values.set(names.indexOf(ALGORITHM_KEY), algorithm);
+		return TupleBuilder.tuple().ofNamesAndValues(names, values);
+	}
+}
@@ -5,13 +5,18 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.tuple.Tuple;
+import org.springframework.util.Assert;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.springframework.tuple.TupleBuilder.tuple;
 
@@ -24,26 +29,133 @@ import static org.springframework.tuple.TupleBuilder.tuple;
 public class RedisRateLimiter implements RateLimiter {
 	public static final String REPLENISH_RATE_KEY = "replenishRate";
 	public static final String BURST_CAPACITY_KEY = "burstCapacity";
+	public static final String REQUESTED_TOKENS_KEY = "requestedTokens";
+
+	/**
+	 * How the token buckets are stored in Redis.
+	 */
+	public enum Mode {
+		/**
+		 * Tokens and timestamp in two keys, refilled in steps of one second of gateway time.
+		 */
+		STRINGS,
+		/**
+		 * Tokens and timestamp in a single hash, refilled with the Redis server time in
+		 * microseconds. Writes one key instead of two per check.
+		 */
+		HASH
+	}
 
 	private Log log = LogFactory.getLog(getClass());
 
 	private final ReactiveRedisTemplate<String, String> redisTemplate;
 	private final RedisScript<List<Long>> script;
+	private final Mode mode;
+	/**
+	 * Scripts of the algorithms other than the token bucket
+	 */
+	private final Map<RateLimitAlgorithm, RedisScript<List<Long>>> algorithmScripts = new EnumMap<>(RateLimitAlgorithm.class);
+	/**
+	 * Checked before Redis, if set. It keeps the tokens of the requests Redis allows
+	 * only, so a key that used up its limit here made at least as many requests that
+	 * were allowed across all instances, and Redis need not be asked.
+	 */
+	private LocalRateLimiter localRateLimiter;
+	/**
+	 * Limits while Redis fails or the circuit is open, if set. Not consulted otherwise.
+	 */
+	private LocalRateLimiter fallbackRateLimiter;
+	/**
+	 * Coalesces concurrent calls of the script, if set
+	 */
+	private RedisRateLimiterBatcher batcher;
+	/**
+	 * Answers locally while Redis is down, if set
+	 */
+	private RedisRateLimiterCircuit circuit;
+	/**
+	 * How long to wait for Redis, if set
+	 */
+	private Duration timeout;
 
 	public RedisRateLimiter(ReactiveRedisTemplate<String, String> redisTemplate,
 			RedisScript<List<Long>> script) {
+		this(redisTemplate, script, Mode.STRINGS);
+	}
+
+	/**
+	 * @param script request_rate_limiter.lua for {@link Mode#STRINGS},
+	 * request_rate_limiter_hash.lua for {@link Mode#HASH}
+	 */
+	public RedisRateLimiter(ReactiveRedisTemplate<String, String> redisTemplate,
+			RedisScript<List<Long>> script, Mode mode) {
 		this.redisTemplate = redisTemplate;
 		this.script = script;
+		this.mode = mode;
+	}
+
+	public void setLocalRateLimiter(LocalRateLimiter localRateLimiter) {
+		this.localRateLimiter = localRateLimiter;
+	}
+
+	public void setFallbackRateLimiter(LocalRateLimiter fallbackRateLimiter) {
+		this.fallbackRateLimiter = fallbackRateLimiter;
+	}
+
+	public void setBatcher(RedisRateLimiterBatcher batcher) {
+		this.batcher = batcher;
+	}
+
+	public void setCircuit(RedisRateLimiterCircuit circuit) {
+		this.circuit = circuit;
+	}
+
+	public void setTimeout(Duration timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * @param algorithm an algorithm other than {@link RateLimitAlgorithm#TOKEN_BUCKET}
+	 * @param script the script taking the key of the user and the replenish rate, burst
+	 * capacity and requested tokens, e.g. request_rate_limiter_gcra.lua
+	 */
+	public void setScript(RateLimitAlgorithm algorithm, RedisScript<List<Long>> script) {
+		Assert.isTrue(algorithm != RateLimitAlgorithm.TOKEN_BUCKET, "The token bucket script is set by the constructor");
+		this.algorithmScripts.put(algorithm, script);
 	}
 
 	public static Tuple args(int replenishRate, int burstCapacity) {
 		return tuple().of(REPLENISH_RATE_KEY, replenishRate, BURST_CAPACITY_KEY, burstCapacity);
 	}
 
+	public static Tuple args(int replenishRate, int burstCapacity, int requestedTokens) {
+		return tuple().of(REPLENISH_RATE_KEY, replenishRate, BURST_CAPACITY_KEY, burstCapacity,
+				REQUESTED_TOKENS_KEY, requestedTokens);
+	}
+
+	/**
+	 * @param args arguments of a rate limiter
+	 * @return tokens the bucket holds at most, the replenish rate when the arguments
+	 * leave it out
+	 */
+	public static int getBurstCapacity(Tuple args) {
+		return args.hasFieldName(BURST_CAPACITY_KEY) ? args.getInt(BURST_CAPACITY_KEY)
+				: args.getInt(REPLENISH_RATE_KEY);
+	}
+
+	/**
+	 * @param args arguments of a rate limiter
+	 * @return tokens a request takes, {@code 1} when the arguments leave it out
+	 */
+	public static int getRequestedTokens(Tuple args) {
+		return args.hasFieldName(REQUESTED_TOKENS_KEY) ? args.getInt(REQUESTED_TOKENS_KEY) : 1;
+	}
+
 	/**
-	 * This uses a basic token bucket algorithm and relies on the fact that Redis scripts
-	 * execute atomically. No other operations can run between fetching the count and
-	 * writing the new count.
+	 * This uses a basic token bucket algorithm, unless the {@code algorithm} argument
+	 * selects another {@link RateLimitAlgorithm}, and relies on the fact that Redis
+	 * scripts execute atomically. No other operations can run between fetching the count
+	 * and writing the new count.
 	 * @param id
 	 * @param args
 	 * @return
@@ -55,29 +167,82 @@ public class RedisRateLimiter implements RateLimiter {
 		int replenishRate = args.getInt(REPLENISH_RATE_KEY);
 
 		// How much bursting do you want to allow?
-		int burstCapacity;
-		if (args.hasFieldName(BURST_CAPACITY_KEY)) {
-			burstCapacity = args.getInt(BURST_CAPACITY_KEY);
-		} else {
-			burstCapacity = 0;
+		int burstCapacity = getBurstCapacity(args);
+
+		// How many tokens does a request cost?
+		int requestedTokens = getRequestedTokens(args);
+
+		RateLimitAlgorithm algorithm = RateLimitAlgorithm.from(args);
+
+		Response local = null;
+		if (this.localRateLimiter != null && burstCapacity > 0) {
+			local = this.localRateLimiter.tryAcquire(id, algorithm, replenishRate, burstCapacity, requestedTokens);
+			if (!local.isAllowed()) {
+				return Mono.just(local);
+			}
+		}
+		// the pre-check already took the tokens of the request
+		Response checked = local;
+
+		if (this.circuit != null && this.circuit.isOpen()) {
+			// Redis is down, don't wait for it to fail again
+			return Mono.just(fallback(id, algorithm, replenishRate, burstCapacity, requestedTokens, checked));
 		}
 
 		try {
-			// Make a unique key per user.
-			String prefix = "request_rate_limiter." + id;
+			List<String> keys;
+			List<String> scriptArgs;
+			RedisScript<List<Long>> algorithmScript = null;
+			if (algorithm != RateLimitAlgorithm.TOKEN_BUCKET) {
+				algorithmScript = this.algorithmScripts.get(algorithm);
+				Assert.state(algorithmScript != null, "No script for " + algorithm);
+				// A single key per user and algorithm, the script reads the time from Redis.
+				keys = Collections.singletonList("request_rate_limiter." + algorithm.name().toLowerCase()
+						+ ".{" + id + "}");
+				scriptArgs = Arrays.asList(replenishRate + "", burstCapacity + "", requestedTokens + "");
+			}
+			else if (this.mode == Mode.HASH) {
+				// A single hash per user, the script reads the time from Redis.
+				keys = Collections.singletonList("request_rate_limiter.{" + id + "}");
+				scriptArgs = Arrays.asList(replenishRate + "", burstCapacity + "", requestedTokens + "");
+			}
+			else {
+				// Make a unique key per user.
+				String prefix = "request_rate_limiter." + id;
 
-			// You need two Redis keys for Token Bucket.
-			List<String> keys = Arrays.asList(prefix + ".tokens", prefix + ".timestamp");
+				// You need two Redis keys for Token Bucket.
+				keys = Arrays.asList(prefix + ".tokens", prefix + ".timestamp");
 
-			// The arguments to the LUA script. time() returns unixtime in seconds.
-			List<String> scriptArgs = Arrays.asList(replenishRate + "", burstCapacity + "",
-					Instant.now().getEpochSecond() + "", "1");
+				// The arguments to the LUA script. time() returns unixtime in seconds.
+				scriptArgs = Arrays.asList(replenishRate + "", burstCapacity + "",
+						Instant.now().getEpochSecond() + "", requestedTokens + "");
+			}
 			// allowed, tokens_left = redis.eval(SCRIPT, keys, args)
-			Flux<List<Long>> flux = this.redisTemplate.execute(this.script, keys, scriptArgs);
+			Flux<List<Long>> flux;
+			if (algorithmScript != null) {
+				// the batch scripts implement the token bucket only
+				flux = this.redisTemplate.execute(algorithmScript, keys, scriptArgs);
+			}
+			else if (this.batcher != null) {
+				flux = this.batcher.execute(keys, scriptArgs).flux();
+			}
+			else {
+				flux = this.redisTemplate.execute(this.script, keys, scriptArgs);
+			}
 					// .log("redisratelimiter", Level.FINER);
+			if (this.timeout != null) {
+				flux = flux.timeout(this.timeout);
+			}
+			if (this.circuit != null) {
+				flux = flux.doOnError(this.circuit::onFailure).doOnComplete(this.circuit::onSuccess);
+			}
 			return flux
                     // Throwable => Flux.just(Arrays.asList(1L, -1L)) 。
-                    .onErrorResume(throwable -> Flux.just(Arrays.asList(1L, -1L)))
+                    .onErrorResume(throwable -> Flux.defer(() -> {
+						Response fallback = fallback(id, algorithm, replenishRate, burstCapacity, requestedTokens,
+								checked);
+						return Flux.just(Arrays.asList(fallback.isAllowed() ? 1L : 0L, fallback.getTokensRemaining()));
+					}))
                     // Flux<List<Long>> => Mono<List<Long>>
 					.reduce(new ArrayList<Long>(), (longs, l) -> {
 						longs.addAll(l);
@@ -89,6 +254,11 @@ public class RedisRateLimiter implements RateLimiter {
 						Long tokensLeft = results.get(1);
 
 						Response response = new Response(allowed, tokensLeft);
+						if (!allowed && checked != null) {
+							// the local bucket counts allowed requests only
+							this.localRateLimiter.release(id, algorithm, replenishRate, burstCapacity,
+									requestedTokens);
+						}
 
 						if (log.isDebugEnabled()) {
 							log.debug("response: " + response);
@@ -104,7 +274,24 @@ public class RedisRateLimiter implements RateLimiter {
 			 * failure rate is 0.01%.
 			 */
 			log.error("Error determining if user allowed from redis", e);
+			if (this.circuit != null) {
+				this.circuit.onFailure(e);
+			}
+		}
+		return Mono.just(fallback(id, algorithm, replenishRate, burstCapacity, requestedTokens, checked));
+	}
+
+	/**
+	 * @return the answer while Redis cannot be asked
+	 */
+	private Response fallback(String id, RateLimitAlgorithm algorithm, int replenishRate, int burstCapacity,
+			int requestedTokens, Response checked) {
+		if (checked != null) {
+			return checked;
+		}
+		if (this.fallbackRateLimiter != null && burstCapacity > 0) {
+			return this.fallbackRateLimiter.tryAcquire(id, algorithm, replenishRate, burstCapacity, requestedTokens);
 		}
-		return Mono.just(new Response(true, -1));
+		return new Response(true, -1);
 	}
 }
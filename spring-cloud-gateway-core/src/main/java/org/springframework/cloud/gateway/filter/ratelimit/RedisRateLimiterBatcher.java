@@ -0,0 +1,168 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.ratelimit;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Coalesces the rate limiter script calls issued within a short window, or until a
+ * batch is full, into a single invocation of a batch script, and hands each caller its
+ * own part of the result.
+ *
+ * <p>The batch script receives the keys and the arguments of all calls concatenated, and
+ * returns their results concatenated, each call having a fixed number of keys, arguments
+ * and results. As a single script touches all keys of a batch, batching is not suitable
+ * for Redis Cluster.
+ *
+ * @author Spencer Gibb
+ */
+public class RedisRateLimiterBatcher {
+
+	private static final Log log = LogFactory.getLog(RedisRateLimiterBatcher.class);
+
+	private final ReactiveRedisTemplate<String, String> redisTemplate;
+	private final RedisScript<List<Long>> batchScript;
+	private final int resultsPerCall;
+	private final int maxBatchSize;
+	private final long windowNanos;
+	private final Scheduler scheduler;
+
+	private final Queue<Call> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+	public RedisRateLimiterBatcher(ReactiveRedisTemplate<String, String> redisTemplate,
+			RedisScript<List<Long>> batchScript, int resultsPerCall, int maxBatchSize, Duration window) {
+		this(redisTemplate, batchScript, resultsPerCall, maxBatchSize, window, Schedulers.parallel());
+	}
+
+	/* for testing */ RedisRateLimiterBatcher(ReactiveRedisTemplate<String, String> redisTemplate,
+			RedisScript<List<Long>> batchScript, int resultsPerCall, int maxBatchSize, Duration window,
+			Scheduler scheduler) {
+		Assert.isTrue(resultsPerCall > 0, "resultsPerCall must be greater than 0");
+		Assert.isTrue(maxBatchSize > 0, "maxBatchSize must be greater than 0");
+		this.redisTemplate = redisTemplate;
+		this.batchScript = batchScript;
+		this.resultsPerCall = resultsPerCall;
+		this.maxBatchSize = maxBatchSize;
+		this.windowNanos = window.toNanos();
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Queues a call of the script, executed with the next batch.
+	 * @param keys keys of the call
+	 * @param args arguments of the call
+	 * @return the results of the call
+	 */
+	public Mono<List<Long>> execute(List<String> keys, List<String> args) {
+		return Mono.create(sink -> {
+			this.queue.offer(new Call(keys, args, sink));
+			if (this.queued.incrementAndGet() >= this.maxBatchSize) {
+				flush();
+			}
+			else {
+				scheduleFlush();
+			}
+		});
+	}
+
+	private void scheduleFlush() {
+		if (this.flushScheduled.compareAndSet(false, true)) {
+			this.scheduler.schedule(() -> {
+				this.flushScheduled.set(false);
+				flush();
+			}, this.windowNanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/* for testing */ void flush() {
+		List<Call> batch = new ArrayList<>(Math.min(this.queued.get(), this.maxBatchSize));
+		Call call;
+		while (batch.size() < this.maxBatchSize && (call = this.queue.poll()) != null) {
+			this.queued.decrementAndGet();
+			batch.add(call);
+		}
+		if (!this.queue.isEmpty()) {
+			scheduleFlush();
+		}
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		List<String> keys = new ArrayList<>();
+		List<String> args = new ArrayList<>();
+		for (Call queuedCall : batch) {
+			keys.addAll(queuedCall.keys);
+			args.addAll(queuedCall.args);
+		}
+		Flux<List<Long>> results = this.redisTemplate.execute(this.batchScript, keys, args);
+		results.reduce(new ArrayList<Long>(), (longs, l) -> {
+					longs.addAll(l);
+					return longs;
+				})
+				.subscribe(longs -> complete(batch, longs), error -> {
+					if (log.isDebugEnabled()) {
+						log.debug("Batch of " + batch.size() + " rate limiter calls failed", error);
+					}
+					batch.forEach(failed -> failed.sink.error(error));
+				});
+	}
+
+	private void complete(List<Call> batch, List<Long> results) {
+		if (results.size() != batch.size() * this.resultsPerCall) {
+			IllegalStateException error = new IllegalStateException("Expected " + batch.size() * this.resultsPerCall
+					+ " results for a batch of " + batch.size() + " calls, got " + results.size());
+			batch.forEach(failed -> failed.sink.error(error));
+			return;
+		}
+		for (int i = 0; i < batch.size(); i++) {
+			batch.get(i).sink.success(results.subList(i * this.resultsPerCall, (i + 1) * this.resultsPerCall));
+		}
+	}
+
+	private static class Call {
+		private final List<String> keys;
+		private final List<String> args;
+		private final MonoSink<List<Long>> sink;
+
+		Call(List<String> keys, List<String> args, MonoSink<List<Long>> sink) {
+			this.keys = keys;
+			this.args = args;
+			this.sink = sink;
+		}
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.ratelimit;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Tracks the health of Redis for the {@link RedisRateLimiter}. After
+ * {@code failureThreshold} consecutive failed calls the circuit opens: requests are
+ * answered by the local limiter right away instead of each waiting for Redis to fail,
+ * while a probe checks Redis in the background every {@code probeInterval}. The first
+ * successful probe closes the circuit again.
+ *
+ * @author Spencer Gibb
+ */
+public class RedisRateLimiterCircuit implements DisposableBean {
+
+	private static final Log log = LogFactory.getLog(RedisRateLimiterCircuit.class);
+
+	public enum State {
+		/**
+		 * Redis is called
+		 */
+		CLOSED,
+		/**
+		 * Redis is considered down, only probes call it
+		 */
+		OPEN
+	}
+
+	private final Supplier<Mono<?>> probe;
+	private final int failureThreshold;
+	private final Duration probeInterval;
+	private final Scheduler scheduler;
+
+	private volatile State state = State.CLOSED;
+	private final AtomicInteger consecutiveFailures = new AtomicInteger();
+	private final AtomicLong trips = new AtomicLong();
+	private final AtomicBoolean probing = new AtomicBoolean();
+	private volatile long openedAt;
+	private volatile Disposable probes;
+
+	/**
+	 * @param probe a cheap call of Redis, completing if Redis is available
+	 */
+	public RedisRateLimiterCircuit(Supplier<Mono<?>> probe, int failureThreshold, Duration probeInterval) {
+		this(probe, failureThreshold, probeInterval, Schedulers.parallel());
+	}
+
+	/* for testing */ RedisRateLimiterCircuit(Supplier<Mono<?>> probe, int failureThreshold, Duration probeInterval,
+			Scheduler scheduler) {
+		Assert.isTrue(failureThreshold > 0, "failureThreshold must be greater than 0");
+		Assert.isTrue(!probeInterval.isNegative() && !probeInterval.isZero(), "probeInterval must be positive");
+		this.probe = probe;
+		this.failureThreshold = failureThreshold;
+		this.probeInterval = probeInterval;
+		this.scheduler = scheduler;
+	}
+
+	public State getState() {
+		return this.state;
+	}
+
+	public boolean isOpen() {
+		return this.state == State.OPEN;
+	}
+
+	public void onSuccess() {
+		if (this.consecutiveFailures.get() != 0) {
+			this.consecutiveFailures.set(0);
+		}
+	}
+
+	public void onFailure(Throwable error) {
+		if (this.consecutiveFailures.incrementAndGet() >= this.failureThreshold) {
+			open(error);
+		}
+	}
+
+	private synchronized void open(Throwable error) {
+		if (this.state == State.OPEN) {
+			return;
+		}
+		this.state = State.OPEN;
+		this.openedAt = System.currentTimeMillis();
+		this.trips.incrementAndGet();
+		log.warn("Redis rate limiter circuit opened after " + this.consecutiveFailures.get()
+				+ " consecutive failures, using the local rate limiter until Redis is available again", error);
+		long interval = this.probeInterval.toNanos();
+		this.probes = this.scheduler.schedulePeriodically(this::probe, interval, interval, TimeUnit.NANOSECONDS);
+	}
+
+	private void probe() {
+		// a slow probe is not overlapped by the next one
+		if (!this.probing.compareAndSet(false, true)) {
+			return;
+		}
+		Mono<?> call;
+		try {
+			call = this.probe.get();
+		}
+		catch (RuntimeException e) {
+			this.probing.set(false);
+			return;
+		}
+		call.timeout(this.probeInterval)
+				.doFinally(signal -> this.probing.set(false))
+				.subscribe(null, error -> {
+					if (log.isDebugEnabled()) {
+						log.debug("Redis rate limiter probe failed", error);
+					}
+				}, this::close);
+	}
+
+	private synchronized void close() {
+		if (this.state == State.CLOSED) {
+			return;
+		}
+		this.consecutiveFailures.set(0);
+		this.state = State.CLOSED;
+		disposeProbes();
+		log.info("Redis rate limiter circuit closed, Redis is available again");
+	}
+
+	private void disposeProbes() {
+		Disposable probes = this.probes;
+		if (probes != null) {
+			probes.dispose();
+			this.probes = null;
+		}
+	}
+
+	/**
+	 * @return state of the circuit, for monitoring
+	 */
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		State state = this.state;
+		metrics.put("state", state);
+		metrics.put("consecutiveFailures", this.consecutiveFailures.get());
+		metrics.put("trips", this.trips.get());
+		if (state == State.OPEN) {
+			metrics.put("openedAt", this.openedAt);
+		}
+		return metrics;
+	}
+
+	@Override
+	public synchronized void destroy() {
+		disposeProbes();
+	}
+}
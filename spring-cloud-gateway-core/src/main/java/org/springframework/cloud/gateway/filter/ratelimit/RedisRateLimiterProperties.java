@@ -0,0 +1,194 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @author Spencer Gibb
+ */
+@ConfigurationProperties("spring.cloud.gateway.redis-rate-limiter")
+public class RedisRateLimiterProperties {
+
+	/**
+	 * How token buckets are stored in Redis.
+	 */
+	private RedisRateLimiter.Mode mode = RedisRateLimiter.Mode.STRINGS;
+
+	/**
+	 * Coalescing of concurrent calls to Redis.
+	 */
+	private Batch batch = new Batch();
+
+	/**
+	 * Time in milliseconds to wait for Redis before allowing a request, 0 to wait for
+	 * the client to give up.
+	 */
+	private long timeout = 0;
+
+	/**
+	 * Local fallback while Redis is down.
+	 */
+	private Circuit circuit = new Circuit();
+
+	public RedisRateLimiter.Mode getMode() {
+		return mode;
+	}
+
+	public void setMode(RedisRateLimiter.Mode mode) {
+		this.mode = mode;
+	}
+
+	public Batch getBatch() {
+		return batch;
+	}
+
+	public void setBatch(Batch batch) {
+		this.batch = batch;
+	}
+
+	public long getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	public Circuit getCircuit() {
+		return circuit;
+	}
+
+	public void setCircuit(Circuit circuit) {
+		this.circuit = circuit;
+	}
+
+	@Override
+	public String toString() {
+		return "RedisRateLimiterProperties{" +
+				"mode=" + mode +
+				", batch=" + batch +
+				", timeout=" + timeout +
+				", circuit=" + circuit +
+				'}';
+	}
+
+	public static class Batch {
+
+		/**
+		 * Whether concurrent calls are sent to Redis in batches. Adds up to window
+		 * milliseconds of latency to each call. Not suitable for Redis Cluster.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Maximum number of calls in a batch, a full batch is sent right away.
+		 */
+		private int maxSize = 64;
+
+		/**
+		 * Time in milliseconds calls wait for a batch to fill up.
+		 */
+		private long window = 1;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getMaxSize() {
+			return maxSize;
+		}
+
+		public void setMaxSize(int maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		public long getWindow() {
+			return window;
+		}
+
+		public void setWindow(long window) {
+			this.window = window;
+		}
+
+		@Override
+		public String toString() {
+			return "Batch{" +
+					"enabled=" + enabled +
+					", maxSize=" + maxSize +
+					", window=" + window +
+					'}';
+		}
+	}
+
+	public static class Circuit {
+
+		/**
+		 * Whether requests are limited locally, without calling Redis, after consecutive
+		 * failures, until a background probe finds Redis available again.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Consecutive failed calls to Redis that open the circuit.
+		 */
+		private int failureThreshold = 5;
+
+		/**
+		 * Time in milliseconds between two probes of Redis while the circuit is open.
+		 */
+		private long probeInterval = 1000;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getFailureThreshold() {
+			return failureThreshold;
+		}
+
+		public void setFailureThreshold(int failureThreshold) {
+			this.failureThreshold = failureThreshold;
+		}
+
+		public long getProbeInterval() {
+			return probeInterval;
+		}
+
+		public void setProbeInterval(long probeInterval) {
+			this.probeInterval = probeInterval;
+		}
+
+		@Override
+		public String toString() {
+			return "Circuit{" +
+					"enabled=" + enabled +
+					", failureThreshold=" + failureThreshold +
+					", probeInterval=" + probeInterval +
+					'}';
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.retry;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import reactor.core.publisher.Flux;
+
+/**
+ * Request whose body can be read again, by copying it while it is first read. Bodies
+ * larger than {@code maxBodySize} bytes are not copied past that size, and cannot be
+ * read again.
+ *
+ * @author Spencer Gibb
+ */
+public class ReplayableBodyRequest extends ServerHttpRequestDecorator {
+
+	private static final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+	private final int maxBodySize;
+
+	private volatile boolean read;
+	private volatile boolean complete;
+	private volatile boolean overflow;
+	private final List<byte[]> chunks = new ArrayList<>();
+	private int size;
+
+	public ReplayableBodyRequest(ServerHttpRequest delegate, int maxBodySize) {
+		super(delegate);
+		this.maxBodySize = maxBodySize;
+	}
+
+	/**
+	 * @return whether the body has not been read yet, or has been copied completely
+	 */
+	public boolean isReplayable() {
+		return !this.read || (this.complete && !this.overflow);
+	}
+
+	@Override
+	public Flux<DataBuffer> getBody() {
+		return Flux.defer(() -> {
+			if (!this.read) {
+				this.read = true;
+				return super.getBody()
+						.doOnNext(this::copy)
+						.doOnComplete(() -> this.complete = true);
+			}
+			if (!isReplayable()) {
+				return Flux.error(new IllegalStateException("The request body can only be read once, as it is larger than "
+						+ this.maxBodySize + " bytes or has not been read completely"));
+			}
+			return Flux.fromIterable(this.chunks).map(bufferFactory::wrap);
+		});
+	}
+
+	private void copy(DataBuffer buffer) {
+		if (this.overflow) {
+			return;
+		}
+		int readable = buffer.readableByteCount();
+		if (this.size + readable > this.maxBodySize) {
+			this.overflow = true;
+			this.chunks.clear();
+			return;
+		}
+		// the position of the buffer is left as it is
+		ByteBuffer byteBuffer = buffer.asByteBuffer();
+		byte[] chunk = new byte[readable];
+		byteBuffer.get(chunk);
+		this.chunks.add(chunk);
+		this.size += readable;
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.retry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.util.Assert;
+
+/**
+ * Caps the retries of a route to a share of its requests, so retries cannot multiply the
+ * load of a struggling route. Each request deposits {@code percent / 100} of a retry,
+ * each retry withdraws a whole one. The balance is capped at {@code maxRetries}, and
+ * starts full so that routes with little traffic can retry too.
+ *
+ * @author Spencer Gibb
+ */
+public class RetryBudget {
+
+	/**
+	 * A retry is worth 10000 units, so 0.01% of a retry can be deposited
+	 */
+	private static final long RETRY = 10_000;
+
+	private final long deposit;
+	private final long max;
+	private final AtomicLong balance;
+
+	/**
+	 * @param percent retries allowed per 100 requests
+	 * @param maxRetries retries that can be saved up
+	 */
+	public RetryBudget(double percent, int maxRetries) {
+		Assert.isTrue(percent >= 0, "percent must not be negative");
+		Assert.isTrue(maxRetries >= 0, "maxRetries must not be negative");
+		this.deposit = Math.round(percent * RETRY / 100);
+		this.max = maxRetries * RETRY;
+		this.balance = new AtomicLong(this.max);
+	}
+
+	/**
+	 * Called for each request that may be retried.
+	 */
+	public void deposit() {
+		for (;;) {
+			long current = this.balance.get();
+			if (current >= this.max) {
+				return;
+			}
+			if (this.balance.compareAndSet(current, Math.min(this.max, current + this.deposit))) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return whether a retry is within the budget, and has been taken from it
+	 */
+	public boolean tryWithdraw() {
+		for (;;) {
+			long current = this.balance.get();
+			if (current < RETRY) {
+				return false;
+			}
+			if (this.balance.compareAndSet(current, current - RETRY)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * @return the whole retries left
+	 */
+	public long getRetriesLeft() {
+		return this.balance.get() / RETRY;
+	}
+}
@@ -24,7 +24,9 @@ import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+import org.springframework.cloud.gateway.route.RefreshRoutesEvent;
 import org.springframework.cloud.gateway.route.Route;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 import org.springframework.web.server.ServerWebExchange;
@@ -32,7 +34,11 @@ import org.springframework.web.server.WebHandler;
 import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
@@ -52,6 +58,10 @@ public class FilteringWebHandler implements WebHandler {
      * 全局过滤器
      */
 	private final List<GatewayFilter> globalFilters;
+	/**
+	 * Global and route filters merged and sorted per route, keyed by route id.
+	 */
+	private final ConcurrentMap<String, CombinedFilters> combinedFiltersForRoute = new ConcurrentHashMap<>();
 
 	public FilteringWebHandler(List<GlobalFilter> globalFilters) {
 		this.globalFilters = loadFilters(globalFilters);
@@ -69,43 +79,90 @@ public class FilteringWebHandler implements WebHandler {
 				}).collect(Collectors.toList());
 	}
 
-    /* TODO: relocate @EventListener(RefreshRoutesEvent.class)
-    void handleRefresh() {
-        this.combinedFiltersForRoute.clear();
-    }*/
+	@EventListener(RefreshRoutesEvent.class)
+	/* for testing */ void handleRefresh() {
+		this.combinedFiltersForRoute.clear();
+	}
 
 	@Override
 	public Mono<Void> handle(ServerWebExchange exchange) {
 	    // 获得 Route
 		Route route = exchange.getRequiredAttribute(GATEWAY_ROUTE_ATTR);
+
+		// 获得 合并并排序后的 GatewayFilter 链，每个 Route 只创建一次
+		return getCombined(route).chain.filter(exchange);
+	}
+
+	/* for testing */ List<GatewayFilter> getCombinedFilters(Route route) {
+		return getCombined(route).filters;
+	}
+
+	private CombinedFilters getCombined(Route route) {
+		CombinedFilters cached = this.combinedFiltersForRoute.get(route.getId());
+		// routes are rebuilt on refresh, so only reuse filters computed for this instance
+		if (cached == null || cached.route != route) {
+			cached = new CombinedFilters(route, combineFilters(route));
+			this.combinedFiltersForRoute.put(route.getId(), cached);
+		}
+		return cached;
+	}
+
+	private GatewayFilter[] combineFilters(Route route) {
 		// 获得 GatewayFilter
 		List<GatewayFilter> gatewayFilters = route.getFilters();
 		List<GatewayFilter> combined = new ArrayList<>(this.globalFilters);
 		combined.addAll(gatewayFilters);
 
 		// 排序
-		//TODO: needed or cached?
 		AnnotationAwareOrderComparator.sort(combined);
-		logger.debug("Sorted gatewayFilterFactories: "+ combined);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Sorted gatewayFilterFactories: " + combined);
+		}
+		return combined.toArray(new GatewayFilter[combined.size()]);
+	}
+
+	private static class CombinedFilters {
 
-		// 创建 DefaultGatewayFilterChain
-		return new DefaultGatewayFilterChain(combined).filter(exchange);
+		private final Route route;
+		private final List<GatewayFilter> filters;
+		private final GatewayFilterChain chain;
+
+		CombinedFilters(Route route, GatewayFilter[] filters) {
+			this.route = route;
+			this.filters = Collections.unmodifiableList(Arrays.asList(filters));
+			this.chain = DefaultGatewayFilterChain.create(filters);
+		}
 	}
 
+	/**
+	 * Immutable step of a filter chain: the filter at {@code index} and the step after it.
+	 * All steps of a chain are created up front, so invoking the chain allocates nothing
+	 * and a filter may subscribe to the rest of the chain more than once.
+	 */
 	private static class DefaultGatewayFilterChain implements GatewayFilterChain {
 
-		private int index;
-		private final List<GatewayFilter> filters;
+		private final GatewayFilter[] filters;
+		private final int index;
+		private final DefaultGatewayFilterChain next;
 
-		public DefaultGatewayFilterChain(List<GatewayFilter> filters) {
+		private DefaultGatewayFilterChain(GatewayFilter[] filters, int index, DefaultGatewayFilterChain next) {
 			this.filters = filters;
+			this.index = index;
+			this.next = next;
+		}
+
+		static DefaultGatewayFilterChain create(GatewayFilter[] filters) {
+			DefaultGatewayFilterChain chain = new DefaultGatewayFilterChain(filters, filters.length, null);
+			for (int i = filters.length - 1; i >= 0; i--) {
+				chain = new DefaultGatewayFilterChain(filters, i, chain);
+			}
+			return chain;
 		}
 
 		@Override
 		public Mono<Void> filter(ServerWebExchange exchange) {
-			if (this.index < filters.size()) {
-				GatewayFilter filter = filters.get(this.index++);
-				return filter.filter(exchange, this);
+			if (this.index < this.filters.length) {
+				return this.filters[this.index].filter(exchange, this.next);
 			} else {
 				return Mono.empty(); // complete
 			}
@@ -17,7 +17,9 @@
 
 package org.springframework.cloud.gateway.handler;
 
+import org.springframework.cloud.gateway.route.CachingRouteLocator;
 import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteIndex;
 import org.springframework.cloud.gateway.route.RouteLocator;
 import org.springframework.web.reactive.handler.AbstractHandlerMapping;
 import org.springframework.web.server.ServerWebExchange;
@@ -77,12 +79,21 @@ public class RoutePredicateHandlerMapping extends AbstractHandlerMapping {
 	}
 
 	protected Mono<Route> lookupRoute(ServerWebExchange exchange) {
-		return this.routeLocator.getRoutes()
-				.filter(route -> route.getPredicate().test(exchange))
-				// .defaultIfEmpty() put a static Route not found
-				// or .switchIfEmpty()
-				// .switchIfEmpty(Mono.<Route>empty().log("noroute"))
-				.next()
+		Mono<Route> found;
+		if (this.routeLocator instanceof CachingRouteLocator) {
+			// only evaluate the routes the index could not rule out
+			RouteIndex routeIndex = ((CachingRouteLocator) this.routeLocator).getRouteIndex();
+			found = Mono.fromCallable(() -> routeIndex.lookup(exchange));
+		}
+		else {
+			found = this.routeLocator.getRoutes()
+					.filter(route -> route.getPredicate().test(exchange))
+					// .defaultIfEmpty() put a static Route not found
+					// or .switchIfEmpty()
+					// .switchIfEmpty(Mono.<Route>empty().log("noroute"))
+					.next();
+		}
+		return found
 				//TODO: error handling
 				.map(route -> {
 					if (logger.isDebugEnabled()) {
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.handler.predicate;
+
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Logical AND of route predicates, evaluated in order. Unlike {@link Predicate#and(Predicate)}
+ * the delegates stay visible, so a route table can be indexed by them.
+ *
+ * @author Spencer Gibb
+ */
+public class AndRoutePredicate implements Predicate<ServerWebExchange> {
+
+	private final Predicate<ServerWebExchange>[] delegates;
+
+	@SuppressWarnings("unchecked")
+	public AndRoutePredicate(List<Predicate<ServerWebExchange>> delegates) {
+		Assert.notEmpty(delegates, "delegates must not be empty");
+		this.delegates = delegates.toArray(new Predicate[delegates.size()]);
+	}
+
+	public List<Predicate<ServerWebExchange>> getDelegates() {
+		return Collections.unmodifiableList(Arrays.asList(this.delegates));
+	}
+
+	@Override
+	public boolean test(ServerWebExchange exchange) {
+		for (Predicate<ServerWebExchange> delegate : this.delegates) {
+			if (!delegate.test(exchange)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "And" + Arrays.toString(this.delegates);
+	}
+}
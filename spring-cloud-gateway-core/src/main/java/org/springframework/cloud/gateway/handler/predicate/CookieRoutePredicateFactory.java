@@ -17,6 +17,7 @@
 
 package org.springframework.cloud.gateway.handler.predicate;
 
+import org.springframework.cloud.gateway.handler.support.RegexpMatcher;
 import org.springframework.http.HttpCookie;
 import org.springframework.tuple.Tuple;
 import org.springframework.web.server.ServerWebExchange;
@@ -41,13 +42,16 @@ public class CookieRoutePredicateFactory implements RoutePredicateFactory {
 	@Override
 	public Predicate<ServerWebExchange> apply(Tuple args) {
 		String name = args.getString(NAME_KEY);
-		String regexp = args.getString(REGEXP_KEY);
+		RegexpMatcher regexp = RegexpMatcher.compile(args.getString(REGEXP_KEY));
 
 		return exchange -> {
 			List<HttpCookie> cookies = exchange.getRequest().getCookies().get(name);
+			if (cookies == null) {
+				return false;
+			}
 			for (HttpCookie cookie : cookies) {
 			    // 正则匹配
-				if (cookie.getValue().matches(regexp)) {
+				if (regexp.test(cookie.getValue())) {
 					return true;
 				}
 			}
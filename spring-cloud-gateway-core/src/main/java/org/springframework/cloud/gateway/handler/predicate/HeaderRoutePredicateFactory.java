@@ -17,6 +17,7 @@
 
 package org.springframework.cloud.gateway.handler.predicate;
 
+import org.springframework.cloud.gateway.handler.support.RegexpMatcher;
 import org.springframework.tuple.Tuple;
 import org.springframework.web.server.ServerWebExchange;
 
@@ -40,17 +41,9 @@ public class HeaderRoutePredicateFactory implements RoutePredicateFactory {
 	@Override
 	public Predicate<ServerWebExchange> apply(Tuple args) {
 		String header = args.getString(HEADER_KEY);
-		String regexp = args.getString(REGEXP_KEY);
-
-		return exchange -> {
-			List<String> values = exchange.getRequest().getHeaders().get(header);
-			for (String value : values) {
-                // 正则匹配
-				if (value.matches(regexp)) {
-					return true;
-				}
-			}
-			return false;
-		};
+		RegexpMatcher regexp = RegexpMatcher.compile(args.getString(REGEXP_KEY));
+
+		// 正则匹配
+		return exchange -> regexp.matchesAny(exchange.getRequest().getHeaders().get(header));
 	}
 }
@@ -17,6 +17,7 @@
 
 package org.springframework.cloud.gateway.handler.predicate;
 
+import org.springframework.cloud.gateway.handler.support.HostPattern;
 import org.springframework.tuple.Tuple;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.util.PathMatcher;
@@ -45,11 +46,74 @@ public class HostRoutePredicateFactory implements RoutePredicateFactory {
 	@Override
 	public Predicate<ServerWebExchange> apply(Tuple args) {
 		String pattern = args.getString(PATTERN_KEY);
+		return new HostPredicate(pattern, this.pathMatcher);
+	}
+
+	/**
+	 * Host predicate that exposes its pattern, so that a route table can be indexed by
+	 * the literal labels hosts end with. Patterns made of literal labels, {@code *} and a
+	 * leading {@code **} are compiled once, other ones are matched by the
+	 * {@link PathMatcher}.
+	 */
+	public static class HostPredicate implements Predicate<ServerWebExchange> {
+
+		private final String pattern;
+		private final PathMatcher pathMatcher;
+		/**
+		 * {@code null} if the path matcher matches the hosts
+		 */
+		private final HostPattern compiled;
+
+		public HostPredicate(String pattern, PathMatcher pathMatcher) {
+			this.pattern = pattern;
+			this.pathMatcher = pathMatcher;
+			this.compiled = pathMatcher instanceof AntPathMatcher ? HostPattern.compile(pattern) : null;
+		}
 
-		return exchange -> {
+		public String getPattern() {
+			return this.pattern;
+		}
+
+		/**
+		 * @return the host this predicate matches, if it only matches a single host
+		 * literally, otherwise {@code null}
+		 */
+		public String getExactHost() {
+			if (!(this.pathMatcher instanceof AntPathMatcher)
+					|| this.pattern.indexOf('*') != -1 || this.pattern.indexOf('?') != -1
+					|| this.pattern.indexOf('{') != -1) {
+				return null;
+			}
+			return this.pattern;
+		}
+
+		/**
+		 * @return the labels matching hosts end with, last label first, e.g.
+		 * {@code [org, example]} for {@code **.example.org}, empty if unknown
+		 */
+		public List<String> getLiteralSuffix() {
+			if (!(this.pathMatcher instanceof AntPathMatcher)) {
+				return Collections.emptyList();
+			}
+			return HostPattern.literalSuffix(this.pattern);
+		}
+
+		@Override
+		public boolean test(ServerWebExchange exchange) {
 			String host = exchange.getRequest().getHeaders().getFirst("Host");
+			if (host == null) {
+				return false;
+			}
 			// 匹配
-			return this.pathMatcher.match(pattern, host);
-		};
+			if (this.compiled != null && HostPattern.isWellFormed(host)) {
+				return this.compiled.matches(host);
+			}
+			return this.pathMatcher.match(this.pattern, host);
+		}
+
+		@Override
+		public String toString() {
+			return "Host: " + this.pattern;
+		}
 	}
 }
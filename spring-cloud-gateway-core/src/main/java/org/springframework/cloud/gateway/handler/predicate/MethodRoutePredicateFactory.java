@@ -40,10 +40,38 @@ public class MethodRoutePredicateFactory implements RoutePredicateFactory {
 	@Override
 	public Predicate<ServerWebExchange> apply(Tuple args) {
 		String method = args.getString(METHOD_KEY);
-		return exchange -> {
+		return new MethodPredicate(method);
+	}
+
+	/**
+	 * Method predicate that exposes its method, so that a route table can be indexed by
+	 * HTTP method.
+	 */
+	public static class MethodPredicate implements Predicate<ServerWebExchange> {
+
+		private final String method;
+
+		public MethodPredicate(String method) {
+			this.method = method;
+		}
+
+		/**
+		 * @return the resolved method, or {@code null} if it is not a standard HTTP method
+		 */
+		public HttpMethod getMethod() {
+			return HttpMethod.resolve(this.method);
+		}
+
+		@Override
+		public boolean test(ServerWebExchange exchange) {
 			HttpMethod requestMethod = exchange.getRequest().getMethod();
 			// 正则匹配
-			return requestMethod.matches(method);
-		};
+			return requestMethod.matches(this.method);
+		}
+
+		@Override
+		public String toString() {
+			return "Method: " + this.method;
+		}
 	}
 }
@@ -30,7 +30,7 @@ import java.util.function.Predicate;
 
 import static org.springframework.cloud.gateway.handler.support.RoutePredicateFactoryUtils.traceMatch;
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.URI_TEMPLATE_VARIABLES_ATTRIBUTE;
-import static org.springframework.http.server.PathContainer.parsePath;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.getPathContainer;
 
 /**
  * @author Spencer Gibb
@@ -53,25 +53,77 @@ public class PathRoutePredicateFactory implements RoutePredicateFactory {
 	    // 解析 Path ，创建对应的 PathPattern
 		String unparsedPattern = args.getString(PATTERN_KEY);
 		PathPattern pattern;
+		boolean caseSensitive;
 		synchronized (this.pathPatternParser) {
 			pattern = this.pathPatternParser.parse(unparsedPattern);
+			caseSensitive = this.pathPatternParser.isCaseSensitive();
 		}
 
-		return exchange -> {
-			PathContainer path = parsePath(exchange.getRequest().getURI().getPath());
+		return new PathPredicate(pattern, caseSensitive);
+	}
+
+	/**
+	 * Path predicate that exposes its {@link PathPattern}, so that a route table can be
+	 * indexed by the literal prefix of the pattern. The path of the request is parsed once
+	 * for all the predicates of the exchange, and matched once.
+	 */
+	public static class PathPredicate implements Predicate<ServerWebExchange> {
+
+		private final PathPattern pattern;
+		private final boolean caseSensitive;
+		private final boolean hasVariables;
+		/**
+		 * Result of the matches of a pattern without variables, the same for all of them
+		 */
+		private volatile PathMatchInfo noVariables;
+
+		public PathPredicate(PathPattern pattern, boolean caseSensitive) {
+			this.pattern = pattern;
+			this.caseSensitive = caseSensitive;
+			// {name}, {name:regex} and {*name} capture, other patterns extract nothing
+			this.hasVariables = pattern.getPatternString().indexOf('{') != -1;
+		}
+
+		public PathPattern getPattern() {
+			return this.pattern;
+		}
+
+		public boolean isCaseSensitive() {
+			return this.caseSensitive;
+		}
+
+		@Override
+		public boolean test(ServerWebExchange exchange) {
+			PathContainer path = getPathContainer(exchange);
 
-			// 匹配
-			boolean match = pattern.matches(path);
-			traceMatch("Pattern", pattern.getPatternString(), path, match);
+			// 匹配，并解析 路径参数，例如 path=/foo/123 <=> /foo/{segment}
+			PathMatchInfo uriTemplateVariables;
+			if (this.hasVariables) {
+				uriTemplateVariables = this.pattern.matchAndExtract(path);
+			}
+			else {
+				uriTemplateVariables = this.pattern.matches(path) ? getNoVariables(path) : null;
+			}
+			boolean match = uriTemplateVariables != null;
+			traceMatch("Pattern", this.pattern.getPatternString(), path, match);
 			if (match) {
-			    // 解析 路径参数，例如 path=/foo/123 <=> /foo/{segment}
-				PathMatchInfo uriTemplateVariables = pattern.matchAndExtract(path);
 				exchange.getAttributes().put(URI_TEMPLATE_VARIABLES_ATTRIBUTE, uriTemplateVariables);
-				return true;
 			}
-			else {
-				return false;
+			return match;
+		}
+
+		private PathMatchInfo getNoVariables(PathContainer matchingPath) {
+			PathMatchInfo noVariables = this.noVariables;
+			if (noVariables == null) {
+				noVariables = this.pattern.matchAndExtract(matchingPath);
+				this.noVariables = noVariables;
 			}
-		};
+			return noVariables;
+		}
+
+		@Override
+		public String toString() {
+			return "Path: " + this.pattern.getPatternString();
+		}
 	}
 }
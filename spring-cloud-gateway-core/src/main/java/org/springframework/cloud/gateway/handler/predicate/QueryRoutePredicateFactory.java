@@ -17,6 +17,7 @@
 
 package org.springframework.cloud.gateway.handler.predicate;
 
+import org.springframework.cloud.gateway.handler.support.RegexpMatcher;
 import org.springframework.tuple.Tuple;
 import org.springframework.web.server.ServerWebExchange;
 
@@ -46,23 +47,16 @@ public class QueryRoutePredicateFactory implements RoutePredicateFactory {
 	public Predicate<ServerWebExchange> apply(Tuple args) {
 		validateMin(1, args);
 		String param = args.getString(PARAM_KEY);
+		String regexp = args.hasFieldName(REGEXP_KEY) ? args.getString(REGEXP_KEY) : null;
 
-		return exchange -> {
-		    // 包含 参数
-			if (!args.hasFieldName(REGEXP_KEY)) {
-				// check existence of header
-				return exchange.getRequest().getQueryParams().containsKey(param);
-			}
+		// 包含 参数
+		if (regexp == null) {
+			// check existence of the param
+			return exchange -> exchange.getRequest().getQueryParams().containsKey(param);
+		}
 
-			// 正则匹配 参数
-			String regexp = args.getString(REGEXP_KEY);
-			List<String> values = exchange.getRequest().getQueryParams().get(param);
-			for (String value : values) {
-				if (value.matches(regexp)) {
-					return true;
-				}
-			}
-			return false;
-		};
+		// 正则匹配 参数
+		RegexpMatcher matcher = RegexpMatcher.compile(regexp);
+		return exchange -> matcher.matchesAny(exchange.getRequest().getQueryParams().get(param));
 	}
 }
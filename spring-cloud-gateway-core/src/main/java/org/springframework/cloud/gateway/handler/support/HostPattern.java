@@ -0,0 +1,146 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.handler.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Host pattern compiled into its labels, last label first, matching well-formed hosts as
+ * {@code new AntPathMatcher(".")} would, without tokenizing them. Supports literal
+ * labels, {@code *} for a single label, and a leading {@code **} for any number of
+ * labels, e.g. {@code **.example.org} or {@code *.eu.example.org}.
+ *
+ * @author Spencer Gibb
+ */
+public final class HostPattern {
+
+	private static final String ANY_LABEL = "*";
+	private static final String ANY_LABELS = "**";
+
+	private final String pattern;
+	/**
+	 * Labels of the pattern after the leading {@code **}, last label first
+	 */
+	private final String[] labels;
+	private final boolean[] anyLabel;
+	private final boolean anyPrefix;
+
+	private HostPattern(String pattern, String[] labels, boolean anyPrefix) {
+		this.pattern = pattern;
+		this.labels = labels;
+		this.anyLabel = new boolean[labels.length];
+		for (int i = 0; i < labels.length; i++) {
+			this.anyLabel[i] = ANY_LABEL.equals(labels[i]);
+		}
+		this.anyPrefix = anyPrefix;
+	}
+
+	/**
+	 * @param pattern a host pattern, e.g. {@code **.example.org}
+	 * @return the compiled pattern, {@code null} if the pattern uses other wildcards,
+	 * such as {@code ?}, {@code tenant*} or {@code {tenant}}
+	 */
+	public static HostPattern compile(String pattern) {
+		if (pattern.isEmpty() || pattern.startsWith(".") || pattern.endsWith(".") || pattern.contains("..")) {
+			return null;
+		}
+		String[] split = pattern.split("\\.");
+		boolean anyPrefix = ANY_LABELS.equals(split[0]);
+		int first = anyPrefix ? 1 : 0;
+		String[] labels = new String[split.length - first];
+		for (int i = first; i < split.length; i++) {
+			String label = split[i];
+			if (!ANY_LABEL.equals(label) && !isLiteral(label)) {
+				return null;
+			}
+			labels[split.length - 1 - i] = label;
+		}
+		return new HostPattern(pattern, labels, anyPrefix);
+	}
+
+	/**
+	 * @param pattern a host pattern
+	 * @return the labels of the pattern that can only match literally, from the last one
+	 * up to the first wildcard, e.g. {@code [org, example]} for {@code **.example.org}
+	 */
+	public static List<String> literalSuffix(String pattern) {
+		List<String> suffix = new ArrayList<>();
+		String[] labels = pattern.split("\\.");
+		for (int i = labels.length - 1; i >= 0; i--) {
+			if (labels[i].isEmpty()) {
+				continue;
+			}
+			if (!isLiteral(labels[i])) {
+				break;
+			}
+			suffix.add(labels[i]);
+		}
+		return suffix.isEmpty() ? Collections.emptyList() : suffix;
+	}
+
+	/**
+	 * @param host a host
+	 * @return whether the host has no empty label, such as a trailing dot, so that
+	 * {@link #matches(String)} applies to it
+	 */
+	public static boolean isWellFormed(String host) {
+		return host != null && !host.isEmpty() && host.charAt(0) != '.' && host.charAt(host.length() - 1) != '.'
+				&& host.indexOf("..") == -1;
+	}
+
+	/**
+	 * @param host a {@link #isWellFormed(String) well-formed} host
+	 * @return whether the host matches the pattern
+	 */
+	public boolean matches(String host) {
+		int end = host.length();
+		for (int i = 0; i < this.labels.length; i++) {
+			if (end < 0) {
+				return false;
+			}
+			int start = host.lastIndexOf('.', end - 1) + 1;
+			if (!this.anyLabel[i] && (end - start != this.labels[i].length()
+					|| !host.startsWith(this.labels[i], start))) {
+				return false;
+			}
+			// before the dot of the label, -1 once all labels are matched
+			end = start - 1;
+		}
+		return this.anyPrefix || end < 0;
+	}
+
+	private static boolean isLiteral(String label) {
+		for (int i = 0; i < label.length(); i++) {
+			switch (label.charAt(i)) {
+				case '*':
+				case '?':
+				case '{':
+				case '}':
+					return false;
+			}
+		}
+		return !label.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return this.pattern;
+	}
+}
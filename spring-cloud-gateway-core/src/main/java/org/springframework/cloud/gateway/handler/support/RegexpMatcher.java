@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.handler.support;
+
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Matches values against a regular expression compiled once, as
+ * {@link String#matches(String)} would. Expressions that are a literal, or a literal
+ * followed by {@code .*}, are matched without the regex engine.
+ *
+ * @author Spencer Gibb
+ */
+public final class RegexpMatcher implements Predicate<String> {
+
+	private static final String METACHARACTERS = "\\^$.|?*+()[]{}";
+
+	private final String regexp;
+	private final Pattern pattern;
+	/**
+	 * The literal values start with, or are equal to, {@code null} if the regex engine is
+	 * needed
+	 */
+	private final String literal;
+	private final boolean prefix;
+
+	private RegexpMatcher(String regexp) {
+		this.regexp = regexp;
+		String literal = null;
+		boolean prefix = false;
+		if (isLiteral(regexp, regexp.length())) {
+			literal = regexp;
+		}
+		else if (regexp.endsWith(".*") && isLiteral(regexp, regexp.length() - 2)) {
+			literal = regexp.substring(0, regexp.length() - 2);
+			prefix = true;
+		}
+		this.literal = literal;
+		this.prefix = prefix;
+		this.pattern = literal == null ? Pattern.compile(regexp) : null;
+	}
+
+	/**
+	 * @param regexp the regular expression values have to match entirely
+	 * @throws java.util.regex.PatternSyntaxException if the expression is invalid
+	 */
+	public static RegexpMatcher compile(String regexp) {
+		return new RegexpMatcher(regexp);
+	}
+
+	/**
+	 * @param value the value to match, may be {@code null}
+	 * @return whether the value matches, {@code false} for {@code null}
+	 */
+	@Override
+	public boolean test(String value) {
+		if (value == null) {
+			return false;
+		}
+		if (this.literal == null) {
+			return this.pattern.matcher(value).matches();
+		}
+		if (!this.prefix) {
+			return this.literal.equals(value);
+		}
+		// . matches anything but line terminators
+		return value.startsWith(this.literal) && !hasLineTerminator(value, this.literal.length());
+	}
+
+	/**
+	 * @param values the values to match, may be {@code null}
+	 * @return whether any of the values matches, {@code false} for {@code null}
+	 */
+	public boolean matchesAny(Iterable<String> values) {
+		if (values == null) {
+			return false;
+		}
+		for (String value : values) {
+			if (test(value)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/* for testing */ boolean isLiteral() {
+		return this.literal != null;
+	}
+
+	private static boolean isLiteral(String regexp, int length) {
+		for (int i = 0; i < length; i++) {
+			if (METACHARACTERS.indexOf(regexp.charAt(i)) != -1) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean hasLineTerminator(String value, int start) {
+		for (int i = start; i < value.length(); i++) {
+			switch (value.charAt(i)) {
+				case '\n':
+				case '\r':
+				case '\u0085':
+				case '\u2028':
+				case '\u2029':
+					return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return this.regexp;
+	}
+}
@@ -17,52 +17,100 @@
 
 package org.springframework.cloud.gateway.route;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * @author Spencer Gibb
  */
-public class CachingRouteLocator implements RouteLocator {
+public class CachingRouteLocator implements RouteLocator, ApplicationEventPublisherAware {
+	protected final Log logger = LogFactory.getLog(getClass());
 
 	private final RouteLocator delegate;
     /**
-     * 路由缓存
+     * 路由缓存, together with the index built over it
      */
-	private final AtomicReference<List<Route>> cachedRoutes = new AtomicReference<>();
+	private final AtomicReference<RouteIndex> cachedRoutes = new AtomicReference<>();
+	/**
+	 * Number of the latest refresh, only its result is installed
+	 */
+	private final AtomicLong refreshes = new AtomicLong();
+
+	private ApplicationEventPublisher publisher;
 
 	public CachingRouteLocator(RouteLocator delegate) {
 		this.delegate = delegate;
-		this.cachedRoutes.compareAndSet(null, collectRoutes());
+		// nothing can be routed before the first table is built, so wait for it here
+		this.cachedRoutes.compareAndSet(null, collectRoutes().block());
+	}
+
+	@Override
+	public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
+		this.publisher = publisher;
 	}
 
 	@Override
 	public Flux<Route> getRoutes() {
-		return Flux.fromIterable(this.cachedRoutes.get());
+		return Flux.fromIterable(this.cachedRoutes.get().getRoutes());
+	}
+
+	/**
+	 * @return the index over the current routes, used to look up the route of a request
+	 */
+	public RouteIndex getRouteIndex() {
+		return this.cachedRoutes.get();
 	}
 
 	/**
-	 * Sets the new routes
+	 * Builds the new routes off the calling thread and sets them once complete.
+	 * The current routes keep serving requests until then. If another refresh starts
+	 * in the meantime, only the later one sets its routes. A {@link RoutesRefreshedEvent}
+	 * is published once they are set.
 	 * @return old routes
 	 */
 	public Flux<Route> refresh() {
-		return Flux.fromIterable(this.cachedRoutes.getAndUpdate(
-				routes -> CachingRouteLocator.this.collectRoutes()));
+		return Mono.defer(() -> {
+			long refresh = this.refreshes.incrementAndGet();
+			return collectRoutes()
+					.subscribeOn(Schedulers.elastic())
+					.map(routes -> {
+						RouteIndex old;
+						synchronized (this.refreshes) {
+							if (refresh != this.refreshes.get()) {
+								return this.cachedRoutes.get();
+							}
+							old = this.cachedRoutes.getAndSet(routes);
+						}
+						if (this.publisher != null) {
+							this.publisher.publishEvent(new RoutesRefreshedEvent(this, routes.getRoutes()));
+						}
+						return old;
+					});
+		}).flatMapIterable(RouteIndex::getRoutes);
 	}
 
-	private List<Route> collectRoutes() {
-		List<Route> routes = this.delegate.getRoutes().collectList().block();
-		// 排序
-		AnnotationAwareOrderComparator.sort(routes);
-		return routes;
+	private Mono<RouteIndex> collectRoutes() {
+		return this.delegate.getRoutes()
+				.collectList()
+				.map(routes -> {
+					// 排序
+					AnnotationAwareOrderComparator.sort(routes);
+					return new RouteIndex(routes);
+				});
 	}
 
 	@EventListener(RefreshRoutesEvent.class)
     /* for testing */ void handleRefresh() {
-        refresh();
+        refresh().subscribe(null, error -> logger.error("Unable to refresh routes, keeping the current ones", error));
     }
 }
@@ -53,6 +53,10 @@ public class Route implements Ordered {
      * 过滤器数组：过滤器用于处理切面逻辑，如路由转发前修改请求头等。
      */
 	private final List<GatewayFilter> gatewayFilters;
+	/**
+	 * Additional settings of the route, e.g. for the client forwarding its requests.
+	 */
+	private final Map<String, String> metadata;
 
 	public static Builder builder() {
 		return new Builder();
@@ -62,15 +66,22 @@ public class Route implements Ordered {
 		return new Builder()
 				.id(routeDefinition.getId())
 				.uri(routeDefinition.getUri())
-				.order(routeDefinition.getOrder());
+				.order(routeDefinition.getOrder())
+				.metadata(routeDefinition.getMetadata());
 	}
 
 	public Route(String id, URI uri, int order, Predicate<ServerWebExchange> predicate, List<GatewayFilter> gatewayFilters) {
+		this(id, uri, order, predicate, gatewayFilters, Collections.emptyMap());
+	}
+
+	public Route(String id, URI uri, int order, Predicate<ServerWebExchange> predicate, List<GatewayFilter> gatewayFilters,
+				 Map<String, String> metadata) {
 		this.id = id;
 		this.uri = uri;
 		this.order = order;
 		this.predicate = predicate;
 		this.gatewayFilters = gatewayFilters;
+		this.metadata = Collections.unmodifiableMap(new LinkedHashMap<>(metadata));
 	}
 
 	public static class Builder {
@@ -84,6 +95,8 @@ public class Route implements Ordered {
 
 		private List<GatewayFilter> gatewayFilters = new ArrayList<>();
 
+		private Map<String, String> metadata = new LinkedHashMap<>();
+
 		private Builder() {}
 
 		public Builder id(String id) {
@@ -126,12 +139,22 @@ public class Route implements Ordered {
 			return this;
 		}
 
+		public Builder metadata(Map<String, String> metadata) {
+			this.metadata.putAll(metadata);
+			return this;
+		}
+
+		public Builder metadata(String key, String value) {
+			this.metadata.put(key, value);
+			return this;
+		}
+
 		public Route build() {
 			Assert.notNull(this.id, "id can not be null");
 			Assert.notNull(this.uri, "uri can not be null");
 			//TODO: Assert.notNull(this.predicate, "predicate can not be null");
 
-			return new Route(this.id, this.uri, this.order, this.predicate, this.gatewayFilters);
+			return new Route(this.id, this.uri, this.order, this.predicate, this.gatewayFilters, this.metadata);
 		}
 	}
 
@@ -155,6 +178,10 @@ public class Route implements Ordered {
 		return Collections.unmodifiableList(this.gatewayFilters);
 	}
 
+	public Map<String, String> getMetadata() {
+		return this.metadata;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -164,7 +191,8 @@ public class Route implements Ordered {
 				Objects.equals(uri, route.uri) &&
 				Objects.equals(order, route.order) &&
 				Objects.equals(predicate, route.predicate) &&
-				Objects.equals(gatewayFilters, route.gatewayFilters);
+				Objects.equals(gatewayFilters, route.gatewayFilters) &&
+				Objects.equals(metadata, route.metadata);
 	}
 
 	@Override
@@ -180,6 +208,7 @@ public class Route implements Ordered {
 		sb.append(", order=").append(order);
 		sb.append(", predicate=").append(predicate);
 		sb.append(", gatewayFilters=").append(gatewayFilters);
+		sb.append(", metadata=").append(metadata);
 		sb.append('}');
 		return sb.toString();
 	}
@@ -27,7 +27,9 @@ import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -63,6 +65,10 @@ public class RouteDefinition {
      * 顺序
      */
 	private int order = 0;
+    /**
+     * 元数据, e.g. settings of the client forwarding requests of the route
+     */
+	private Map<String, String> metadata = new LinkedHashMap<>();
 
 	public RouteDefinition() {}
 
@@ -130,6 +136,14 @@ public class RouteDefinition {
 		this.order = order;
 	}
 
+	public Map<String, String> getMetadata() {
+		return metadata;
+	}
+
+	public void setMetadata(Map<String, String> metadata) {
+		this.metadata = metadata;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -137,13 +151,15 @@ public class RouteDefinition {
 		RouteDefinition routeDefinition = (RouteDefinition) o;
 		return Objects.equals(id, routeDefinition.id) &&
 				Objects.equals(predicates, routeDefinition.predicates) &&
+				Objects.equals(filters, routeDefinition.filters) &&
 				Objects.equals(order, routeDefinition.order) &&
-				Objects.equals(uri, routeDefinition.uri);
+				Objects.equals(uri, routeDefinition.uri) &&
+				Objects.equals(metadata, routeDefinition.metadata);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(id, predicates, uri);
+		return Objects.hash(id, predicates, filters, uri, order, metadata);
 	}
 
 	@Override
@@ -154,6 +170,7 @@ public class RouteDefinition {
 				", filters=" + filters +
 				", uri=" + uri +
 				", order=" + order +
+				", metadata=" + metadata +
 				'}';
 	}
 
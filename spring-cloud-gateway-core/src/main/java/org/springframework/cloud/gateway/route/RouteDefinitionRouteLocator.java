@@ -27,6 +27,7 @@ import org.springframework.cloud.gateway.filter.FilterDefinition;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+import org.springframework.cloud.gateway.handler.predicate.AndRoutePredicate;
 import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
 import org.springframework.cloud.gateway.handler.predicate.RoutePredicateFactory;
 import org.springframework.cloud.gateway.support.ArgumentHints;
@@ -43,6 +44,7 @@ import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -67,6 +69,11 @@ public class RouteDefinitionRouteLocator implements RouteLocator, BeanFactoryAwa
 	private final GatewayProperties gatewayProperties;
 	private final SpelExpressionParser parser = new SpelExpressionParser();
 	private BeanFactory beanFactory;
+	/**
+	 * Routes converted by the last completed {@link #getRoutes()}, keyed by route id.
+	 * Definitions whose content did not change since are not converted again.
+	 */
+	private volatile ConvertedRoutes convertedRoutes = new ConvertedRoutes("", Collections.emptyMap());
 
 	public RouteDefinitionRouteLocator(RouteDefinitionLocator routeDefinitionLocator,
 									   List<RoutePredicateFactory> predicates,
@@ -104,15 +111,29 @@ public class RouteDefinitionRouteLocator implements RouteLocator, BeanFactoryAwa
 
 	@Override
 	public Flux<Route> getRoutes() {
-		return this.routeDefinitionLocator.getRouteDefinitions()
-				.map(this::convertToRoute) // RouteDefinition => Route
-				//TODO: error handling
-				.map(route -> { // 打印日志
-					if (logger.isDebugEnabled()) {
-						logger.debug("RouteDefinition matched: " + route.getId());
-					}
-					return route;
-				});
+		return Flux.defer(() -> {
+			ConvertedRoutes previous = this.convertedRoutes;
+			String defaultFilters = this.gatewayProperties.getDefaultFilters().toString();
+			// default filters are part of every route, a change invalidates all of them
+			Map<String, ConvertedRoute> reusable = previous.defaultFilters.equals(defaultFilters)
+					? previous.routes : Collections.emptyMap();
+			Map<String, ConvertedRoute> converted = new ConcurrentHashMap<>();
+
+			return this.routeDefinitionLocator.getRouteDefinitions()
+					.map(routeDefinition -> { // RouteDefinition => Route
+						ConvertedRoute route = convertIfChanged(routeDefinition, reusable.get(routeDefinition.getId()));
+						converted.put(routeDefinition.getId(), route);
+						return route.route;
+					})
+					//TODO: error handling
+					.map(route -> { // 打印日志
+						if (logger.isDebugEnabled()) {
+							logger.debug("RouteDefinition matched: " + route.getId());
+						}
+						return route;
+					})
+					.doOnComplete(() -> this.convertedRoutes = new ConvertedRoutes(defaultFilters, converted));
+		});
 
 
 		/* TODO: trace logging
@@ -121,6 +142,14 @@ public class RouteDefinitionRouteLocator implements RouteLocator, BeanFactoryAwa
 			}*/
 	}
 
+	private ConvertedRoute convertIfChanged(RouteDefinition routeDefinition, ConvertedRoute previous) {
+		String content = routeDefinition.toString();
+		if (previous != null && previous.hash == content.hashCode() && previous.content.equals(content)) {
+			return previous;
+		}
+		return new ConvertedRoute(content, convertToRoute(routeDefinition));
+	}
+
 	private Route convertToRoute(RouteDefinition routeDefinition) {
 	    // 合并 Predicate
 		Predicate<ServerWebExchange> predicate = combinePredicates(routeDefinition);
@@ -237,14 +266,16 @@ public class RouteDefinitionRouteLocator implements RouteLocator, BeanFactoryAwa
 	private Predicate<ServerWebExchange> combinePredicates(RouteDefinition routeDefinition) {
 	    // 寻找 Predicate
 		List<PredicateDefinition> predicates = routeDefinition.getPredicates();
-		Predicate<ServerWebExchange> predicate = lookup(routeDefinition, predicates.get(0));
-		// 拼接 Predicate
-		for (PredicateDefinition andPredicate : predicates.subList(1, predicates.size())) {
-			Predicate<ServerWebExchange> found = lookup(routeDefinition, andPredicate);
-			predicate = predicate.and(found);
+		if (predicates.size() == 1) {
+			return lookup(routeDefinition, predicates.get(0));
+		}
+		// 拼接 Predicate, keeping each one visible to the route index
+		List<Predicate<ServerWebExchange>> found = new ArrayList<>(predicates.size());
+		for (PredicateDefinition andPredicate : predicates) {
+			found.add(lookup(routeDefinition, andPredicate));
 		}
 		// 返回 Predicate
-		return predicate;
+		return new AndRoutePredicate(found);
 	}
 
 	private Predicate<ServerWebExchange> lookup(RouteDefinition routeDefinition, PredicateDefinition predicate) {
@@ -264,4 +295,29 @@ public class RouteDefinitionRouteLocator implements RouteLocator, BeanFactoryAwa
 		return found.apply(tuple);
 	}
 
+	private static class ConvertedRoutes {
+		private final String defaultFilters;
+		private final Map<String, ConvertedRoute> routes;
+
+		ConvertedRoutes(String defaultFilters, Map<String, ConvertedRoute> routes) {
+			this.defaultFilters = defaultFilters;
+			this.routes = routes;
+		}
+	}
+
+	private static class ConvertedRoute {
+		/**
+		 * Definitions are mutable, so their content is kept rather than the instance
+		 */
+		private final String content;
+		private final int hash;
+		private final Route route;
+
+		ConvertedRoute(String content, Route route) {
+			this.content = content;
+			this.hash = content.hashCode();
+			this.route = route;
+		}
+	}
+
 }
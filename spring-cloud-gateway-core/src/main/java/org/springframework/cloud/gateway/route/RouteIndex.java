@@ -0,0 +1,419 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.route;
+
+import org.springframework.cloud.gateway.handler.predicate.AndRoutePredicate;
+import org.springframework.cloud.gateway.handler.predicate.HostRoutePredicateFactory.HostPredicate;
+import org.springframework.cloud.gateway.handler.predicate.MethodRoutePredicateFactory.MethodPredicate;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory.PathPredicate;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Immutable lookup structure over an ordered list of {@link Route}s.
+ *
+ * <p>Routes are bucketed by the {@code Path}, {@code Host} and {@code Method} predicates
+ * they were built with: a trie over the literal leading segments of path patterns, a trie
+ * over the literal trailing labels of host patterns, last label first, so that exact
+ * hosts and patterns such as {@code **.example.org} share one lookup, and a hash lookup
+ * on methods. A lookup walks only the candidates of the most
+ * selective bucket, in route order, and evaluates the full route predicate for each of
+ * them, so the first matching route is the same one a linear scan would find.
+ *
+ * <p>Routes whose predicates are opaque (e.g. built with {@link Predicate#and(Predicate)})
+ * are always candidates.
+ *
+ * @author Spencer Gibb
+ */
+public class RouteIndex {
+
+	private static final int[] NONE = new int[0];
+
+	private final List<Route> routes;
+	private final Route[] table;
+
+	private final String[] exactHosts;
+	private final HttpMethod[] exactMethods;
+
+	private final PathNode pathRoot = new PathNode();
+	private final int[] anyPath;
+	private final HostNode hostRoot = new HostNode();
+	private final int[] anyHost;
+	private final int[][] methods;
+	private final int[] anyMethod;
+
+	/**
+	 * @param routes routes, already sorted by order
+	 */
+	public RouteIndex(List<Route> routes) {
+		this.routes = Collections.unmodifiableList(new ArrayList<>(routes));
+		this.table = routes.toArray(new Route[routes.size()]);
+		this.exactHosts = new String[this.table.length];
+		this.exactMethods = new HttpMethod[this.table.length];
+
+		List<Integer> anyPath = new ArrayList<>();
+		List<Integer> anyHost = new ArrayList<>();
+		List<List<Integer>> methods = new ArrayList<>();
+		for (int i = 0; i < HttpMethod.values().length; i++) {
+			methods.add(new ArrayList<>());
+		}
+		List<Integer> anyMethod = new ArrayList<>();
+
+		for (int i = 0; i < this.table.length; i++) {
+			List<String> pathPrefix = Collections.emptyList();
+			List<String> hostSuffix = Collections.emptyList();
+			for (Predicate<ServerWebExchange> predicate : components(this.table[i].getPredicate())) {
+				if (predicate instanceof PathPredicate) {
+					List<String> prefix = literalPrefix((PathPredicate) predicate);
+					if (prefix.size() > pathPrefix.size()) {
+						pathPrefix = prefix;
+					}
+				}
+				else if (predicate instanceof HostPredicate) {
+					HostPredicate hostPredicate = (HostPredicate) predicate;
+					if (this.exactHosts[i] == null) {
+						this.exactHosts[i] = hostPredicate.getExactHost();
+					}
+					List<String> suffix = hostPredicate.getLiteralSuffix();
+					if (suffix.size() > hostSuffix.size()) {
+						hostSuffix = suffix;
+					}
+				}
+				else if (predicate instanceof MethodPredicate && this.exactMethods[i] == null) {
+					this.exactMethods[i] = ((MethodPredicate) predicate).getMethod();
+				}
+			}
+
+			if (pathPrefix.isEmpty()) {
+				anyPath.add(i);
+			}
+			else {
+				this.pathRoot.insert(pathPrefix, 0, i);
+			}
+
+			if (this.exactHosts[i] != null) {
+				this.hostRoot.insert(labels(this.exactHosts[i]), 0, i, true);
+			}
+			else if (!hostSuffix.isEmpty()) {
+				this.hostRoot.insert(hostSuffix, 0, i, false);
+			}
+			else {
+				anyHost.add(i);
+			}
+
+			if (this.exactMethods[i] == null) {
+				anyMethod.add(i);
+			}
+			else {
+				methods.get(this.exactMethods[i].ordinal()).add(i);
+			}
+		}
+
+		this.pathRoot.accumulate(NONE);
+		this.anyPath = toArray(anyPath);
+		this.hostRoot.accumulate(NONE);
+		this.anyHost = toArray(anyHost);
+		this.methods = new int[methods.size()][];
+		for (int i = 0; i < this.methods.length; i++) {
+			this.methods[i] = toArray(methods.get(i));
+		}
+		this.anyMethod = toArray(anyMethod);
+	}
+
+	public List<Route> getRoutes() {
+		return this.routes;
+	}
+
+	/**
+	 * Finds the first route, in order, whose predicate matches the exchange.
+	 * @param exchange the current exchange
+	 * @return the matching route or {@code null}
+	 */
+	public Route lookup(ServerWebExchange exchange) {
+		ServerHttpRequest request = exchange.getRequest();
+		String host = request.getHeaders().getFirst("Host");
+		HttpMethod method = request.getMethod();
+
+		int[] pathMatches = this.pathRoot.find(request.getURI().getPath());
+		int[] hostMatches = this.hostRoot.find(host);
+		int[] methodMatches = method == null ? NONE : this.methods[method.ordinal()];
+
+		// walk the bucket with the fewest candidates, the other ones are checked per route
+		int pathCount = this.anyPath.length + pathMatches.length;
+		int hostCount = this.anyHost.length + hostMatches.length;
+		int methodCount = this.anyMethod.length + methodMatches.length;
+		if (hostCount <= pathCount && hostCount <= methodCount) {
+			return scan(exchange, this.anyHost, hostMatches, host, method);
+		}
+		if (methodCount <= pathCount) {
+			return scan(exchange, this.anyMethod, methodMatches, host, method);
+		}
+		return scan(exchange, this.anyPath, pathMatches, host, method);
+	}
+
+	private Route scan(ServerWebExchange exchange, int[] first, int[] second, String host, HttpMethod method) {
+		// both arrays are sorted and disjoint, merge them to keep route order
+		int i = 0;
+		int j = 0;
+		while (i < first.length || j < second.length) {
+			int candidate;
+			if (j >= second.length || (i < first.length && first[i] < second[j])) {
+				candidate = first[i++];
+			}
+			else {
+				candidate = second[j++];
+			}
+			if (matches(candidate, exchange, host, method)) {
+				return this.table[candidate];
+			}
+		}
+		return null;
+	}
+
+	private boolean matches(int candidate, ServerWebExchange exchange, String host, HttpMethod method) {
+		String exactHost = this.exactHosts[candidate];
+		if (exactHost != null && !exactHost.equals(host)) {
+			return false;
+		}
+		HttpMethod exactMethod = this.exactMethods[candidate];
+		if (exactMethod != null && exactMethod != method) {
+			return false;
+		}
+		return this.table[candidate].getPredicate().test(exchange);
+	}
+
+	private static List<Predicate<ServerWebExchange>> components(Predicate<ServerWebExchange> predicate) {
+		if (predicate instanceof AndRoutePredicate) {
+			return ((AndRoutePredicate) predicate).getDelegates();
+		}
+		if (predicate == null) {
+			return Collections.emptyList();
+		}
+		return Collections.singletonList(predicate);
+	}
+
+	/**
+	 * Returns the leading segments of a path pattern that can only match literally.
+	 */
+	static List<String> literalPrefix(PathPredicate predicate) {
+		String pattern = predicate.getPattern().getPatternString();
+		if (!predicate.isCaseSensitive() || !pattern.startsWith("/")) {
+			return Collections.emptyList();
+		}
+		List<String> segments = new ArrayList<>();
+		for (String segment : pattern.substring(1).split("/")) {
+			if (segment.isEmpty() || !isLiteral(segment)) {
+				break;
+			}
+			segments.add(segment);
+		}
+		return segments;
+	}
+
+	/**
+	 * Returns the labels of a host, last label first, skipping empty ones.
+	 */
+	private static List<String> labels(String host) {
+		List<String> labels = new ArrayList<>();
+		String[] split = host.split("\\.");
+		for (int i = split.length - 1; i >= 0; i--) {
+			if (!split[i].isEmpty()) {
+				labels.add(split[i]);
+			}
+		}
+		return labels;
+	}
+
+	private static boolean isLiteral(String segment) {
+		for (int i = 0; i < segment.length(); i++) {
+			switch (segment.charAt(i)) {
+				case '*':
+				case '?':
+				case '{':
+				case '}':
+				case ';':
+				case '%':
+				case '\\':
+					return false;
+			}
+		}
+		return true;
+	}
+
+	private static int[] toArray(List<Integer> indexes) {
+		if (indexes.isEmpty()) {
+			return NONE;
+		}
+		int[] array = new int[indexes.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = indexes.get(i);
+		}
+		return array;
+	}
+
+	private static int[] merge(int[] first, int[] second) {
+		if (first.length == 0) {
+			return second;
+		}
+		if (second.length == 0) {
+			return first;
+		}
+		int[] merged = new int[first.length + second.length];
+		int i = 0, j = 0, k = 0;
+		while (i < first.length || j < second.length) {
+			if (j >= second.length || (i < first.length && first[i] < second[j])) {
+				merged[k++] = first[i++];
+			}
+			else {
+				merged[k++] = second[j++];
+			}
+		}
+		return merged;
+	}
+
+	/**
+	 * Trie node keyed by literal path segment. After {@link #accumulate(int[])} each node
+	 * holds the routes whose literal prefix ends at this node or at one of its ancestors.
+	 */
+	private static class PathNode {
+
+		private final Map<String, PathNode> children = new HashMap<>();
+		private final List<Integer> own = new ArrayList<>();
+		private int[] matches = NONE;
+
+		void insert(List<String> segments, int depth, int route) {
+			if (depth == segments.size()) {
+				this.own.add(route);
+				return;
+			}
+			this.children.computeIfAbsent(segments.get(depth), segment -> new PathNode())
+					.insert(segments, depth + 1, route);
+		}
+
+		void accumulate(int[] inherited) {
+			this.matches = merge(inherited, toArray(this.own));
+			for (PathNode child : this.children.values()) {
+				child.accumulate(this.matches);
+			}
+		}
+
+		int[] find(String path) {
+			if (path == null || !path.startsWith("/")) {
+				return NONE;
+			}
+			PathNode node = this;
+			int start = 1;
+			while (!node.children.isEmpty() && start <= path.length()) {
+				int end = path.indexOf('/', start);
+				if (end == -1) {
+					end = path.length();
+				}
+				// path parameters are not part of the value patterns match against
+				int segmentEnd = path.indexOf(';', start);
+				if (segmentEnd == -1 || segmentEnd > end) {
+					segmentEnd = end;
+				}
+				String segment = path.substring(start, segmentEnd);
+				if (segment.indexOf('%') != -1) {
+					// would be decoded before matching, stop narrowing here
+					break;
+				}
+				PathNode child = node.children.get(segment);
+				if (child == null) {
+					break;
+				}
+				node = child;
+				start = end + 1;
+			}
+			return node.matches;
+		}
+	}
+
+	/**
+	 * Trie node keyed by host label, last label first. After {@link #accumulate(int[])}
+	 * each node holds the routes whose pattern ends with the labels of this node or of one
+	 * of its ancestors, and the routes whose exact host these labels are.
+	 */
+	private static class HostNode {
+
+		private final Map<String, HostNode> children = new HashMap<>();
+		private final List<Integer> exact = new ArrayList<>();
+		private final List<Integer> suffix = new ArrayList<>();
+		/**
+		 * Candidates of hosts with more labels than the path to this node
+		 */
+		private int[] suffixMatches = NONE;
+		/**
+		 * Candidates of hosts with exactly the labels of the path to this node
+		 */
+		private int[] hostMatches = NONE;
+
+		void insert(List<String> labels, int depth, int route, boolean exactHost) {
+			if (depth == labels.size()) {
+				(exactHost ? this.exact : this.suffix).add(route);
+				return;
+			}
+			this.children.computeIfAbsent(labels.get(depth), label -> new HostNode())
+					.insert(labels, depth + 1, route, exactHost);
+		}
+
+		void accumulate(int[] inherited) {
+			this.suffixMatches = merge(inherited, toArray(this.suffix));
+			this.hostMatches = merge(this.suffixMatches, toArray(this.exact));
+			for (HostNode child : this.children.values()) {
+				child.accumulate(this.suffixMatches);
+			}
+		}
+
+		int[] find(String host) {
+			if (host == null) {
+				return NONE;
+			}
+			HostNode node = this;
+			int end = host.length();
+			for (;;) {
+				// empty labels are skipped, as host patterns skip them
+				while (end > 0 && host.charAt(end - 1) == '.') {
+					end--;
+				}
+				if (end == 0) {
+					return node.hostMatches;
+				}
+				if (node.children.isEmpty()) {
+					return node.suffixMatches;
+				}
+				int start = host.lastIndexOf('.', end - 1) + 1;
+				HostNode child = node.children.get(host.substring(start, end));
+				if (child == null) {
+					return node.suffixMatches;
+				}
+				node = child;
+				end = start;
+			}
+		}
+	}
+
+}
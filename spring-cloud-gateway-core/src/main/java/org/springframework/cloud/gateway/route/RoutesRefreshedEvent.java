@@ -0,0 +1,43 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.springframework.cloud.gateway.route;
+
+import java.util.List;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published by the {@link CachingRouteLocator} once the routes built on a
+ * {@link RefreshRoutesEvent} serve requests.
+ * @author Spencer Gibb
+ */
+public class RoutesRefreshedEvent extends ApplicationEvent {
+
+	private final List<Route> routes;
+
+	public RoutesRefreshedEvent(Object source, List<Route> routes) {
+		super(source);
+		this.routes = routes;
+	}
+
+	/**
+	 * @return the routes now in use
+	 */
+	public List<Route> getRoutes() {
+		return this.routes;
+	}
+}
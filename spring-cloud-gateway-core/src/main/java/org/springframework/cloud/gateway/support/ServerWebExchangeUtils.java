@@ -20,6 +20,7 @@ package org.springframework.cloud.gateway.support;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
 import org.springframework.web.server.ServerWebExchange;
 
 import java.net.URI;
@@ -34,12 +35,36 @@ public class ServerWebExchangeUtils {
 
 	public static final String URI_TEMPLATE_VARIABLES_ATTRIBUTE = qualify("uriTemplateVariables");
 
+	/**
+	 * Path of the request parsed for the path patterns, shared by the predicates tested
+	 * against the request.
+	 * @see #getPathContainer(ServerWebExchange)
+	 */
+	public static final String GATEWAY_PATH_CONTAINER_ATTR = qualify("gatewayPathContainer");
+
 	public static final String CLIENT_RESPONSE_ATTR = qualify("webHandlerClientResponse");
 	public static final String GATEWAY_ROUTE_ATTR = qualify("gatewayRoute");
 
 	public static final String GATEWAY_REQUEST_URL_ATTR = qualify("gatewayRequestUrl");
 	public static final String GATEWAY_ORIGINAL_REQUEST_URL_ATTR = qualify("gatewayOriginalRequestUrl");
 
+	/**
+	 * Instances, as {@code host:port}, that the load balancer should not choose for the
+	 * request, e.g. the instance a hedged request is already waiting for.
+	 */
+	public static final String GATEWAY_LOADBALANCER_EXCLUDED_ATTR = qualify("gatewayLoadBalancerExcluded");
+
+	/**
+	 * Instance, as {@code host:port}, the load balancer chose for the request.
+	 */
+	public static final String GATEWAY_LOADBALANCER_INSTANCE_ATTR = qualify("gatewayLoadBalancerInstance");
+
+	/**
+	 * Key the load balancer hashes to choose the instance of the request, when the route
+	 * uses the {@code consistent-hash} strategy.
+	 */
+	public static final String GATEWAY_LOADBALANCER_HASH_KEY_ATTR = qualify("gatewayLoadBalancerHashKey");
+
 	public static final String GATEWAY_HANDLER_MAPPER_ATTR = qualify("gatewayHandlerMapper");
 
 	/**
@@ -60,6 +85,20 @@ public class ServerWebExchangeUtils {
 		return exchange.getAttributeOrDefault(GATEWAY_ALREADY_ROUTED_ATTR, false);
 	}
 
+	/**
+	 * @return the path of the request, parsed once per exchange, and again only if the
+	 * request has been mutated to another path
+	 */
+	public static PathContainer getPathContainer(ServerWebExchange exchange) {
+		String path = exchange.getRequest().getURI().getPath();
+		PathContainer container = exchange.getAttribute(GATEWAY_PATH_CONTAINER_ATTR);
+		if (container == null || !container.value().equals(path)) {
+			container = PathContainer.parsePath(path);
+			exchange.getAttributes().put(GATEWAY_PATH_CONTAINER_ATTR, container);
+		}
+		return container;
+	}
+
 	public static boolean setResponseStatus(ServerWebExchange exchange, HttpStatus httpStatus) {
 		boolean response = exchange.getResponse().setStatusCode(httpStatus);
 		if (!response && logger.isWarnEnabled()) {
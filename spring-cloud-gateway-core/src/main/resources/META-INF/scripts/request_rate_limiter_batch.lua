@@ -0,0 +1,45 @@
+-- Runs request_rate_limiter.lua for a batch of requests at once.
+-- KEYS holds the tokens and timestamp keys of each request, ARGV its rate, capacity, now and requested.
+-- Returns allowed_num and new_tokens of each request, in order.
+local results = {}
+
+for i = 1, #KEYS / 2 do
+  local tokens_key = KEYS[i * 2 - 1]
+  local timestamp_key = KEYS[i * 2]
+
+  local rate = tonumber(ARGV[i * 4 - 3])
+  local capacity = tonumber(ARGV[i * 4 - 2])
+  local now = tonumber(ARGV[i * 4 - 1])
+  local requested = tonumber(ARGV[i * 4])
+
+  local fill_time = capacity/rate
+  local ttl = math.floor(fill_time*2)
+
+  local last_tokens = tonumber(redis.call("get", tokens_key))
+  if last_tokens == nil then
+    last_tokens = capacity
+  end
+
+  local last_refreshed = tonumber(redis.call("get", timestamp_key))
+  if last_refreshed == nil then
+    last_refreshed = 0
+  end
+
+  local delta = math.max(0, now-last_refreshed)
+  local filled_tokens = math.min(capacity, last_tokens+(delta*rate))
+  local allowed = filled_tokens >= requested
+  local new_tokens = filled_tokens
+  local allowed_num = 0
+  if allowed then
+    new_tokens = filled_tokens - requested
+    allowed_num = 1
+  end
+
+  redis.call("setex", tokens_key, ttl, new_tokens)
+  redis.call("setex", timestamp_key, ttl, now)
+
+  results[i * 2 - 1] = allowed_num
+  results[i * 2] = new_tokens
+end
+
+return results
@@ -0,0 +1,39 @@
+-- Generic cell rate algorithm, an exact equivalent of the token bucket that only keeps
+-- the theoretical arrival time (TAT) of the next request, in microseconds of Redis time.
+-- KEYS[1] is the TAT, ARGV the rate (tokens per second), the capacity and the requested tokens.
+-- Returns allowed_num and the tokens left.
+
+-- TIME is not deterministic, replicate the writes instead of the script
+redis.replicate_commands()
+
+local key = KEYS[1]
+local rate = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+
+local time = redis.call("time")
+local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+
+-- microseconds between two tokens, and the time it takes to fill the bucket
+local interval = 1000000 / rate
+local burst_offset = interval * capacity
+
+local tat = tonumber(redis.call("get", key))
+if tat == nil or tat < now then
+  tat = now
+end
+
+local new_tat = tat + interval * requested
+local allow_at = new_tat - burst_offset
+local diff = now - allow_at
+
+if diff < 0 then
+  local remaining = math.max(0, math.floor((now + burst_offset - tat) / interval))
+  return { 0, remaining }
+end
+
+-- the key expires once the bucket is full again
+local ttl = math.max(1, math.ceil((new_tat - now) / 1000))
+redis.call("set", key, string.format("%d", new_tat), "px", ttl)
+
+return { 1, math.floor(diff / interval) }
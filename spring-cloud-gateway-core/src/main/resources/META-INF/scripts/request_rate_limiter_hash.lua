@@ -0,0 +1,42 @@
+-- Token bucket kept in a single hash, refilled with the Redis server time in microseconds.
+-- KEYS[1] is the hash, ARGV the rate (tokens per second), the capacity and the requested tokens.
+-- Returns allowed_num and the tokens left.
+
+-- TIME is not deterministic, replicate the writes instead of the script
+redis.replicate_commands()
+
+local key = KEYS[1]
+local rate = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+
+local time = redis.call("time")
+local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+
+local state = redis.call("hmget", key, "tokens", "timestamp")
+local last_tokens = tonumber(state[1])
+if last_tokens == nil then
+  last_tokens = capacity
+end
+local last_refreshed = tonumber(state[2])
+if last_refreshed == nil then
+  last_refreshed = now
+end
+
+local delta = math.max(0, now-last_refreshed)
+local filled_tokens = math.min(capacity, last_tokens+(delta*rate/1000000))
+local allowed = filled_tokens >= requested
+local new_tokens = filled_tokens
+local allowed_num = 0
+if allowed then
+  new_tokens = filled_tokens - requested
+  allowed_num = 1
+end
+
+-- twice the time to fill the bucket, in milliseconds
+local ttl = math.ceil(capacity/rate*2000)
+
+redis.call("hmset", key, "tokens", new_tokens, "timestamp", now)
+redis.call("pexpire", key, ttl)
+
+return { allowed_num, math.floor(new_tokens) }
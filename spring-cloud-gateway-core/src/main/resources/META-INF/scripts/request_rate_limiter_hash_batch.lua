@@ -0,0 +1,48 @@
+-- Runs request_rate_limiter_hash.lua for a batch of requests at once.
+-- KEYS holds the hash of each request, ARGV its rate, capacity and requested tokens.
+-- Returns allowed_num and the tokens left of each request, in order.
+
+-- TIME is not deterministic, replicate the writes instead of the script
+redis.replicate_commands()
+
+local time = redis.call("time")
+local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+
+local results = {}
+
+for i = 1, #KEYS do
+  local key = KEYS[i]
+  local rate = tonumber(ARGV[i * 3 - 2])
+  local capacity = tonumber(ARGV[i * 3 - 1])
+  local requested = tonumber(ARGV[i * 3])
+
+  local state = redis.call("hmget", key, "tokens", "timestamp")
+  local last_tokens = tonumber(state[1])
+  if last_tokens == nil then
+    last_tokens = capacity
+  end
+  local last_refreshed = tonumber(state[2])
+  if last_refreshed == nil then
+    last_refreshed = now
+  end
+
+  local delta = math.max(0, now-last_refreshed)
+  local filled_tokens = math.min(capacity, last_tokens+(delta*rate/1000000))
+  local allowed = filled_tokens >= requested
+  local new_tokens = filled_tokens
+  local allowed_num = 0
+  if allowed then
+    new_tokens = filled_tokens - requested
+    allowed_num = 1
+  end
+
+  local ttl = math.ceil(capacity/rate*2000)
+
+  redis.call("hmset", key, "tokens", new_tokens, "timestamp", now)
+  redis.call("pexpire", key, ttl)
+
+  results[i * 2 - 1] = allowed_num
+  results[i * 2] = math.floor(new_tokens)
+end
+
+return results
@@ -0,0 +1,54 @@
+-- Sliding window counter: the count of the current fixed window plus the count of the
+-- previous one, weighted by how much of it still overlaps the sliding window.
+-- The window lasts capacity/rate seconds and admits capacity requests.
+-- KEYS[1] is a hash of the window start (microseconds of Redis time) and both counts,
+-- ARGV the rate (tokens per second), the capacity and the requested tokens.
+-- Returns allowed_num and the tokens left.
+
+-- TIME is not deterministic, replicate the writes instead of the script
+redis.replicate_commands()
+
+local key = KEYS[1]
+local rate = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+
+local time = redis.call("time")
+local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+
+local window = math.floor(capacity / rate * 1000000)
+if window < 1 then
+  window = 1
+end
+
+local state = redis.call("hmget", key, "start", "current", "previous")
+local start = tonumber(state[1])
+local current = tonumber(state[2]) or 0
+local previous = tonumber(state[3]) or 0
+
+if start == nil then
+  start = now
+elseif now - start >= window then
+  if now - start < 2 * window then
+    previous = current
+  else
+    previous = 0
+  end
+  current = 0
+  start = now - ((now - start) % window)
+end
+
+local weight = 1 - (now - start) / window
+local count = previous * weight + current
+local allowed_num = 0
+if count + requested <= capacity then
+  current = current + requested
+  count = count + requested
+  allowed_num = 1
+end
+
+redis.call("hmset", key, "start", string.format("%d", start), "current", current, "previous", previous)
+-- the previous window stops counting one window after the current one ends
+redis.call("pexpire", key, math.ceil((start + 2 * window - now) / 1000))
+
+return { allowed_num, math.max(0, math.floor(capacity - count)) }
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter;
+
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spencer Gibb
+ */
+public class FlushStrategyTests {
+
+	@Test
+	public void fixedStrategiesIgnoreContentType() {
+		HttpHeaders eventStream = headers("text/event-stream");
+
+		assertThat(FlushStrategy.EACH.isFlushOnEach(headers("application/octet-stream"))).isTrue();
+		assertThat(FlushStrategy.BOUNDARY.isFlushOnEach(eventStream)).isFalse();
+	}
+
+	@Test
+	public void adaptiveFlushesStreamsOnEachChunk() {
+		assertThat(FlushStrategy.ADAPTIVE.isFlushOnEach(headers("text/event-stream;charset=UTF-8"))).isTrue();
+		assertThat(FlushStrategy.ADAPTIVE.isFlushOnEach(headers(MediaType.APPLICATION_STREAM_JSON_VALUE))).isTrue();
+
+		assertThat(FlushStrategy.ADAPTIVE.isFlushOnEach(headers("application/octet-stream"))).isFalse();
+		assertThat(FlushStrategy.ADAPTIVE.isFlushOnEach(headers("application/json"))).isFalse();
+		assertThat(FlushStrategy.ADAPTIVE.isFlushOnEach(new HttpHeaders())).isFalse();
+		assertThat(FlushStrategy.ADAPTIVE.isFlushOnEach(headers("not a media type"))).isFalse();
+	}
+
+	private HttpHeaders headers(String contentType) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.CONTENT_TYPE, contentType);
+		return headers;
+	}
+}
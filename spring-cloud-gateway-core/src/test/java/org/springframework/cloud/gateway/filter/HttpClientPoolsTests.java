@@ -0,0 +1,145 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientProperties.Pool;
+import org.springframework.cloud.gateway.config.HttpClientProperties.PoolType;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RoutesRefreshedEvent;
+import reactor.ipc.netty.resources.PoolResources;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.filter.HttpClientPools.POOL_ACQUIRE_TIMEOUT_METADATA;
+import static org.springframework.cloud.gateway.filter.HttpClientPools.POOL_MAX_CONNECTIONS_METADATA;
+import static org.springframework.cloud.gateway.filter.HttpClientPools.POOL_TYPE_METADATA;
+import static org.springframework.cloud.gateway.handler.predicate.RoutePredicates.alwaysTrue;
+
+/**
+ * @author Spencer Gibb
+ */
+public class HttpClientPoolsTests {
+
+	private final HttpClientProperties properties = new HttpClientProperties();
+
+	private HttpClientPools pools;
+
+	@After
+	public void close() {
+		if (this.pools != null) {
+			this.pools.destroy();
+		}
+	}
+
+	@Test
+	public void routesWithoutPoolMetadataShareTheDefaultPool() {
+		this.pools = new HttpClientPools(this.properties);
+
+		Route route = Route.builder().id("shared").uri("http://example.org")
+				.predicate(alwaysTrue()).metadata("other", "value").build();
+
+		assertThat(this.pools.getPool(route)).isSameAs(this.pools.getDefaultPool());
+		assertThat(this.pools.getPool(null)).isSameAs(this.pools.getDefaultPool());
+		assertThat(this.pools.getWebClient(route)).isSameAs(this.pools.getWebClient(null));
+	}
+
+	@Test
+	public void routesWithPoolMetadataGetADedicatedPool() {
+		this.properties.getPool().setAcquireTimeout(2000);
+		this.pools = new HttpClientPools(this.properties);
+
+		Route route = route("dedicated", "50");
+		PoolResources pool = this.pools.getPool(route);
+
+		assertThat(pool).isNotSameAs(this.pools.getDefaultPool());
+		assertThat(this.pools.getPool(route)).isSameAs(pool);
+		assertThat(this.pools.getHttpClient(route)).isSameAs(this.pools.getHttpClient(route));
+
+		Pool settings = this.pools.getSettings(route);
+		assertThat(settings.getName()).isEqualTo("dedicated");
+		assertThat(settings.getType()).isEqualTo(PoolType.FIXED);
+		assertThat(settings.getMaxConnections()).isEqualTo(50);
+		assertThat(settings.getAcquireTimeout()).isEqualTo(2000);
+	}
+
+	@Test
+	public void rebuiltRoutesKeepTheirPoolUnlessSettingsChange() {
+		this.pools = new HttpClientPools(this.properties);
+
+		PoolResources pool = this.pools.getPool(route("dedicated", "50"));
+		assertThat(this.pools.getPool(route("dedicated", "50"))).isSameAs(pool);
+
+		PoolResources resized = this.pools.getPool(route("dedicated", "10"));
+		assertThat(resized).isNotSameAs(pool);
+	}
+
+	@Test
+	public void poolsOfRemovedRoutesAreDisposedOnRefresh() {
+		this.pools = new HttpClientPools(this.properties);
+		PoolResources kept = this.pools.getPool(route("kept", "50"));
+		PoolResources removed = this.pools.getPool(route("removed", "50"));
+		PoolResources shared = this.pools.getPool(route("shared", "50"));
+
+		Route unpooled = Route.builder().id("shared").uri("http://example.org").predicate(alwaysTrue()).build();
+		this.pools.handleRefresh(new RoutesRefreshedEvent(this, Arrays.asList(route("kept", "50"), unpooled)));
+
+		assertThat(this.pools.getMetrics()).containsOnlyKeys("proxy", "kept");
+		assertThat(this.pools.getPool(route("kept", "50"))).isSameAs(kept);
+		assertThat(this.pools.getPool(route("removed", "50"))).isNotSameAs(removed);
+		assertThat(this.pools.getPool(route("shared", "50"))).isNotSameAs(shared);
+	}
+
+	@Test
+	public void routesWithInvalidPoolMetadataUseTheDefaultPool() {
+		this.pools = new HttpClientPools(this.properties);
+		Route route = route("invalid", "lots");
+
+		this.pools.handleRefresh(new RoutesRefreshedEvent(this, Arrays.asList(route)));
+
+		assertThat(this.pools.getPool(route)).isSameAs(this.pools.getDefaultPool());
+		assertThat(this.pools.getMetrics()).containsOnlyKeys("proxy");
+	}
+
+	@Test
+	public void metricsArePublishedPerPool() {
+		this.pools = new HttpClientPools(this.properties);
+		this.pools.getPool(Route.builder().id("dedicated").uri("http://example.org").predicate(alwaysTrue())
+				.metadata(POOL_ACQUIRE_TIMEOUT_METADATA, "100").build());
+
+		Map<String, Map<String, Object>> metrics = this.pools.getMetrics();
+
+		assertThat(metrics).containsOnlyKeys("proxy", "dedicated");
+		assertThat(metrics.get("dedicated")).containsEntry("type", PoolType.ELASTIC)
+				.containsEntry("connections", 0)
+				.containsEntry("active", 0)
+				.containsEntry("idle", 0)
+				.containsEntry("pending", 0);
+	}
+
+	private Route route(String id, String maxConnections) {
+		return Route.builder().id(id).uri("http://example.org").predicate(alwaysTrue())
+				.metadata(POOL_TYPE_METADATA, "fixed")
+				.metadata(POOL_MAX_CONNECTIONS_METADATA, maxConnections)
+				.build();
+	}
+}
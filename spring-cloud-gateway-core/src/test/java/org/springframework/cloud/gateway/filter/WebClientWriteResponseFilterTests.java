@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_ATTR;
+
+/**
+ * @author Spencer Gibb
+ */
+public class WebClientWriteResponseFilterTests {
+
+	private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+	@Test
+	public void streamingResponsesAreFlushedOnEachChunk() {
+		RecordingResponse response = write(FlushStrategy.ADAPTIVE, MediaType.TEXT_EVENT_STREAM);
+
+		assertThat(response.flushes).isEqualTo(3);
+		assertThat(response.getBodyAsString().block()).isEqualTo("abc");
+	}
+
+	@Test
+	public void otherResponsesAreWrittenWithoutFlushingEachChunk() {
+		RecordingResponse response = write(FlushStrategy.ADAPTIVE, MediaType.APPLICATION_OCTET_STREAM);
+
+		assertThat(response.flushes).isEqualTo(0);
+		assertThat(response.getBodyAsString().block()).isEqualTo("abc");
+	}
+
+	@Test
+	public void eachFlushesEveryChunk() {
+		RecordingResponse response = write(FlushStrategy.EACH, MediaType.APPLICATION_OCTET_STREAM);
+
+		assertThat(response.flushes).isEqualTo(3);
+		assertThat(response.getBodyAsString().block()).isEqualTo("abc");
+	}
+
+	private RecordingResponse write(FlushStrategy flushStrategy, MediaType contentType) {
+		RecordingResponse response = new RecordingResponse();
+		response.getHeaders().setContentType(contentType);
+		ServerWebExchange exchange = new ServerWebExchangeDecorator(
+				MockServerWebExchange.from(MockServerHttpRequest.get("/").build())) {
+			@Override
+			public ServerHttpResponse getResponse() {
+				return response;
+			}
+		};
+
+		ClientResponse clientResponse = mock(ClientResponse.class);
+		doReturn(Flux.just("a", "b", "c").map(this::buffer)).when(clientResponse).body(any());
+		exchange.getAttributes().put(CLIENT_RESPONSE_ATTR, clientResponse);
+
+		new WebClientWriteResponseFilter(flushStrategy).filter(exchange, e -> Mono.empty()).block();
+		return response;
+	}
+
+	private DataBuffer buffer(String chunk) {
+		return this.bufferFactory.wrap(chunk.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Counts the chunks written with a flush of their own.
+	 */
+	private static class RecordingResponse extends MockServerHttpResponse {
+
+		private int flushes;
+
+		@Override
+		public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+			return super.writeAndFlushWith(Flux.from(body).doOnNext(chunk -> this.flushes++));
+		}
+	}
+}
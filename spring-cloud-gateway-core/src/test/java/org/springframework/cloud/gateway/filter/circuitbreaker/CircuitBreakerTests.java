@@ -0,0 +1,193 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.circuitbreaker;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.springframework.cloud.gateway.filter.circuitbreaker.CircuitBreaker.Permission;
+import org.springframework.cloud.gateway.filter.circuitbreaker.CircuitBreaker.State;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spencer Gibb
+ */
+public class CircuitBreakerTests {
+
+	private final AtomicLong now = new AtomicLong();
+
+	@Test
+	public void opensOnceFailureRateIsReached() {
+		CircuitBreaker circuitBreaker = circuitBreaker(settings(10, 4));
+
+		call(circuitBreaker, true);
+		call(circuitBreaker, false);
+		call(circuitBreaker, true);
+		assertThat(circuitBreaker.getState()).as("not enough calls yet").isEqualTo(State.CLOSED);
+
+		call(circuitBreaker, false);
+		assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+		assertThat(circuitBreaker.tryAcquire()).isEqualTo(Permission.CIRCUIT_OPEN);
+		assertThat(circuitBreaker.getMetrics()).containsEntry("rejectedCalls", 1L);
+	}
+
+	@Test
+	public void slidingWindowForgetsOldOutcomes() {
+		CircuitBreaker circuitBreaker = circuitBreaker(settings(4, 4));
+
+		call(circuitBreaker, false);
+		for (int i = 0; i < 10; i++) {
+			call(circuitBreaker, true);
+		}
+		call(circuitBreaker, false);
+		assertThat(circuitBreaker.getState()).as("1 failure out of the last 4 calls").isEqualTo(State.CLOSED);
+
+		call(circuitBreaker, false);
+		assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+	}
+
+	@Test
+	public void halfOpenCircuitClosesWhenTrialCallsSucceed() {
+		CircuitBreaker.Settings settings = settings(2, 2);
+		settings.setPermittedCallsInHalfOpenState(2);
+		CircuitBreaker circuitBreaker = circuitBreaker(settings);
+		call(circuitBreaker, false);
+		call(circuitBreaker, false);
+		assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+
+		this.now.addAndGet(TimeUnit.MILLISECONDS.toNanos(settings.getWaitDurationInOpenState()));
+		assertThat(circuitBreaker.tryAcquire()).isEqualTo(Permission.PERMITTED);
+		assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+		assertThat(circuitBreaker.tryAcquire()).isEqualTo(Permission.PERMITTED);
+		assertThat(circuitBreaker.tryAcquire()).as("trial calls are all taken").isEqualTo(Permission.CIRCUIT_OPEN);
+
+		circuitBreaker.onSuccess();
+		circuitBreaker.onSuccess();
+		assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+		assertThat(circuitBreaker.getMetrics()).containsEntry("calls", 0);
+	}
+
+	@Test
+	public void halfOpenCircuitReopensOnFailure() {
+		CircuitBreaker.Settings settings = settings(2, 2);
+		CircuitBreaker circuitBreaker = circuitBreaker(settings);
+		call(circuitBreaker, false);
+		call(circuitBreaker, false);
+
+		this.now.addAndGet(TimeUnit.MILLISECONDS.toNanos(settings.getWaitDurationInOpenState()));
+		call(circuitBreaker, false);
+
+		assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+		assertThat(circuitBreaker.tryAcquire()).isEqualTo(Permission.CIRCUIT_OPEN);
+	}
+
+	@Test
+	public void concurrentCallsOfAReopeningCircuitAreRejected() throws Exception {
+		CircuitBreaker.Settings settings = settings(2, 2);
+		settings.setPermittedCallsInHalfOpenState(3);
+		for (int round = 0; round < 100; round++) {
+			CircuitBreaker circuitBreaker = circuitBreaker(settings);
+			call(circuitBreaker, false);
+			call(circuitBreaker, false);
+			this.now.addAndGet(TimeUnit.MILLISECONDS.toNanos(settings.getWaitDurationInOpenState()));
+			assertThat(race(circuitBreaker, () -> { })).as("trial calls").isEqualTo(3);
+			assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+
+			// the clock stands still, so the reopened circuit must wait again
+			assertThat(race(circuitBreaker, circuitBreaker::onFailure)).isEqualTo(0);
+			assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+
+			this.now.addAndGet(TimeUnit.MILLISECONDS.toNanos(settings.getWaitDurationInOpenState()));
+			assertThat(race(circuitBreaker, () -> { })).as("trial calls").isEqualTo(3);
+		}
+	}
+
+	@Test
+	public void bulkheadLimitsConcurrentCalls() {
+		CircuitBreaker.Settings settings = settings(10, 10);
+		settings.setMaxConcurrentCalls(2);
+		CircuitBreaker circuitBreaker = circuitBreaker(settings);
+
+		assertThat(circuitBreaker.tryAcquire()).isEqualTo(Permission.PERMITTED);
+		assertThat(circuitBreaker.tryAcquire()).isEqualTo(Permission.PERMITTED);
+		assertThat(circuitBreaker.tryAcquire()).isEqualTo(Permission.BULKHEAD_FULL);
+
+		circuitBreaker.onSuccess();
+		circuitBreaker.release();
+		assertThat(circuitBreaker.tryAcquire()).isEqualTo(Permission.PERMITTED);
+	}
+
+	/**
+	 * @return the calls permitted to threads acquiring at once, while the current thread
+	 * runs the given action
+	 */
+	private int race(CircuitBreaker circuitBreaker, Runnable action) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger permitted = new AtomicInteger();
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> {
+				try {
+					start.await();
+				}
+				catch (InterruptedException e) {
+					return;
+				}
+				for (int call = 0; call < 100; call++) {
+					if (circuitBreaker.tryAcquire() == Permission.PERMITTED) {
+						permitted.incrementAndGet();
+					}
+				}
+			});
+			threads[i].start();
+		}
+		start.countDown();
+		action.run();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		return permitted.get();
+	}
+
+	private CircuitBreaker circuitBreaker(CircuitBreaker.Settings settings) {
+		return new CircuitBreaker("test", settings, this.now::get);
+	}
+
+	private CircuitBreaker.Settings settings(int slidingWindowSize, int minimumCalls) {
+		CircuitBreaker.Settings settings = new CircuitBreaker.Settings();
+		settings.setSlidingWindowSize(slidingWindowSize);
+		settings.setMinimumCalls(minimumCalls);
+		settings.setFailureRateThreshold(50);
+		return settings;
+	}
+
+	private void call(CircuitBreaker circuitBreaker, boolean success) {
+		assertThat(circuitBreaker.tryAcquire()).isEqualTo(Permission.PERMITTED);
+		if (success) {
+			circuitBreaker.onSuccess();
+		}
+		else {
+			circuitBreaker.onFailure();
+		}
+		circuitBreaker.release();
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.factory;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.springframework.cloud.gateway.filter.ForwardRoutingFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.circuitbreaker.CircuitBreaker;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.cloud.gateway.filter.factory.CircuitBreakerGatewayFilterFactory.FALLBACK_URI_KEY;
+import static org.springframework.cloud.gateway.filter.factory.CircuitBreakerGatewayFilterFactory.MAX_CONCURRENT_CALLS_KEY;
+import static org.springframework.cloud.gateway.filter.factory.CircuitBreakerGatewayFilterFactory.MINIMUM_CALLS_KEY;
+import static org.springframework.cloud.gateway.filter.factory.CircuitBreakerGatewayFilterFactory.SLIDING_WINDOW_SIZE_KEY;
+import static org.springframework.cloud.gateway.filter.factory.CircuitBreakerGatewayFilterFactory.TIMEOUT_KEY;
+import static org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory.NAME_KEY;
+import static org.springframework.tuple.TupleBuilder.tuple;
+
+/**
+ * @author Spencer Gibb
+ */
+public class CircuitBreakerGatewayFilterFactoryTests {
+
+	private final CircuitBreakerGatewayFilterFactory factory = new CircuitBreakerGatewayFilterFactory();
+
+	@Test
+	public void callRunsOnTheSubscribingThread() {
+		GatewayFilter filter = this.factory.apply(tuple().of(NAME_KEY, "direct"));
+		AtomicReference<Thread> thread = new AtomicReference<>();
+
+		filter.filter(exchange(), exchange -> Mono.fromRunnable(() -> thread.set(Thread.currentThread()))).block();
+
+		assertThat(thread.get()).isSameAs(Thread.currentThread());
+	}
+
+	@Test
+	public void serverErrorsOpenTheCircuit() {
+		GatewayFilter filter = this.factory.apply(tuple().of(NAME_KEY, "failing",
+				SLIDING_WINDOW_SIZE_KEY, 2, MINIMUM_CALLS_KEY, 2));
+
+		for (int i = 0; i < 2; i++) {
+			filter.filter(exchange(), exchange -> Mono.fromRunnable(() ->
+					exchange.getResponse().setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR))).block();
+		}
+
+		MockServerWebExchange rejected = exchange();
+		filter.filter(rejected, exchange -> Mono.error(new AssertionError("should not be called"))).block();
+		assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+		assertThat(this.factory.getMetrics().get("failing"))
+				.containsEntry("state", CircuitBreaker.State.OPEN);
+	}
+
+	@Test
+	public void slowCallsTimeOut() {
+		GatewayFilter filter = this.factory.apply(tuple().of(NAME_KEY, "slow", TIMEOUT_KEY, 50));
+		MockServerWebExchange exchange = exchange();
+
+		filter.filter(exchange, e -> Mono.delay(Duration.ofSeconds(10)).then()).block(Duration.ofSeconds(5));
+
+		assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+	}
+
+	@Test
+	public void rejectedCallsServeStaticFallback() {
+		GatewayFilter filter = this.factory.apply(tuple().of(NAME_KEY, "static", MAX_CONCURRENT_CALLS_KEY, 1,
+				FALLBACK_URI_KEY, "classpath:circuitbreaker-fallback.json"));
+		// takes the only call the bulkhead permits
+		CircuitBreaker.Settings settings = new CircuitBreaker.Settings();
+		settings.setMaxConcurrentCalls(1);
+		this.factory.getCircuitBreaker("static", settings).tryAcquire();
+
+		MockServerWebExchange exchange = exchange();
+		filter.filter(exchange, e -> Mono.error(new AssertionError("should not be called"))).block();
+
+		assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(exchange.getResponse().getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+		assertThat(exchange.getResponse().getBodyAsString().block()).contains("\"fallback\":true");
+	}
+
+	@Test
+	public void failedCallsAreForwardedToFallback() {
+		ForwardRoutingFilter forwardRoutingFilter = mock(ForwardRoutingFilter.class);
+		when(forwardRoutingFilter.forward(any(), any())).thenReturn(Mono.empty());
+		GatewayFilter filter = new CircuitBreakerGatewayFilterFactory(forwardRoutingFilter)
+				.apply(tuple().of(NAME_KEY, "forward", FALLBACK_URI_KEY, "forward:/fallback"));
+
+		MockServerWebExchange exchange = exchange();
+		filter.filter(exchange, e -> Mono.error(new IllegalStateException("connection refused"))).block();
+
+		verify(forwardRoutingFilter).forward(exchange, URI.create("forward:/fallback"));
+	}
+
+	@Test
+	public void routesWithTheSameNameShareTheCircuitBreaker() {
+		this.factory.apply(tuple().of(NAME_KEY, "shared"));
+		CircuitBreaker circuitBreaker = this.factory.getCircuitBreaker("shared", new CircuitBreaker.Settings());
+
+		this.factory.apply(tuple().of(NAME_KEY, "shared"));
+		assertThat(this.factory.getCircuitBreaker("shared", new CircuitBreaker.Settings())).isSameAs(circuitBreaker);
+	}
+
+	private MockServerWebExchange exchange() {
+		return MockServerWebExchange.from(MockServerHttpRequest.get("http://localhost/").build());
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.factory;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.LoadBalancerClientFilter;
+import org.springframework.cloud.gateway.filter.hedge.LatencyTracker;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.cloud.gateway.filter.factory.HedgeGatewayFilterFactory.DELAY_KEY;
+import static org.springframework.cloud.gateway.filter.factory.HedgeGatewayFilterFactory.MAX_HEDGE_PERCENT_KEY;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_EXCLUDED_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_INSTANCE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.tuple.TupleBuilder.tuple;
+
+/**
+ * @author Spencer Gibb
+ */
+public class HedgeGatewayFilterFactoryTests {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+	private final HedgeGatewayFilterFactory factory = new HedgeGatewayFilterFactory();
+
+	@Test
+	public void slowAttemptIsHedgedAndCancelled() {
+		GatewayFilter filter = this.factory.apply(tuple().of(DELAY_KEY, "10"));
+		AtomicBoolean cancelled = new AtomicBoolean();
+		MockServerWebExchange exchange = exchange();
+
+		GatewayFilterChain chain = route(Duration.ofSeconds(10), HttpStatus.OK, Duration.ZERO, HttpStatus.OK);
+
+		filter.filter(exchange, routed -> isHedge(routed) ? chain.filter(routed)
+				: chain.filter(routed).doOnCancel(() -> cancelled.set(true))).block(TIMEOUT);
+
+		assertThat(exchange.getResponse().getHeaders().getFirst("X-Attempt")).isEqualTo("hedge");
+		assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(cancelled.get()).isTrue();
+	}
+
+	@Test
+	public void fastAttemptIsNotHedged() throws InterruptedException {
+		GatewayFilter filter = this.factory.apply(tuple().of(DELAY_KEY, "50"));
+		AtomicInteger attempts = new AtomicInteger();
+
+		filter.filter(exchange(), exchange -> Mono.fromRunnable(attempts::incrementAndGet)).block(TIMEOUT);
+		Thread.sleep(100);
+
+		assertThat(attempts.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void failedHedgeWaitsForTheFirstAttempt() {
+		GatewayFilter filter = this.factory.apply(tuple().of(DELAY_KEY, "10"));
+		MockServerWebExchange exchange = exchange();
+
+		filter.filter(exchange, route(Duration.ofMillis(200), HttpStatus.OK, Duration.ZERO,
+				HttpStatus.SERVICE_UNAVAILABLE)).block(TIMEOUT);
+
+		assertThat(exchange.getResponse().getHeaders().getFirst("X-Attempt")).isEqualTo("primary");
+		assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+	}
+
+	@Test
+	public void hedgesAreCapped() {
+		GatewayFilter filter = this.factory.apply(tuple().of(DELAY_KEY, "1", MAX_HEDGE_PERCENT_KEY, 0));
+		AtomicInteger hedges = new AtomicInteger();
+
+		for (int i = 0; i < 12; i++) {
+			MockServerWebExchange exchange = exchange();
+			filter.filter(exchange, route(Duration.ofMillis(50), HttpStatus.OK, Duration.ZERO, HttpStatus.OK))
+					.block(TIMEOUT);
+			if ("hedge".equals(exchange.getResponse().getHeaders().getFirst("X-Attempt"))) {
+				hedges.incrementAndGet();
+			}
+		}
+
+		// 10 hedges saved up, then no more
+		assertThat(hedges.get()).isEqualTo(10);
+	}
+
+	@Test
+	public void percentileDelayNeedsSamples() {
+		GatewayFilter filter = this.factory.apply(tuple().of(DELAY_KEY, "p95"));
+		MockServerWebExchange exchange = exchange();
+
+		filter.filter(exchange, route(Duration.ofMillis(50), HttpStatus.OK, Duration.ZERO, HttpStatus.OK))
+				.block(TIMEOUT);
+
+		assertThat(exchange.getResponse().getHeaders().getFirst("X-Attempt")).isEqualTo("primary");
+	}
+
+	@Test
+	public void latencyPercentile() {
+		LatencyTracker tracker = new LatencyTracker(95);
+		for (int i = 1; i <= 100; i++) {
+			tracker.record(i);
+			if (i < 100) {
+				assertThat(tracker.getPercentileNanos(100)).isEqualTo(-1);
+			}
+		}
+		assertThat(tracker.getPercentileNanos(100)).isEqualTo(95);
+	}
+
+	@Test
+	public void loadBalancerAvoidsExcludedInstances() {
+		LoadBalancerClient loadBalancer = mock(LoadBalancerClient.class);
+		when(loadBalancer.choose("service"))
+				.thenReturn(new DefaultServiceInstance("service", "host1", 8080, false))
+				.thenReturn(new DefaultServiceInstance("service", "host2", 8080, false));
+		MockServerWebExchange exchange = exchange();
+		exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, URI.create("lb://service/path"));
+		exchange.getAttributes().put(GATEWAY_LOADBALANCER_EXCLUDED_ATTR, Collections.singleton("host1:8080"));
+
+		new LoadBalancerClientFilter(loadBalancer).filter(exchange, e -> Mono.empty()).block(TIMEOUT);
+
+		URI url = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+		assertThat(url).isEqualTo(URI.create("http://host2:8080/path"));
+	}
+
+	@Test
+	public void hedgeExcludesTheInstanceChosenForTheFirstAttempt() {
+		LoadBalancerClient loadBalancer = mock(LoadBalancerClient.class);
+		when(loadBalancer.choose("service"))
+				.thenReturn(new DefaultServiceInstance("service", "::1", 8080, false))
+				.thenReturn(new DefaultServiceInstance("service", "::1", 8080, false))
+				.thenReturn(new DefaultServiceInstance("service", "host2", 8080, false));
+		LoadBalancerClientFilter loadBalancerFilter = new LoadBalancerClientFilter(loadBalancer);
+		GatewayFilter filter = this.factory.apply(tuple().of(DELAY_KEY, "10"));
+		MockServerWebExchange exchange = exchange();
+		exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, URI.create("lb://service/path"));
+
+		filter.filter(exchange, attempt -> loadBalancerFilter.filter(attempt, routed -> {
+			URI url = routed.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+			boolean hedge = isHedge(routed);
+			if (hedge) {
+				// an IPv6 host is bracketed in the URL, but not in the key of its instance
+				assertThat(routed.<Object>getAttribute(GATEWAY_LOADBALANCER_EXCLUDED_ATTR))
+						.isEqualTo(Collections.singleton("::1:8080"));
+			}
+			return Mono.delay(hedge ? Duration.ZERO : Duration.ofSeconds(10))
+					.then(Mono.fromRunnable(() -> routed.getResponse().getHeaders().set("X-Host", url.getHost())));
+		})).block(TIMEOUT);
+
+		assertThat(exchange.getResponse().getHeaders().getFirst("X-Host")).isEqualTo("host2");
+	}
+
+	private MockServerWebExchange exchange() {
+		return MockServerWebExchange.from(MockServerHttpRequest.get("http://localhost/path").build());
+	}
+
+	/**
+	 * Routes the first attempt to {@code host1} and a hedged one, which excludes it, to
+	 * {@code host2}.
+	 */
+	private GatewayFilterChain route(Duration primaryLatency, HttpStatus primaryStatus, Duration hedgeLatency,
+			HttpStatus hedgeStatus) {
+		return exchange -> {
+			boolean hedge = isHedge(exchange);
+			if (hedge) {
+				assertThat(exchange.<Object>getAttribute(GATEWAY_LOADBALANCER_EXCLUDED_ATTR))
+						.isEqualTo(Collections.singleton("host1:8080"));
+			}
+			exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR,
+					URI.create(hedge ? "http://host2:8080" : "http://host1:8080"));
+			exchange.getAttributes().put(GATEWAY_LOADBALANCER_INSTANCE_ATTR, hedge ? "host2:8080" : "host1:8080");
+			return Mono.delay(hedge ? hedgeLatency : primaryLatency).then(Mono.fromRunnable(() -> {
+				exchange.getResponse().getHeaders().set("X-Attempt", hedge ? "hedge" : "primary");
+				exchange.getResponse().setStatusCode(hedge ? hedgeStatus : primaryStatus);
+			}));
+		};
+	}
+
+	private boolean isHedge(ServerWebExchange exchange) {
+		return exchange.getAttribute(GATEWAY_LOADBALANCER_EXCLUDED_ATTR) != null;
+	}
+}
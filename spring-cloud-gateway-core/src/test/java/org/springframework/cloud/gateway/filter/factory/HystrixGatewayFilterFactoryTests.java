@@ -17,6 +17,9 @@
 
 package org.springframework.cloud.gateway.filter.factory;
 
+import java.util.Collections;
+import java.util.Map;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.boot.SpringBootConfiguration;
@@ -28,6 +31,8 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.reactive.function.client.ClientResponse;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -75,9 +80,32 @@ public class HystrixGatewayFilterFactoryTests extends BaseWebClientTests {
 				.verify(DURATION);
 	}
 
+	@Test
+	public void hystrixFilterFallsBack() {
+		Mono<ClientResponse> result = webClient.get()
+				.uri("/delay/3")
+				.header("Host", "www.hystrixfallback.org")
+				.exchange();
+
+		StepVerifier.create(result.flatMap(response -> {
+					assertStatus(response, HttpStatus.OK);
+					return response.bodyToMono(Map.class);
+				}))
+				.consumeNextWith(body -> assertThat(body).containsEntry("from", "fallbackcontroller"))
+				.expectComplete()
+				.verify(DURATION);
+	}
+
 	@EnableAutoConfiguration
 	@SpringBootConfiguration
 	@Import(DefaultTestConfig.class)
-	public static class TestConfig { }
+	@RestController
+	public static class TestConfig {
+
+		@RequestMapping("/fallbackcontroller")
+		public Map<String, String> fallbackcontroller() {
+			return Collections.singletonMap("from", "fallbackcontroller");
+		}
+	}
 
 }
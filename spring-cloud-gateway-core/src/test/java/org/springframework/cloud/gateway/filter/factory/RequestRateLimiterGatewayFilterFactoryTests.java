@@ -10,11 +10,14 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimitAlgorithm;
 import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
 import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
 import org.springframework.cloud.gateway.test.BaseWebClientTests;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
 import org.springframework.mock.web.server.MockServerWebExchange;
@@ -23,8 +26,11 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.tuple.Tuple;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.when;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactory.KEY_RESOLVER_KEY;
+import static org.springframework.cloud.gateway.filter.ratelimit.RateLimitAlgorithm.ALGORITHM_KEY;
 import static org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter.BURST_CAPACITY_KEY;
 import static org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter.REPLENISH_RATE_KEY;
 import static org.springframework.tuple.TupleBuilder.tuple;
@@ -59,19 +65,78 @@ public class RequestRateLimiterGatewayFilterFactoryTests extends BaseWebClientTe
 
 	@Test
 	public void allowedWorks() throws Exception {
-		assertFilterFactory(resolver1, "allowedkey", true, HttpStatus.OK);
+		MockServerWebExchange exchange = assertFilterFactory(resolver1, "allowedkey", true, HttpStatus.OK);
+
+		HttpHeaders headers = exchange.getResponse().getHeaders();
+		assertThat(headers.getFirst(RequestRateLimiterGatewayFilterFactory.LIMIT_HEADER)).isEqualTo("20");
+		assertThat(headers.getFirst(RequestRateLimiterGatewayFilterFactory.REMAINING_HEADER)).isEqualTo("1");
+		assertThat(headers.getFirst(RequestRateLimiterGatewayFilterFactory.RESET_HEADER)).isEqualTo("2");
+		assertThat(headers.containsKey(HttpHeaders.RETRY_AFTER)).isFalse();
 	}
 
 	@Test
 	public void notAllowedWorks() throws Exception {
-		assertFilterFactory(resolver2, "notallowedkey", false, HttpStatus.TOO_MANY_REQUESTS);
+		MockServerWebExchange exchange = assertFilterFactory(resolver2, "notallowedkey", false,
+				HttpStatus.TOO_MANY_REQUESTS);
+
+		HttpHeaders headers = exchange.getResponse().getHeaders();
+		assertThat(headers.getFirst(RequestRateLimiterGatewayFilterFactory.REMAINING_HEADER)).isEqualTo("0");
+		assertThat(headers.getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+	}
+
+	@Test
+	public void unknownTokensLeaveOutRemaining() {
+		RequestRateLimiterGatewayFilterFactory.RateLimitHeaders rateLimitHeaders =
+				new RequestRateLimiterGatewayFilterFactory.RateLimitHeaders(args());
+		HttpHeaders headers = new HttpHeaders();
+
+		rateLimitHeaders.apply(headers, new Response(true, -1));
+
+		assertThat(headers.getFirst(RequestRateLimiterGatewayFilterFactory.LIMIT_HEADER)).isEqualTo("20");
+		assertThat(headers.containsKey(RequestRateLimiterGatewayFilterFactory.REMAINING_HEADER)).isFalse();
+	}
+
+	@Test
+	public void missingBurstCapacityLimitsToTheReplenishRate() {
+		Tuple args = tuple().of(REPLENISH_RATE_KEY, 10);
+		RequestRateLimiterGatewayFilterFactory.RateLimitHeaders rateLimitHeaders =
+				new RequestRateLimiterGatewayFilterFactory.RateLimitHeaders(args);
+		HttpHeaders headers = new HttpHeaders();
+
+		rateLimitHeaders.apply(headers, new Response(true, 9));
+
+		assertThat(RedisRateLimiter.getBurstCapacity(args)).isEqualTo(10);
+		assertThat(headers.getFirst(RequestRateLimiterGatewayFilterFactory.LIMIT_HEADER)).isEqualTo("10");
+		assertThat(headers.getFirst(RequestRateLimiterGatewayFilterFactory.REMAINING_HEADER)).isEqualTo("9");
+	}
+
+	@Test
+	public void unknownAlgorithmFailsWhenTheRouteIsLoaded() {
+		assertThatThrownBy(() -> filterFactory.apply(tuple().of(REPLENISH_RATE_KEY, 10, BURST_CAPACITY_KEY, 20,
+				ALGORITHM_KEY, "gcrra")))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("gcrra");
+	}
+
+	@Test
+	public void algorithmIsParsedOnce() {
+		Tuple args = RateLimitAlgorithm.resolve(tuple().of(REPLENISH_RATE_KEY, 10, ALGORITHM_KEY, "sliding-window"));
+
+		assertThat(args.getValue(ALGORITHM_KEY)).isSameAs(RateLimitAlgorithm.SLIDING_WINDOW);
+		assertThat(args.getInt(REPLENISH_RATE_KEY)).isEqualTo(10);
+		assertThat(RateLimitAlgorithm.resolve(args)).isSameAs(args);
+	}
+
+	private Tuple args() {
+		return tuple().of(REPLENISH_RATE_KEY, 10, BURST_CAPACITY_KEY, 20);
 	}
 
-	private void assertFilterFactory(KeyResolver keyResolver, String key, boolean allowed, HttpStatus expectedStatus) {
+	private MockServerWebExchange assertFilterFactory(KeyResolver keyResolver, String key, boolean allowed,
+			HttpStatus expectedStatus) {
 
-		Tuple args = tuple().build();
+		Tuple args = tuple().of(REPLENISH_RATE_KEY, 10, BURST_CAPACITY_KEY, 20, KEY_RESOLVER_KEY, keyResolver);
 		when(rateLimiter.isAllowed(key, args))
-				.thenReturn(Mono.just(new Response(allowed, 1)));
+				.thenReturn(Mono.just(new Response(allowed, allowed ? 1 : 0)));
 
 
 		MockServerHttpRequest request = MockServerHttpRequest.get("/").build();
@@ -80,9 +145,9 @@ public class RequestRateLimiterGatewayFilterFactoryTests extends BaseWebClientTe
 
 		when(this.filterChain.filter(exchange)).thenReturn(Mono.empty());
 
-		Mono<Void> response = filterFactory.apply(args).filter(exchange, this.filterChain);
-		response.subscribe(aVoid -> assertThat(exchange.getResponse().getStatusCode())
-				.isEqualTo(expectedStatus));
+		filterFactory.apply(args).filter(exchange, this.filterChain).block();
+		assertThat(exchange.getResponse().getStatusCode()).isEqualTo(expectedStatus);
+		return exchange;
 
 	}
 
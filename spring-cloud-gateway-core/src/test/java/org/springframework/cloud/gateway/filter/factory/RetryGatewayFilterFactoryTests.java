@@ -0,0 +1,177 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.factory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.retry.RetryBudget;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.filter.factory.RetryGatewayFilterFactory.BUDGET_PERCENT_KEY;
+import static org.springframework.cloud.gateway.filter.factory.RetryGatewayFilterFactory.FIRST_BACKOFF_KEY;
+import static org.springframework.cloud.gateway.filter.factory.RetryGatewayFilterFactory.MAX_BODY_SIZE_KEY;
+import static org.springframework.cloud.gateway.filter.factory.RetryGatewayFilterFactory.METHODS_KEY;
+import static org.springframework.cloud.gateway.filter.factory.RetryGatewayFilterFactory.RETRIES_KEY;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ALREADY_ROUTED_ATTR;
+import static org.springframework.tuple.TupleBuilder.tuple;
+
+/**
+ * @author Spencer Gibb
+ */
+public class RetryGatewayFilterFactoryTests {
+
+	private final RetryGatewayFilterFactory factory = new RetryGatewayFilterFactory();
+
+	@Test
+	public void retryableStatusIsRetriedUntilItSucceeds() {
+		GatewayFilter filter = this.factory.apply(tuple().of(RETRIES_KEY, 3, FIRST_BACKOFF_KEY, 0));
+		AtomicInteger attempts = new AtomicInteger();
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/").build());
+
+		filter.filter(exchange, routed -> Mono.fromRunnable(() -> {
+			assertThat(routed.getAttributes()).doesNotContainKey(GATEWAY_ALREADY_ROUTED_ATTR);
+			routed.getAttributes().put(GATEWAY_ALREADY_ROUTED_ATTR, true);
+			routed.getResponse().setStatusCode(attempts.incrementAndGet() < 3 ? HttpStatus.BAD_GATEWAY : HttpStatus.OK);
+		})).block();
+
+		assertThat(attempts.get()).isEqualTo(3);
+		assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+	}
+
+	@Test
+	public void lastResponseIsKeptWhenOutOfRetries() {
+		GatewayFilter filter = this.factory.apply(tuple().of(RETRIES_KEY, 2, FIRST_BACKOFF_KEY, 0));
+		AtomicInteger attempts = new AtomicInteger();
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/").build());
+
+		filter.filter(exchange, routed -> Mono.fromRunnable(() -> {
+			attempts.incrementAndGet();
+			routed.getResponse().getHeaders().add("X-Attempt", "true");
+			routed.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+		})).block();
+
+		assertThat(attempts.get()).isEqualTo(3);
+		assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+		assertThat(exchange.getResponse().getHeaders().get("X-Attempt")).hasSize(1);
+	}
+
+	@Test
+	public void exceptionsAreRetried() {
+		GatewayFilter filter = this.factory.apply(tuple().of(RETRIES_KEY, 1, FIRST_BACKOFF_KEY, 0));
+		AtomicInteger attempts = new AtomicInteger();
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/").build());
+
+		filter.filter(exchange, routed -> attempts.incrementAndGet() == 1
+				? Mono.error(new IOException("connection reset")) : Mono.empty()).block();
+
+		assertThat(attempts.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void nonIdempotentMethodsAreNotRetried() {
+		GatewayFilter filter = this.factory.apply(tuple().of(RETRIES_KEY, 3, FIRST_BACKOFF_KEY, 0));
+		AtomicInteger attempts = new AtomicInteger();
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/").build());
+
+		filter.filter(exchange, routed -> Mono.fromRunnable(() -> {
+			attempts.incrementAndGet();
+			routed.getResponse().setStatusCode(HttpStatus.BAD_GATEWAY);
+		})).block();
+
+		assertThat(attempts.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void bodyIsReplayed() {
+		GatewayFilter filter = this.factory.apply(tuple().of(RETRIES_KEY, 1, FIRST_BACKOFF_KEY, 0,
+				METHODS_KEY, "POST"));
+		List<String> bodies = new ArrayList<>();
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/").body("hello"));
+
+		filter.filter(exchange, routed -> DataBufferUtils.join(routed.getRequest().getBody())
+				.doOnNext(buffer -> {
+					bodies.add(StandardCharsets.UTF_8.decode(buffer.asByteBuffer()).toString());
+					DataBufferUtils.release(buffer);
+					routed.getResponse().setStatusCode(bodies.size() == 1 ? HttpStatus.BAD_GATEWAY : HttpStatus.OK);
+				}).then()).block();
+
+		assertThat(bodies).containsExactly("hello", "hello");
+	}
+
+	@Test
+	public void bodyLargerThanTheBufferIsNotRetried() {
+		GatewayFilter filter = this.factory.apply(tuple().of(RETRIES_KEY, 1, FIRST_BACKOFF_KEY, 0,
+				METHODS_KEY, "POST", MAX_BODY_SIZE_KEY, 2));
+		AtomicInteger attempts = new AtomicInteger();
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/").body("hello"));
+
+		filter.filter(exchange, routed -> DataBufferUtils.join(routed.getRequest().getBody())
+				.doOnNext(buffer -> {
+					DataBufferUtils.release(buffer);
+					attempts.incrementAndGet();
+					routed.getResponse().setStatusCode(HttpStatus.BAD_GATEWAY);
+				}).then()).block();
+
+		assertThat(attempts.get()).isEqualTo(1);
+		assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.BAD_GATEWAY);
+	}
+
+	@Test
+	public void retriesAreCappedByTheBudget() {
+		GatewayFilter filter = this.factory.apply(tuple().of(RETRIES_KEY, 1, FIRST_BACKOFF_KEY, 0,
+				BUDGET_PERCENT_KEY, 0));
+		AtomicInteger attempts = new AtomicInteger();
+
+		for (int i = 0; i < 20; i++) {
+			filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/").build()),
+					routed -> Mono.fromRunnable(() -> {
+						attempts.incrementAndGet();
+						routed.getResponse().setStatusCode(HttpStatus.BAD_GATEWAY);
+					})).block();
+		}
+
+		// 10 retries saved up, then no more
+		assertThat(attempts.get()).isEqualTo(30);
+	}
+
+	@Test
+	public void budgetIsReplenishedByRequests() {
+		RetryBudget budget = new RetryBudget(50, 1);
+		assertThat(budget.tryWithdraw()).isTrue();
+		assertThat(budget.tryWithdraw()).isFalse();
+
+		budget.deposit();
+		assertThat(budget.tryWithdraw()).isFalse();
+		budget.deposit();
+		assertThat(budget.getRetriesLeft()).isEqualTo(1);
+		budget.deposit();
+		assertThat(budget.getRetriesLeft()).isEqualTo(1);
+		assertThat(budget.tryWithdraw()).isTrue();
+	}
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.springframework.cloud.gateway.filter.loadbalancer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.gateway.filter.LoadBalancerClientFilter;
+import org.springframework.cloud.gateway.filter.ratelimit.CookieKeyResolver;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RoutesRefreshedEvent;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.cloud.gateway.handler.predicate.RoutePredicates.alwaysTrue;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_EXCLUDED_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * @author Spencer Gibb
+ */
+public class DiscoveryClientLoadBalancerTests {
+
+	private final DiscoveryClient discoveryClient = mock(DiscoveryClient.class);
+
+	private final ServiceInstanceCache cache = new ServiceInstanceCache(this.discoveryClient, Duration.ZERO, null,
+			Schedulers.immediate());
+
+	@Test
+	public void instancesAreFetchedOnceAndKeptOnRefresh() {
+		when(this.discoveryClient.getInstances("service"))
+				.thenReturn(instances("host1", "host2"))
+				.thenReturn(instances("host2", "host3"));
+
+		ServiceInstances service = this.cache.get("service").block();
+		assertThat(this.cache.get("service").block()).isSameAs(service);
+		verify(this.discoveryClient, times(1)).getInstances("service");
+		LoadBalancedInstance host2 = service.getInstances()[1];
+
+		this.cache.refresh();
+
+		assertThat(service.getInstances()).extracting(LoadBalancedInstance::getKey)
+				.containsExactly("host2:8080", "host3:8080");
+		assertThat(service.getInstances()[0]).isSameAs(host2);
+	}
+
+	@Test
+	public void roundRobinChoosesEachInstanceInTurn() {
+		ServiceInstances service = service("host1", "host2", "host3");
+
+		assertThat(Arrays.asList(choose(LoadBalancerStrategy.ROUND_ROBIN, service, 6)))
+				.extracting(LoadBalancedInstance::getKey)
+				.containsExactly("host1:8080", "host2:8080", "host3:8080", "host1:8080", "host2:8080", "host3:8080");
+	}
+
+	@Test
+	public void randomChoosesAllInstances() {
+		ServiceInstances service = service("host1", "host2", "host3");
+
+		Set<LoadBalancedInstance> chosen = new HashSet<>(Arrays.asList(choose(LoadBalancerStrategy.RANDOM, service, 100)));
+
+		assertThat(chosen).containsExactlyInAnyOrder(service.getInstances());
+	}
+
+	@Test
+	public void powerOfTwoChoicesAvoidsBusyInstances() {
+		ServiceInstances service = service("host1", "host2");
+		service.getInstances()[0].onStart();
+
+		assertThat(Arrays.asList(choose(LoadBalancerStrategy.POWER_OF_TWO_CHOICES, service, 20)))
+				.extracting(LoadBalancedInstance::getKey)
+				.containsOnly("host2:8080");
+	}
+
+	@Test
+	public void leastOutstandingChoosesTheLeastBusyInstance() {
+		ServiceInstances service = service("host1", "host2", "host3");
+		service.getInstances()[0].onStart();
+		service.getInstances()[0].onStart();
+		service.getInstances()[2].onStart();
+
+		assertThat(Arrays.asList(choose(LoadBalancerStrategy.LEAST_OUTSTANDING, service, 10)))
+				.extracting(LoadBalancedInstance::getKey)
+				.containsOnly("host2:8080");
+	}
+
+	@Test
+	public void leastOutstandingSpreadsEquallyBusyInstances() {
+		ServiceInstances service = service("host1", "host2", "host3");
+
+		assertThat(Arrays.asList(choose(LoadBalancerStrategy.LEAST_OUTSTANDING, service, 3)))
+				.extracting(LoadBalancedInstance::getKey)
+				.containsExactly("host1:8080", "host2:8080", "host3:8080");
+	}
+
+	@Test
+	public void peakLatencyIsTakenAtOnceAndDecays() {
+		LoadBalancedInstance instance = service("host1").getInstances()[0];
+		long millis = TimeUnit.MILLISECONDS.toNanos(1);
+
+		instance.observe(10 * millis, 0);
+		assertThat(instance.getLatency(0)).isEqualTo(10 * millis);
+		instance.observe(500 * millis, millis);
+		assertThat(instance.getLatency(millis)).isEqualTo(500 * millis);
+
+		// lower latencies bring the average down gradually
+		instance.observe(10 * millis, 2 * millis);
+		assertThat(instance.getLatency(2 * millis)).isBetween(400.0 * millis, 500.0 * millis);
+		instance.observe(10 * millis, LoadBalancedInstance.DECAY_TIME);
+		assertThat(instance.getLatency(LoadBalancedInstance.DECAY_TIME)).isBetween(10.0 * millis, 200.0 * millis);
+		assertThat(instance.getLatency(100 * LoadBalancedInstance.DECAY_TIME)).isLessThan(millis);
+	}
+
+	@Test
+	public void peakEwmaAvoidsSlowInstances() {
+		ServiceInstances service = service("host1", "host2");
+		LoadBalancedInstance slow = service.getInstances()[0];
+		slow.onStart();
+		slow.onComplete(TimeUnit.SECONDS.toNanos(2));
+		LoadBalancedInstance fast = service.getInstances()[1];
+		fast.onStart();
+		fast.onComplete(TimeUnit.MILLISECONDS.toNanos(5));
+
+		assertThat(Arrays.asList(choose(LoadBalancerStrategy.PEAK_EWMA, service, 20)))
+				.extracting(LoadBalancedInstance::getKey)
+				.containsOnly("host2:8080");
+	}
+
+	@Test
+	public void peakEwmaSendsOneRequestAtATimeToNewInstances() {
+		ServiceInstances service = service("host1", "host2");
+		service.getInstances()[0].onStart();
+		LoadBalancedInstance known = service.getInstances()[1];
+		known.onStart();
+		known.onComplete(TimeUnit.SECONDS.toNanos(1));
+		known.onStart();
+
+		assertThat(LoadBalancerStrategy.PEAK_EWMA.choose(service, exchange())).isSameAs(known);
+	}
+
+	@Test
+	public void noInstances() {
+		ServiceInstances service = service();
+		for (LoadBalancerStrategy strategy : LoadBalancerStrategy.values()) {
+			assertThat(strategy.choose(service, exchange())).isNull();
+		}
+	}
+
+	@Test
+	public void strategyOfTheRoute() {
+		DiscoveryClientLoadBalancer loadBalancer = new DiscoveryClientLoadBalancer(this.cache,
+				LoadBalancerStrategy.ROUND_ROBIN);
+		MockServerWebExchange exchange = exchange();
+		assertThat(loadBalancer.getStrategy(exchange)).isEqualTo(LoadBalancerStrategy.ROUND_ROBIN);
+
+		exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, Route.builder().id("route").uri("lb://service")
+				.predicate(alwaysTrue())
+				.metadata(LoadBalancerStrategy.STRATEGY_METADATA, "power-of-two-choices")
+				.build());
+		assertThat(loadBalancer.getStrategy(exchange)).isEqualTo(LoadBalancerStrategy.POWER_OF_TWO_CHOICES);
+	}
+
+	@Test
+	public void excludedInstancesAreAvoided() {
+		when(this.discoveryClient.getInstances("service")).thenReturn(instances("host1", "host2"));
+		DiscoveryClientLoadBalancer loadBalancer = new DiscoveryClientLoadBalancer(this.cache,
+				LoadBalancerStrategy.ROUND_ROBIN);
+		MockServerWebExchange exchange = exchange();
+		exchange.getAttributes().put(GATEWAY_LOADBALANCER_EXCLUDED_ATTR, Collections.singleton("host1:8080"));
+
+		for (int i = 0; i < 4; i++) {
+			assertThat(loadBalancer.choose("service", exchange).block().getKey()).isEqualTo("host2:8080");
+		}
+	}
+
+	@Test
+	public void consistentHashRoutesAKeyToTheSameInstance() {
+		when(this.discoveryClient.getInstances("service")).thenReturn(instances("host1", "host2", "host3"));
+		DiscoveryClientLoadBalancer loadBalancer = new DiscoveryClientLoadBalancer(this.cache,
+				LoadBalancerStrategy.ROUND_ROBIN);
+
+		Set<String> chosen = new HashSet<>();
+		for (int user = 0; user < 100; user++) {
+			String key = loadBalancer.choose("service", hashedExchange("user" + user)).block().getKey();
+			for (int i = 0; i < 3; i++) {
+				assertThat(loadBalancer.choose("service", hashedExchange("user" + user)).block().getKey())
+						.isEqualTo(key);
+			}
+			chosen.add(key);
+		}
+		assertThat(chosen).containsExactlyInAnyOrder("host1:8080", "host2:8080", "host3:8080");
+	}
+
+	@Test
+	public void consistentHashAvoidsExcludedInstances() {
+		when(this.discoveryClient.getInstances("service")).thenReturn(instances("host1", "host2"));
+		DiscoveryClientLoadBalancer loadBalancer = new DiscoveryClientLoadBalancer(this.cache,
+				LoadBalancerStrategy.ROUND_ROBIN);
+		String key = loadBalancer.choose("service", hashedExchange("user")).block().getKey();
+
+		MockServerWebExchange exchange = hashedExchange("user");
+		exchange.getAttributes().put(GATEWAY_LOADBALANCER_EXCLUDED_ATTR, Collections.singleton(key));
+
+		assertThat(loadBalancer.choose("service", exchange).block().getKey()).isNotEqualTo(key);
+	}
+
+	@Test
+	public void hashKeyOfTheRoute() {
+		KeyResolver bean = exchange -> Mono.just("key");
+		DiscoveryClientLoadBalancer loadBalancer = new DiscoveryClientLoadBalancer(this.cache,
+				LoadBalancerStrategy.CONSISTENT_HASH, Collections.singletonMap("keyResolver", bean), "cookie:SESSION");
+		MockServerWebExchange exchange = exchange();
+		assertThat(loadBalancer.getKeyResolver(exchange)).isInstanceOf(CookieKeyResolver.class);
+
+		exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route(DiscoveryClientLoadBalancer.HASH_KEY_METADATA, "keyResolver"));
+		assertThat(loadBalancer.getKeyResolver(exchange)).isSameAs(bean);
+
+		KeyResolver defaultKeyResolver = loadBalancer.getKeyResolver(exchange());
+		exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route(DiscoveryClientLoadBalancer.HASH_KEY_METADATA, "missing"));
+		assertThat(loadBalancer.getKeyResolver(exchange)).isSameAs(defaultKeyResolver);
+	}
+
+	@Test
+	public void routesWithInvalidMetadataUseTheDefaults() {
+		when(this.discoveryClient.getInstances("service")).thenReturn(instances("host1"));
+		DiscoveryClientLoadBalancer loadBalancer = new DiscoveryClientLoadBalancer(this.cache,
+				LoadBalancerStrategy.ROUND_ROBIN);
+		MockServerWebExchange exchange = exchange();
+		exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route(LoadBalancerStrategy.STRATEGY_METADATA, "fastest"));
+
+		assertThat(loadBalancer.getStrategy(exchange)).isEqualTo(LoadBalancerStrategy.ROUND_ROBIN);
+		assertThat(loadBalancer.choose("service", exchange).block().getKey()).isEqualTo("host1:8080");
+	}
+
+	@Test
+	public void metadataIsParsedAgainForRefreshedRoutes() {
+		DiscoveryClientLoadBalancer loadBalancer = new DiscoveryClientLoadBalancer(this.cache,
+				LoadBalancerStrategy.ROUND_ROBIN);
+		MockServerWebExchange exchange = exchange();
+		Route route = route(LoadBalancerStrategy.STRATEGY_METADATA, "random");
+		loadBalancer.handleRefresh(new RoutesRefreshedEvent(this, Collections.singletonList(route)));
+		exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route);
+		assertThat(loadBalancer.getStrategy(exchange)).isEqualTo(LoadBalancerStrategy.RANDOM);
+
+		Route refreshed = route(LoadBalancerStrategy.STRATEGY_METADATA, "least-outstanding");
+		loadBalancer.handleRefresh(new RoutesRefreshedEvent(this, Collections.singletonList(refreshed)));
+		exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, refreshed);
+		assertThat(loadBalancer.getStrategy(exchange)).isEqualTo(LoadBalancerStrategy.LEAST_OUTSTANDING);
+	}
+
+	@Test
+	public void filterRoutesToTheChosenInstance() {
+		when(this.discoveryClient.getInstances("service")).thenReturn(instances("host1"));
+		LoadBalancerClientFilter filter = new LoadBalancerClientFilter(
+				new DiscoveryClientLoadBalancer(this.cache, LoadBalancerStrategy.ROUND_ROBIN));
+		MockServerWebExchange exchange = exchange();
+		exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, URI.create("lb://service/a%20b?c=d%26e"));
+		int[] inFlight = new int[1];
+
+		filter.filter(exchange, routed -> Mono.fromRunnable(() ->
+				inFlight[0] = this.cache.getIfPresent("service").getInstances()[0].getInFlight())).block();
+
+		URI url = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+		assertThat(url.toString()).isEqualTo("http://host1:8080/a%20b?c=d%26e");
+		assertThat(inFlight[0]).isEqualTo(1);
+		assertThat(this.cache.getIfPresent("service").getInstances()[0].getInFlight()).isEqualTo(0);
+	}
+
+	private LoadBalancedInstance[] choose(LoadBalancerStrategy strategy, ServiceInstances service, int times) {
+		LoadBalancedInstance[] chosen = new LoadBalancedInstance[times];
+		for (int i = 0; i < times; i++) {
+			chosen[i] = strategy.choose(service, exchange());
+		}
+		return chosen;
+	}
+
+	private ServiceInstances service(String... hosts) {
+		ServiceInstances service = new ServiceInstances("service");
+		service.update(instances(hosts));
+		return service;
+	}
+
+	private List<ServiceInstance> instances(String... hosts) {
+		ServiceInstance[] instances = new ServiceInstance[hosts.length];
+		for (int i = 0; i < hosts.length; i++) {
+			instances[i] = new DefaultServiceInstance("service", hosts[i], 8080, false);
+		}
+		return Arrays.asList(instances);
+	}
+
+	private MockServerWebExchange hashedExchange(String user) {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("http://localhost/")
+				.header("X-User", user).build());
+		Route route = Route.builder().id("route").uri("lb://service")
+				.predicate(alwaysTrue())
+				.metadata(LoadBalancerStrategy.STRATEGY_METADATA, "consistent-hash")
+				.metadata(DiscoveryClientLoadBalancer.HASH_KEY_METADATA, "header:X-User")
+				.build();
+		exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route);
+		return exchange;
+	}
+
+	private Route route(String metadataKey, String metadataValue) {
+		return Route.builder().id("route").uri("lb://service")
+				.predicate(alwaysTrue())
+				.metadata(metadataKey, metadataValue)
+				.build();
+	}
+
+	private MockServerWebExchange exchange() {
+		return MockServerWebExchange.from(MockServerHttpRequest.get("http://localhost/").build());
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.springframework.cloud.gateway.filter.loadbalancer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spencer Gibb
+ */
+public class HashRingTests {
+
+	private static final int KEYS = 10000;
+
+	@Test
+	public void removingAnInstanceOnlyMovesItsKeys() {
+		LoadBalancedInstance[] instances = instances(10);
+		HashRing ring = new HashRing(instances);
+		LoadBalancedInstance removed = instances[4];
+		LoadBalancedInstance[] remaining = Arrays.stream(instances).filter(instance -> instance != removed)
+				.toArray(LoadBalancedInstance[]::new);
+		HashRing shrunk = new HashRing(remaining);
+
+		int moved = 0;
+		for (int i = 0; i < KEYS; i++) {
+			String key = "user" + i;
+			LoadBalancedInstance before = ring.get(key, null);
+			LoadBalancedInstance after = shrunk.get(key, null);
+			if (before != removed) {
+				assertThat(after).as(key).isSameAs(before);
+			}
+			else {
+				assertThat(after).isNotSameAs(removed);
+				moved++;
+			}
+		}
+		// about a tenth of the keys
+		assertThat(moved).isBetween(KEYS / 20, KEYS * 3 / 20);
+	}
+
+	@Test
+	public void addingAnInstanceOnlyMovesKeysToIt() {
+		LoadBalancedInstance[] instances = instances(10);
+		HashRing ring = new HashRing(Arrays.copyOf(instances, 9));
+		HashRing grown = new HashRing(instances);
+
+		for (int i = 0; i < KEYS; i++) {
+			String key = "user" + i;
+			LoadBalancedInstance after = grown.get(key, null);
+			if (after != instances[9]) {
+				assertThat(after).as(key).isSameAs(ring.get(key, null));
+			}
+		}
+	}
+
+	@Test
+	public void keysAreSpreadOverTheInstances() {
+		LoadBalancedInstance[] instances = instances(10);
+		HashRing ring = new HashRing(instances);
+
+		Map<LoadBalancedInstance, Integer> counts = new HashMap<>();
+		for (int i = 0; i < KEYS; i++) {
+			counts.merge(ring.get("user" + i, null), 1, Integer::sum);
+		}
+
+		assertThat(counts).hasSize(10);
+		assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(KEYS / 20, KEYS * 3 / 20));
+	}
+
+	@Test
+	public void orderOfTheInstancesDoesNotMatter() {
+		LoadBalancedInstance[] instances = instances(5);
+		LoadBalancedInstance[] reversed = instances.clone();
+		Collections.reverse(Arrays.asList(reversed));
+		HashRing ring = new HashRing(instances);
+		HashRing reversedRing = new HashRing(reversed);
+
+		for (int i = 0; i < 1000; i++) {
+			assertThat(reversedRing.get("user" + i, null)).isSameAs(ring.get("user" + i, null));
+		}
+	}
+
+	@Test
+	public void excludedInstancesAreSkippedAsIfTheyHadLeft() {
+		LoadBalancedInstance[] instances = instances(5);
+		HashRing ring = new HashRing(instances);
+
+		for (int i = 0; i < 1000; i++) {
+			String key = "user" + i;
+			LoadBalancedInstance chosen = ring.get(key, null);
+			LoadBalancedInstance[] remaining = Arrays.stream(instances).filter(instance -> instance != chosen)
+					.toArray(LoadBalancedInstance[]::new);
+
+			assertThat(ring.get(key, Collections.singleton(chosen.getKey())))
+					.isSameAs(new HashRing(remaining).get(key, null));
+		}
+	}
+
+	@Test
+	public void singleExcludedInstanceIsStillChosen() {
+		LoadBalancedInstance[] instances = instances(1);
+
+		assertThat(new HashRing(instances).get("user", Collections.singleton("host0:8080"))).isSameAs(instances[0]);
+		assertThat(new HashRing(new LoadBalancedInstance[0]).get("user", null)).isNull();
+	}
+
+	private LoadBalancedInstance[] instances(int count) {
+		LoadBalancedInstance[] instances = new LoadBalancedInstance[count];
+		for (int i = 0; i < count; i++) {
+			instances[i] = new LoadBalancedInstance(new DefaultServiceInstance("service", "host" + i, 8080, false));
+		}
+		return instances;
+	}
+}
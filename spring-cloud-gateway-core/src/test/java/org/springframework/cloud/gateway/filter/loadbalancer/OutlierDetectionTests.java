@@ -0,0 +1,170 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.springframework.cloud.gateway.filter.loadbalancer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.gateway.filter.LoadBalancerClientFilter;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+
+/**
+ * @author Spencer Gibb
+ */
+public class OutlierDetectionTests {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private final AtomicLong clock = new AtomicLong(SECOND);
+
+	@Test
+	public void consecutiveFailuresEjectAnInstanceForAWhile() {
+		ServiceInstances service = service(new OutlierDetection(3, 0, 1, Duration.ofSeconds(10),
+				Duration.ofSeconds(30), Duration.ofSeconds(300), 10), "host1", "host2", "host3");
+		LoadBalancedInstance host1 = service.getAllInstances()[0];
+
+		complete(host1, true, true, false, true, true);
+		assertThat(host1.isEjected()).isFalse();
+		complete(host1, true);
+		assertThat(host1.isEjected()).isTrue();
+		assertThat(keys(service)).containsExactly("host2:8080", "host3:8080");
+
+		this.clock.addAndGet(29 * SECOND);
+		assertThat(keys(service)).containsExactly("host2:8080", "host3:8080");
+		this.clock.addAndGet(SECOND);
+		assertThat(keys(service)).containsExactly("host1:8080", "host2:8080", "host3:8080");
+		assertThat(host1.isEjected()).isFalse();
+	}
+
+	@Test
+	public void ejectionTimeDoublesUpToTheMaximum() {
+		OutlierDetection outlierDetection = new OutlierDetection(1, 0, 1, Duration.ofSeconds(10),
+				Duration.ofSeconds(30), Duration.ofSeconds(100), 10);
+
+		assertThat(outlierDetection.getEjectionNanos(1)).isEqualTo(30 * SECOND);
+		assertThat(outlierDetection.getEjectionNanos(2)).isEqualTo(60 * SECOND);
+		assertThat(outlierDetection.getEjectionNanos(3)).isEqualTo(100 * SECOND);
+		assertThat(outlierDetection.getEjectionNanos(100)).isEqualTo(100 * SECOND);
+
+		ServiceInstances service = service(outlierDetection, "host1", "host2");
+		LoadBalancedInstance host1 = service.getAllInstances()[0];
+		complete(host1, true);
+		this.clock.addAndGet(30 * SECOND);
+		assertThat(keys(service)).hasSize(2);
+		complete(host1, true);
+		this.clock.addAndGet(30 * SECOND);
+		assertThat(keys(service)).containsExactly("host2:8080");
+		this.clock.addAndGet(30 * SECOND);
+		assertThat(keys(service)).hasSize(2);
+	}
+
+	@Test
+	public void failureRateEjectsAnInstance() {
+		ServiceInstances service = service(new OutlierDetection(0, 50, 4, Duration.ofSeconds(10),
+				Duration.ofSeconds(30), Duration.ofSeconds(300), 10), "host1", "host2");
+		LoadBalancedInstance host1 = service.getAllInstances()[0];
+
+		complete(host1, false, true, false);
+		assertThat(host1.isEjected()).isFalse();
+		complete(host1, true);
+		assertThat(host1.isEjected()).isTrue();
+	}
+
+	@Test
+	public void failureRateIsComputedPerInterval() {
+		ServiceInstances service = service(new OutlierDetection(0, 50, 4, Duration.ofSeconds(10),
+				Duration.ofSeconds(30), Duration.ofSeconds(300), 10), "host1", "host2");
+		LoadBalancedInstance host1 = service.getAllInstances()[0];
+
+		complete(host1, true, true, true);
+		this.clock.addAndGet(10 * SECOND);
+		complete(host1, false, false, false, true);
+		assertThat(host1.isEjected()).isFalse();
+	}
+
+	@Test
+	public void ejectedInstancesAreCapped() {
+		ServiceInstances service = service(new OutlierDetection(1, 0, 1, Duration.ofSeconds(10),
+				Duration.ofSeconds(30), Duration.ofSeconds(300), 10), "host1", "host2", "host3");
+
+		for (LoadBalancedInstance instance : service.getAllInstances()) {
+			complete(instance, true);
+		}
+
+		assertThat(keys(service)).containsExactly("host2:8080", "host3:8080");
+	}
+
+	@Test
+	public void lastInstanceIsNeverEjected() {
+		ServiceInstances service = service(new OutlierDetection(1, 0, 1, Duration.ofSeconds(10),
+				Duration.ofSeconds(30), Duration.ofSeconds(300), 100), "host1");
+
+		complete(service.getAllInstances()[0], true, true);
+
+		assertThat(keys(service)).containsExactly("host1:8080");
+	}
+
+	@Test
+	public void serverErrorsRoutedByTheFilterEjectTheInstance() {
+		ServiceInstances service = service(new OutlierDetection(2, 0, 1, Duration.ofSeconds(10),
+				Duration.ofSeconds(30), Duration.ofSeconds(300), 50), "host1", "host2");
+		LoadBalancerClientFilter filter = new LoadBalancerClientFilter(
+				(serviceId, exchange) -> Mono.just(service.getAllInstances()[0]));
+
+		for (int i = 0; i < 2; i++) {
+			MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/").build());
+			exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, URI.create("lb://service/"));
+			filter.filter(exchange, routed -> Mono.fromRunnable(() ->
+					routed.getResponse().setStatusCode(HttpStatus.BAD_GATEWAY))).block();
+		}
+
+		assertThat(keys(service)).containsExactly("host2:8080");
+		assertThat(service.getAllInstances()[0].getInFlight()).isEqualTo(0);
+	}
+
+	private ServiceInstances service(OutlierDetection outlierDetection, String... hosts) {
+		ServiceInstances service = new ServiceInstances("service", outlierDetection, this.clock::get);
+		DefaultServiceInstance[] instances = new DefaultServiceInstance[hosts.length];
+		for (int i = 0; i < hosts.length; i++) {
+			instances[i] = new DefaultServiceInstance("service", hosts[i], 8080, false);
+		}
+		service.update(Arrays.asList(instances));
+		return service;
+	}
+
+	private void complete(LoadBalancedInstance instance, boolean... failures) {
+		for (boolean failed : failures) {
+			instance.onStart();
+			instance.onComplete(0, failed);
+		}
+	}
+
+	private String[] keys(ServiceInstances service) {
+		return Arrays.stream(service.getInstances()).map(LoadBalancedInstance::getKey).toArray(String[]::new);
+	}
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.ratelimit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.tuple.Tuple;
+import reactor.core.publisher.Flux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.tuple.TupleBuilder.tuple;
+
+/**
+ * @author Spencer Gibb
+ */
+public class LocalRateLimiterTests {
+
+	private final AtomicLong now = new AtomicLong();
+
+	@Test
+	public void localRateLimiterWorks() {
+		LocalRateLimiter rateLimiter = new LocalRateLimiter(100, this.now::get);
+		int replenishRate = 10;
+		int burstCapacity = 2 * replenishRate;
+
+		// Bursts work
+		for (int i = 0; i < burstCapacity; i++) {
+			Response response = rateLimiter.isAllowed("user", RedisRateLimiter.args(replenishRate, burstCapacity)).block();
+			assertThat(response.isAllowed()).as("Burst # %s is allowed", i).isTrue();
+			assertThat(response.getTokensRemaining()).isEqualTo(burstCapacity - i - 1);
+		}
+		assertThat(rateLimiter.tryAcquire("user", replenishRate, burstCapacity, 1).isAllowed()).isFalse();
+
+		// After the burst is done, check the steady state
+		this.now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		for (int i = 0; i < replenishRate; i++) {
+			assertThat(rateLimiter.tryAcquire("user", replenishRate, burstCapacity, 1).isAllowed())
+					.as("steady state # %s is allowed", i).isTrue();
+		}
+		assertThat(rateLimiter.tryAcquire("user", replenishRate, burstCapacity, 1).isAllowed()).isFalse();
+
+		// other keys have their own bucket
+		assertThat(rateLimiter.tryAcquire("other", replenishRate, burstCapacity, 1).isAllowed()).isTrue();
+	}
+
+	@Test
+	public void requestedTokensAreTaken() {
+		LocalRateLimiter rateLimiter = new LocalRateLimiter(100, this.now::get);
+
+		Response response = rateLimiter.isAllowed("user", RedisRateLimiter.args(10, 20, 15)).block();
+		assertThat(response.isAllowed()).isTrue();
+		assertThat(response.getTokensRemaining()).isEqualTo(5);
+
+		assertThat(rateLimiter.isAllowed("user", RedisRateLimiter.args(10, 20, 15)).block().isAllowed()).isFalse();
+	}
+
+	@Test
+	public void missingBurstCapacityDefaultsToTheReplenishRate() {
+		LocalRateLimiter rateLimiter = new LocalRateLimiter(100, this.now::get);
+		Tuple args = tuple().of(RedisRateLimiter.REPLENISH_RATE_KEY, 10);
+
+		for (int i = 0; i < 10; i++) {
+			Response response = rateLimiter.isAllowed("user", args).block();
+			assertThat(response.isAllowed()).as("request # %s is allowed", i).isTrue();
+			assertThat(response.getTokensRemaining()).isEqualTo(9 - i);
+		}
+		assertThat(rateLimiter.isAllowed("user", args).block().isAllowed()).isFalse();
+	}
+
+	@Test
+	public void slidingWindowWeighsThePreviousWindow() {
+		LocalRateLimiter rateLimiter = new LocalRateLimiter(100, this.now::get);
+		Tuple args = tuple().of(RedisRateLimiter.REPLENISH_RATE_KEY, 10, RedisRateLimiter.BURST_CAPACITY_KEY, 10,
+				RateLimitAlgorithm.ALGORITHM_KEY, "sliding-window");
+
+		// a window of one second admits 10 requests
+		for (int i = 0; i < 10; i++) {
+			assertThat(rateLimiter.isAllowed("user", args).block().isAllowed()).as("request # %s is allowed", i).isTrue();
+		}
+		assertThat(rateLimiter.isAllowed("user", args).block().isAllowed()).isFalse();
+
+		// a quarter into the next window, the previous one still counts for 7.5 requests
+		this.now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1250));
+		assertThat(rateLimiter.isAllowed("user", args).block().isAllowed()).isTrue();
+		assertThat(rateLimiter.isAllowed("user", args).block().isAllowed()).isTrue();
+		assertThat(rateLimiter.isAllowed("user", args).block().isAllowed()).isFalse();
+
+		// two windows later nothing counts anymore
+		this.now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+		Response response = rateLimiter.isAllowed("user", args).block();
+		assertThat(response.isAllowed()).isTrue();
+		assertThat(response.getTokensRemaining()).isEqualTo(9);
+	}
+
+	@Test
+	public void gcraMatchesTheTokenBucket() {
+		LocalRateLimiter rateLimiter = new LocalRateLimiter(100, this.now::get);
+		for (int i = 0; i < 50; i++) {
+			this.now.addAndGet(TimeUnit.MILLISECONDS.toNanos(i % 7 * 30));
+			Response gcra = rateLimiter.tryAcquire("gcra", RateLimitAlgorithm.GCRA, 10, 5, 1);
+			Response tokenBucket = rateLimiter.tryAcquire("bucket", RateLimitAlgorithm.TOKEN_BUCKET, 10, 5, 1);
+			assertThat(gcra.isAllowed()).as("request # %s", i).isEqualTo(tokenBucket.isAllowed());
+			assertThat(gcra.getTokensRemaining()).as("request # %s", i).isEqualTo(tokenBucket.getTokensRemaining());
+		}
+	}
+
+	@Test
+	public void bucketsNeverHoldMoreThanTheirCapacity() {
+		LocalRateLimiter rateLimiter = new LocalRateLimiter(100, this.now::get);
+		rateLimiter.tryAcquire("user", 10, 5, 5);
+
+		this.now.addAndGet(TimeUnit.HOURS.toNanos(1));
+
+		Response response = rateLimiter.tryAcquire("user", 10, 5, 6);
+		assertThat(response.isAllowed()).isFalse();
+		assertThat(response.getTokensRemaining()).isEqualTo(5);
+		assertThat(rateLimiter.tryAcquire("user", 10, 5, 5).isAllowed()).isTrue();
+	}
+
+	@Test
+	public void keysAreBounded() {
+		LocalRateLimiter rateLimiter = new LocalRateLimiter(10, this.now::get);
+		for (int i = 0; i < 100; i++) {
+			rateLimiter.tryAcquire("user" + i, 1, 1, 1);
+		}
+		assertThat(rateLimiter.size()).isLessThanOrEqualTo(10);
+
+		// refilled buckets expire
+		this.now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+		rateLimiter.tryAcquire("new", 1, 1, 1);
+		assertThat(rateLimiter.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void keysAreEvictedInBatches() {
+		LocalRateLimiter rateLimiter = new LocalRateLimiter(100, this.now::get);
+		for (int i = 0; i < 10_000; i++) {
+			rateLimiter.tryAcquire("user" + i, 1, 1, 1);
+			assertThat(rateLimiter.size()).isLessThanOrEqualTo(100);
+		}
+		// each eviction makes room for 10 new keys
+		assertThat(rateLimiter.evictions()).isPositive().isLessThanOrEqualTo(10_000 / 10);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void preCheckKeepsTheTokensOfRequestsRedisAllows() {
+		ReactiveRedisTemplate<String, String> redisTemplate = mock(ReactiveRedisTemplate.class);
+		RedisScript<List<Long>> script = mock(RedisScript.class);
+		when(redisTemplate.execute(eq(script), anyList(), anyList()))
+				.thenReturn(Flux.just(Arrays.asList(0L, 0L)), Flux.just(Arrays.asList(0L, 0L)),
+						Flux.just(Arrays.asList(0L, 0L)), Flux.just(Arrays.asList(1L, 0L)));
+		RedisRateLimiter rateLimiter = new RedisRateLimiter(redisTemplate, script);
+		rateLimiter.setLocalRateLimiter(new LocalRateLimiter(100, this.now::get));
+
+		// denied by Redis, e.g. used up on other instances
+		for (int i = 0; i < 3; i++) {
+			assertThat(rateLimiter.isAllowed("user", RedisRateLimiter.args(1, 2)).block().isAllowed())
+					.as("request # %s is allowed", i).isFalse();
+		}
+		// the local bucket of 2 tokens is still full
+		assertThat(rateLimiter.isAllowed("user", RedisRateLimiter.args(1, 2)).block().isAllowed()).isTrue();
+		verify(redisTemplate, times(4)).execute(eq(script), anyList(), anyList());
+	}
+
+	@Test
+	public void concurrentRequestsNeverExceedCapacity() throws Exception {
+		LocalRateLimiter rateLimiter = new LocalRateLimiter(100, this.now::get);
+		int threads = 8;
+		int burstCapacity = 1000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				results.add(executor.submit(() -> {
+					start.await();
+					int allowed = 0;
+					for (int i = 0; i < burstCapacity; i++) {
+						if (rateLimiter.tryAcquire("user", 1, burstCapacity, 1).isAllowed()) {
+							allowed++;
+						}
+					}
+					return allowed;
+				}));
+			}
+			start.countDown();
+			int allowed = 0;
+			for (Future<Integer> result : results) {
+				allowed += result.get(10, TimeUnit.SECONDS);
+			}
+			assertThat(allowed).isEqualTo(burstCapacity);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.ratelimit;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Spencer Gibb
+ */
+@SuppressWarnings("unchecked")
+public class RedisRateLimiterBatcherTests {
+
+	private final ReactiveRedisTemplate<String, String> redisTemplate = mock(ReactiveRedisTemplate.class);
+
+	private final RedisScript<List<Long>> script = mock(RedisScript.class);
+
+	@Test
+	public void fullBatchIsSentAtOnceAndResultsAreFannedOut() {
+		when(this.redisTemplate.execute(eq(this.script), anyList(), anyList()))
+				.thenReturn(Flux.just(Arrays.asList(1L, 9L, 0L, 0L)));
+		RedisRateLimiterBatcher batcher = new RedisRateLimiterBatcher(this.redisTemplate, this.script, 2, 2,
+				Duration.ofHours(1));
+
+		Mono<List<Long>> first = batcher.execute(Arrays.asList("a.tokens", "a.timestamp"), Arrays.asList("10", "20")).cache();
+		Mono<List<Long>> second = batcher.execute(Arrays.asList("b.tokens", "b.timestamp"), Arrays.asList("1", "1")).cache();
+		first.subscribe();
+		second.subscribe();
+
+		assertThat(first.block(Duration.ofSeconds(1))).containsExactly(1L, 9L);
+		assertThat(second.block(Duration.ofSeconds(1))).containsExactly(0L, 0L);
+		verify(this.redisTemplate, times(1)).execute(this.script,
+				Arrays.asList("a.tokens", "a.timestamp", "b.tokens", "b.timestamp"),
+				Arrays.asList("10", "20", "1", "1"));
+	}
+
+	@Test
+	public void partialBatchIsSentOnceTheWindowElapses() {
+		when(this.redisTemplate.execute(eq(this.script), anyList(), anyList()))
+				.thenReturn(Flux.just(Arrays.asList(1L, 5L)));
+		VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+		RedisRateLimiterBatcher batcher = new RedisRateLimiterBatcher(this.redisTemplate, this.script, 2, 10,
+				Duration.ofMillis(1), scheduler);
+
+		Mono<List<Long>> result = batcher.execute(Collections.singletonList("a"), Collections.singletonList("1")).cache();
+		result.subscribe();
+		verify(this.redisTemplate, times(0)).execute(any(RedisScript.class), anyList(), anyList());
+
+		scheduler.advanceTimeBy(Duration.ofMillis(1));
+
+		assertThat(result.block(Duration.ofSeconds(1))).containsExactly(1L, 5L);
+	}
+
+	@Test
+	public void errorsArePropagatedToEveryCall() {
+		when(this.redisTemplate.execute(eq(this.script), anyList(), anyList()))
+				.thenReturn(Flux.error(new IllegalStateException("redis down")));
+		RedisRateLimiterBatcher batcher = new RedisRateLimiterBatcher(this.redisTemplate, this.script, 2, 1,
+				Duration.ofHours(1));
+
+		assertThatThrownBy(() -> batcher.execute(Collections.singletonList("a"), Collections.singletonList("1")).block())
+				.hasMessageContaining("redis down");
+	}
+}
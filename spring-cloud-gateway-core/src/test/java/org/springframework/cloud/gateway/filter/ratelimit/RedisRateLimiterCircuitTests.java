@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.filter.ratelimit;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Spencer Gibb
+ */
+@SuppressWarnings("unchecked")
+public class RedisRateLimiterCircuitTests {
+
+	private final VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+
+	@Test
+	public void opensAfterConsecutiveFailuresAndClosesOnceProbeSucceeds() {
+		AtomicBoolean redisUp = new AtomicBoolean();
+		AtomicInteger probes = new AtomicInteger();
+		RedisRateLimiterCircuit circuit = new RedisRateLimiterCircuit(() -> {
+			probes.incrementAndGet();
+			return redisUp.get() ? Mono.just(true) : Mono.error(new IllegalStateException("redis down"));
+		}, 3, Duration.ofSeconds(1), this.scheduler);
+
+		circuit.onFailure(new IllegalStateException());
+		circuit.onFailure(new IllegalStateException());
+		circuit.onSuccess();
+		circuit.onFailure(new IllegalStateException());
+		circuit.onFailure(new IllegalStateException());
+		assertThat(circuit.isOpen()).as("failures are not consecutive").isFalse();
+
+		circuit.onFailure(new IllegalStateException());
+		assertThat(circuit.isOpen()).isTrue();
+		assertThat(circuit.getMetrics()).containsEntry("state", RedisRateLimiterCircuit.State.OPEN)
+				.containsEntry("trips", 1L);
+
+		this.scheduler.advanceTimeBy(Duration.ofSeconds(2));
+		assertThat(probes.get()).isEqualTo(2);
+		assertThat(circuit.isOpen()).isTrue();
+
+		redisUp.set(true);
+		this.scheduler.advanceTimeBy(Duration.ofSeconds(1));
+		assertThat(circuit.isOpen()).isFalse();
+		assertThat(circuit.getMetrics()).containsEntry("consecutiveFailures", 0);
+
+		// probes stop once closed
+		this.scheduler.advanceTimeBy(Duration.ofSeconds(5));
+		assertThat(probes.get()).isEqualTo(3);
+	}
+
+	@Test
+	public void fallbackIsNotConsultedWhileRedisAnswers() {
+		ReactiveRedisTemplate<String, String> redisTemplate = mock(ReactiveRedisTemplate.class);
+		RedisScript<List<Long>> script = mock(RedisScript.class);
+		when(redisTemplate.execute(eq(script), anyList(), anyList()))
+				.thenReturn(Flux.just(Arrays.asList(1L, 5L)));
+
+		RedisRateLimiter rateLimiter = new RedisRateLimiter(redisTemplate, script);
+		rateLimiter.setFallbackRateLimiter(new LocalRateLimiter());
+		rateLimiter.setCircuit(new RedisRateLimiterCircuit(Mono::empty, 2, Duration.ofHours(1), this.scheduler));
+
+		// more requests than the fallback would allow
+		for (int i = 0; i < 5; i++) {
+			Response response = rateLimiter.isAllowed("user", RedisRateLimiter.args(1, 1)).block();
+			assertThat(response.isAllowed()).as("request # %s is allowed", i).isTrue();
+			assertThat(response.getTokensRemaining()).isEqualTo(5);
+		}
+	}
+
+	@Test
+	public void openCircuitAnswersLocallyWithoutCallingRedis() {
+		ReactiveRedisTemplate<String, String> redisTemplate = mock(ReactiveRedisTemplate.class);
+		RedisScript<List<Long>> script = mock(RedisScript.class);
+		when(redisTemplate.execute(eq(script), anyList(), anyList()))
+				.thenReturn(Flux.error(new IllegalStateException("redis down")));
+
+		RedisRateLimiter rateLimiter = new RedisRateLimiter(redisTemplate, script);
+		rateLimiter.setFallbackRateLimiter(new LocalRateLimiter());
+		rateLimiter.setCircuit(new RedisRateLimiterCircuit(Mono::empty, 2, Duration.ofHours(1), this.scheduler));
+
+		for (int i = 0; i < 5; i++) {
+			Response response = rateLimiter.isAllowed("user", RedisRateLimiter.args(1, 3)).block();
+			assertThat(response.isAllowed()).as("request # %s is allowed", i).isEqualTo(i < 3);
+		}
+		verify(redisTemplate, times(2)).execute(eq(script), anyList(), anyList());
+	}
+}
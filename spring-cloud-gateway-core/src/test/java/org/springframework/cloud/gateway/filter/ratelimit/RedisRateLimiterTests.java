@@ -1,22 +1,27 @@
 package org.springframework.cloud.gateway.filter.ratelimit;
 
+import java.util.List;
 import java.util.UUID;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.SpringBootConfiguration;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
 import org.springframework.cloud.gateway.test.BaseWebClientTests;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.tuple.Tuple;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.tuple.TupleBuilder.tuple;
 
 /**
  * see https://gist.github.com/ptarjan/e38f45f2dfe601419ca3af937fff574d#file-1-check_request_rate_limiter-rb-L36-L62
@@ -30,6 +35,13 @@ public class RedisRateLimiterTests extends BaseWebClientTests {
 	@Autowired
 	private RedisRateLimiter rateLimiter;
 
+	@Autowired
+	private ReactiveRedisTemplate<String, String> redisTemplate;
+
+	@Autowired
+	@Qualifier("redisRequestRateLimiterHashScript")
+	private RedisScript<List<Long>> hashScript;
+
 	@Test
 	public void redisRateLimiterWorks() throws Exception {
 		String id = UUID.randomUUID().toString();
@@ -63,6 +75,59 @@ public class RedisRateLimiterTests extends BaseWebClientTests {
 		assertThat(response.isAllowed()).as("steady state # %s is allowed", replenishRate).isFalse();
 	}
 
+	@Test
+	public void hashModeTakesRequestedTokens() throws Exception {
+		RedisRateLimiter hashRateLimiter = new RedisRateLimiter(redisTemplate, hashScript, RedisRateLimiter.Mode.HASH);
+		String id = UUID.randomUUID().toString();
+
+		int replenishRate = 10;
+		int burstCapacity = 2 * replenishRate;
+
+		Tuple args = RedisRateLimiter.args(replenishRate, burstCapacity, 5);
+
+		for (int i = 0; i < burstCapacity / 5; i++) {
+			Response response = hashRateLimiter.isAllowed(id, args).block();
+			assertThat(response.isAllowed()).as("Burst # %s is allowed", i).isTrue();
+		}
+
+		Response response = hashRateLimiter.isAllowed(id, args).block();
+		assertThat(response.isAllowed()).as("Burst # %s is not allowed", burstCapacity / 5).isFalse();
+
+		// half a second refills 5 tokens, no need to wait for a whole second
+		Thread.sleep(550);
+
+		response = hashRateLimiter.isAllowed(id, args).block();
+		assertThat(response.isAllowed()).as("refilled request is allowed").isTrue();
+		assertThat(hashRateLimiter.isAllowed(id, args).block().isAllowed()).isFalse();
+	}
+
+	@Test
+	public void gcraWorks() throws Exception {
+		String id = UUID.randomUUID().toString();
+
+		int replenishRate = 10;
+		int burstCapacity = 2 * replenishRate;
+
+		Tuple args = tuple().of(RedisRateLimiter.REPLENISH_RATE_KEY, replenishRate,
+				RedisRateLimiter.BURST_CAPACITY_KEY, burstCapacity,
+				RateLimitAlgorithm.ALGORITHM_KEY, "gcra");
+
+		for (int i = 0; i < burstCapacity; i++) {
+			Response response = rateLimiter.isAllowed(id, args).block();
+			assertThat(response.isAllowed()).as("Burst # %s is allowed", i).isTrue();
+		}
+
+		Response response = rateLimiter.isAllowed(id, args).block();
+		assertThat(response.isAllowed()).as("Burst # %s is not allowed", burstCapacity).isFalse();
+
+		Thread.sleep(1000);
+
+		for (int i = 0; i < replenishRate; i++) {
+			response = rateLimiter.isAllowed(id, args).block();
+			assertThat(response.isAllowed()).as("steady state # %s is allowed", i).isTrue();
+		}
+	}
+
 	@EnableAutoConfiguration
 	@SpringBootConfiguration
 	@Import(BaseWebClientTests.DefaultTestConfig.class)
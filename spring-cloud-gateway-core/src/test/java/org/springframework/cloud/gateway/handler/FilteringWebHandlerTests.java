@@ -0,0 +1,124 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.handler;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.handler.predicate.RoutePredicates.alwaysTrue;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Spencer Gibb
+ */
+public class FilteringWebHandlerTests {
+
+	@Test
+	public void combinedFiltersAreSortedAndCachedPerRoute() {
+		FilteringWebHandler handler = new FilteringWebHandler(Arrays.asList(new OrderedGlobalFilter(5)));
+		GatewayFilter routeFilter = new OrderedGatewayFilter((exchange, chain) -> chain.filter(exchange), 1);
+		Route route = route(routeFilter);
+
+		List<GatewayFilter> combined = handler.getCombinedFilters(route);
+		assertThat(combined).hasSize(2);
+		assertThat(combined.get(0)).isSameAs(routeFilter);
+		assertThat(((Ordered) combined.get(1)).getOrder()).isEqualTo(5);
+
+		assertThat(handler.getCombinedFilters(route)).isSameAs(combined);
+	}
+
+	@Test
+	public void rebuiltRoutesAreRecombined() {
+		FilteringWebHandler handler = new FilteringWebHandler(Arrays.asList(new OrderedGlobalFilter(5)));
+		Route route = route(new OrderedGatewayFilter((exchange, chain) -> chain.filter(exchange), 1));
+		List<GatewayFilter> combined = handler.getCombinedFilters(route);
+
+		Route rebuilt = route(new OrderedGatewayFilter((exchange, chain) -> chain.filter(exchange), 10));
+		List<GatewayFilter> recombined = handler.getCombinedFilters(rebuilt);
+		assertThat(recombined).isNotSameAs(combined);
+		assertThat(((Ordered) recombined.get(1)).getOrder()).isEqualTo(10);
+
+		handler.handleRefresh();
+		assertThat(handler.getCombinedFilters(rebuilt)).isNotSameAs(recombined);
+	}
+
+	@Test
+	public void chainCanBeSubscribedMoreThanOnce() {
+		FilteringWebHandler handler = new FilteringWebHandler(Collections.emptyList());
+		AtomicInteger invocations = new AtomicInteger();
+		Route route = Route.builder().id("retrying").uri("http://example.org")
+				.predicate(alwaysTrue())
+				.add(new OrderedGatewayFilter((exchange, chain) ->
+						chain.filter(exchange).then(chain.filter(exchange)), 1))
+				.add(new OrderedGatewayFilter((exchange, chain) -> {
+					invocations.incrementAndGet();
+					return chain.filter(exchange);
+				}, 2))
+				.build();
+
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/").build());
+		exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route);
+
+		handler.handle(exchange).block();
+		handler.handle(exchange).block();
+
+		assertThat(invocations.get()).isEqualTo(4);
+	}
+
+	private Route route(GatewayFilter filter) {
+		return Route.builder().id("route").uri("http://example.org")
+				.predicate(alwaysTrue())
+				.add(filter)
+				.build();
+	}
+
+	private static class OrderedGlobalFilter implements GlobalFilter, Ordered {
+
+		private final int order;
+
+		OrderedGlobalFilter(int order) {
+			this.order = order;
+		}
+
+		@Override
+		public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+			return chain.filter(exchange);
+		}
+
+		@Override
+		public int getOrder() {
+			return this.order;
+		}
+	}
+}
@@ -17,6 +17,8 @@
 
 package org.springframework.cloud.gateway.handler.predicate;
 
+import java.util.function.Predicate;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.boot.SpringBootConfiguration;
@@ -27,13 +29,23 @@ import org.springframework.cloud.gateway.test.BaseWebClientTests;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern.PathMatchInfo;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.cloud.gateway.handler.predicate.RoutePredicateFactory.PATTERN_KEY;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PATH_CONTAINER_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.URI_TEMPLATE_VARIABLES_ATTRIBUTE;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.getPathContainer;
 import static org.springframework.cloud.gateway.test.TestUtils.assertStatus;
+import static org.springframework.tuple.TupleBuilder.tuple;
 
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -63,6 +75,61 @@ public class PathRoutePredicateFactoryTests extends BaseWebClientTests {
 				.verify(DURATION);
 	}
 
+	@Test
+	public void pathIsParsedOncePerExchange() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/foo/bar").build());
+
+		assertThat(predicate("/baz/**").test(exchange)).isFalse();
+		PathContainer path = exchange.getAttribute(GATEWAY_PATH_CONTAINER_ATTR);
+		assertThat(predicate("/foo/**").test(exchange)).isTrue();
+
+		assertThat(path.value()).isEqualTo("/foo/bar");
+		assertThat(getPathContainer(exchange)).isSameAs(path);
+	}
+
+	@Test
+	public void pathIsParsedAgainOnceMutated() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/foo/bar").build());
+		PathContainer path = getPathContainer(exchange);
+
+		ServerWebExchange mutated = exchange.mutate().request(exchange.getRequest().mutate().path("/baz").build())
+				.build();
+
+		assertThat(getPathContainer(mutated)).isNotSameAs(path);
+		assertThat(getPathContainer(mutated).value()).isEqualTo("/baz");
+	}
+
+	@Test
+	public void variablesAreExtracted() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/foo/bar").build());
+
+		assertThat(predicate("/foo/{segment}").test(exchange)).isTrue();
+
+		PathMatchInfo variables = exchange.getAttribute(URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+		assertThat(variables.getUriVariables()).containsEntry("segment", "bar").hasSize(1);
+	}
+
+	@Test
+	public void patternsWithoutVariablesExtractNone() {
+		Predicate<ServerWebExchange> predicate = predicate("/foo/**");
+		MockServerWebExchange first = MockServerWebExchange.from(MockServerHttpRequest.get("/foo/bar").build());
+		MockServerWebExchange second = MockServerWebExchange.from(MockServerHttpRequest.get("/foo/baz").build());
+		MockServerWebExchange other = MockServerWebExchange.from(MockServerHttpRequest.get("/baz").build());
+
+		assertThat(predicate.test(first)).isTrue();
+		assertThat(predicate.test(second)).isTrue();
+		assertThat(predicate.test(other)).isFalse();
+
+		PathMatchInfo variables = first.getAttribute(URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+		assertThat(variables.getUriVariables()).isEmpty();
+		assertThat((PathMatchInfo) second.getAttribute(URI_TEMPLATE_VARIABLES_ATTRIBUTE)).isSameAs(variables);
+		assertThat(other.getAttributes()).doesNotContainKey(URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+	}
+
+	private Predicate<ServerWebExchange> predicate(String pattern) {
+		return new PathRoutePredicateFactory().apply(tuple().of(PATTERN_KEY, pattern));
+	}
+
 	@EnableAutoConfiguration
 	@SpringBootConfiguration
 	@Import(DefaultTestConfig.class)
@@ -18,15 +18,19 @@
 package org.springframework.cloud.gateway.handler.predicate;
 
 import org.junit.Test;
+import org.springframework.http.HttpCookie;
 import org.springframework.http.HttpMethod;
 import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
 import org.springframework.mock.web.server.MockServerWebExchange;
 import org.springframework.web.server.ServerWebExchange;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.handler.predicate.RoutePredicates.cookie;
+import static org.springframework.cloud.gateway.handler.predicate.RoutePredicates.header;
 import static org.springframework.cloud.gateway.handler.predicate.RoutePredicates.host;
 import static org.springframework.cloud.gateway.handler.predicate.RoutePredicates.method;
 import static org.springframework.cloud.gateway.handler.predicate.RoutePredicates.path;
+import static org.springframework.cloud.gateway.handler.predicate.RoutePredicates.query;
 
 /**
  * @author Biju Kunjummen
@@ -56,6 +60,37 @@ public class RoutePredicatesTest {
 		assertThat(method("PUT").test(mockMethodExchange("PUT"))).isTrue();
 	}
 
+	@Test
+	public void testHeaderPredicates() {
+		assertThat(header("X-Test", "abc").test(mockHeaderExchange("X-Test", "abc"))).isTrue();
+		assertThat(header("X-Test", "abc").test(mockHeaderExchange("X-Test", "abcd"))).isFalse();
+		assertThat(header("X-Test", "ab.*").test(mockHeaderExchange("X-Test", "abcd"))).isTrue();
+		assertThat(header("X-Test", "\\d+").test(mockHeaderExchange("X-Test", "123"))).isTrue();
+		assertThat(header("X-Test", "\\d+").test(mockHeaderExchange("X-Test", "12a"))).isFalse();
+		assertThat(header("X-Test", ".*").test(mockHeaderExchange("X-Other", "abc"))).isFalse();
+	}
+
+	@Test
+	public void testQueryPredicates() {
+		assertThat(query("foo", "ba.").test(mockPathExchange("/?foo=bar"))).isTrue();
+		assertThat(query("foo", "ba").test(mockPathExchange("/?foo=bar"))).isFalse();
+		assertThat(query("foo", "ba.*").test(mockPathExchange("/?baz=bar"))).isFalse();
+	}
+
+	@Test
+	public void testCookiePredicates() {
+		ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/")
+				.cookie(new HttpCookie("foo", "bar")).build());
+		assertThat(cookie("foo", "b.r").test(exchange)).isTrue();
+		assertThat(cookie("baz", "b.r").test(exchange)).isFalse();
+	}
+
+	private ServerWebExchange mockHeaderExchange(String name, String value) {
+		MockServerHttpRequest mockRequest = MockServerHttpRequest.get("/")
+				.header(name, value).build();
+		return MockServerWebExchange.from(mockRequest);
+	}
+
 	private ServerWebExchange mockHostExchange(String host) {
 		MockServerHttpRequest mockRequest = MockServerHttpRequest.get("/")
 				.header("Host", host).build();
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.handler.support;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.cloud.gateway.handler.predicate.HostRoutePredicateFactory.HostPredicate;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spencer Gibb
+ */
+public class HostPatternTests {
+
+	private static final List<String> PATTERNS = Arrays.asList("example.org", "www.example.org", "**.example.org",
+			"*.example.org", "*.*.example.org", "www.*.org", "**", "*", "**.org", "www.example.org:8080", "example.*");
+
+	private static final List<String> HOSTS = Arrays.asList("example.org", "www.example.org", "a.b.example.org",
+			"example.com", "org", "wwwexample.org", "www.example.org:8080", "WWW.example.org");
+
+	private static final List<String> MALFORMED_HOSTS = Arrays.asList("example.org.", "www.example.org.",
+			".example.org", "www..example.org", "example.", "");
+
+	@Test
+	public void matchesAsAntPathMatcher() {
+		AntPathMatcher pathMatcher = new AntPathMatcher(".");
+		for (String pattern : PATTERNS) {
+			HostPattern compiled = HostPattern.compile(pattern);
+			assertThat(compiled).as(pattern).isNotNull();
+			for (String host : HOSTS) {
+				assertThat(compiled.matches(host)).as("%s matches %s", host, pattern)
+						.isEqualTo(pathMatcher.match(pattern, host));
+			}
+		}
+	}
+
+	@Test
+	public void otherWildcardsAreNotCompiled() {
+		for (String pattern : Arrays.asList("tenant*.example.org", "tenant?.example.org", "{tenant}.example.org",
+				"www.**.org", "**.example.**", ".example.org", "example.org.", "")) {
+			assertThat(HostPattern.compile(pattern)).as(pattern).isNull();
+		}
+	}
+
+	@Test
+	public void literalSuffix() {
+		assertThat(HostPattern.literalSuffix("www.example.org")).containsExactly("org", "example", "www");
+		assertThat(HostPattern.literalSuffix("**.example.org")).containsExactly("org", "example");
+		assertThat(HostPattern.literalSuffix("{tenant}.example.org")).containsExactly("org", "example");
+		assertThat(HostPattern.literalSuffix("**.example.**")).isEmpty();
+		assertThat(HostPattern.literalSuffix("**")).isEmpty();
+	}
+
+	@Test
+	public void malformedHostsAreMatchedByThePathMatcher() {
+		AntPathMatcher pathMatcher = new AntPathMatcher(".");
+		for (String host : MALFORMED_HOSTS) {
+			assertThat(HostPattern.isWellFormed(host)).as(host).isFalse();
+			ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/")
+					.header("Host", host).build());
+			for (String pattern : PATTERNS) {
+				assertThat(new HostPredicate(pattern, pathMatcher).test(exchange)).as("%s matches %s", host, pattern)
+						.isEqualTo(pathMatcher.match(pattern, host));
+			}
+		}
+		assertThat(HostPattern.isWellFormed(null)).isFalse();
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.handler.support;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spencer Gibb
+ */
+public class RegexpMatcherTests {
+
+	private static final String[] VALUES = { "", "abc", "abcd", "ab", "xabc", "abc\n", "abc\nd", "abc ",
+			"123", "a.c", "a-c", "ABC" };
+
+	@Test
+	public void literalsAndPrefixesSkipTheRegexEngine() {
+		assertThat(RegexpMatcher.compile("abc").isLiteral()).isTrue();
+		assertThat(RegexpMatcher.compile("abc.*").isLiteral()).isTrue();
+		assertThat(RegexpMatcher.compile(".*").isLiteral()).isTrue();
+		assertThat(RegexpMatcher.compile("a-c").isLiteral()).isTrue();
+		assertThat(RegexpMatcher.compile("a.c").isLiteral()).isFalse();
+		assertThat(RegexpMatcher.compile("abc.*d").isLiteral()).isFalse();
+		assertThat(RegexpMatcher.compile("a\\.c.*").isLiteral()).isFalse();
+		assertThat(RegexpMatcher.compile("\\d+").isLiteral()).isFalse();
+	}
+
+	@Test
+	public void matchesAsStringMatches() {
+		for (String regexp : Arrays.asList("abc", "", "abc.*", ".*", "a-c", "a.c", "a\\.c", "\\d+", "ab|abc",
+				"(?i)abc", "abc.*d", "abc.+")) {
+			RegexpMatcher matcher = RegexpMatcher.compile(regexp);
+			for (String value : VALUES) {
+				assertThat(matcher.test(value)).as("%s matches %s", value, regexp).isEqualTo(value.matches(regexp));
+			}
+		}
+	}
+
+	@Test
+	public void nothingMatchesNull() {
+		assertThat(RegexpMatcher.compile(".*").test(null)).isFalse();
+		assertThat(RegexpMatcher.compile(".*").matchesAny(null)).isFalse();
+		assertThat(RegexpMatcher.compile("b").matchesAny(Arrays.asList("a", "b"))).isTrue();
+		assertThat(RegexpMatcher.compile("c").matchesAny(Arrays.asList("a", "b"))).isFalse();
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.route;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.filter.FilterDefinition;
+import org.springframework.cloud.gateway.filter.factory.AddResponseHeaderGatewayFilterFactory;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import reactor.core.publisher.Flux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.cloud.gateway.handler.predicate.RoutePredicates.alwaysTrue;
+
+/**
+ * @author Spencer Gibb
+ */
+public class CachingRouteLocatorTests {
+
+	@Test
+	public void refreshReplacesRoutesAndReturnsOldOnes() {
+		List<Route> routes = new ArrayList<>(Collections.singletonList(route("first", 0)));
+		CachingRouteLocator locator = new CachingRouteLocator(() -> Flux.fromIterable(new ArrayList<>(routes)));
+		RouteIndex index = locator.getRouteIndex();
+
+		routes.add(route("second", -1));
+		List<Route> old = locator.refresh().collectList().block();
+
+		assertThat(old).extracting(Route::getId).containsExactly("first");
+		assertThat(locator.getRouteIndex()).isNotSameAs(index);
+		assertThat(locator.getRoutes().map(Route::getId).collectList().block())
+				.containsExactly("second", "first");
+	}
+
+	@Test
+	public void failedRefreshKeepsCurrentRoutes() {
+		AtomicInteger calls = new AtomicInteger();
+		CachingRouteLocator locator = new CachingRouteLocator(() -> calls.incrementAndGet() == 1
+				? Flux.just(route("first", 0)) : Flux.error(new IllegalStateException("boom")));
+		RouteIndex index = locator.getRouteIndex();
+
+		assertThatThrownBy(() -> locator.refresh().blockLast()).hasMessageContaining("boom");
+		assertThat(locator.getRouteIndex()).isSameAs(index);
+	}
+
+	@Test
+	public void onlyChangedDefinitionsAreConverted() {
+		RouteDefinition unchanged = definition("unchanged", "/unchanged");
+		RouteDefinition changed = definition("changed", "/changed");
+		List<RouteDefinition> definitions = Arrays.asList(unchanged, changed);
+		GatewayProperties properties = new GatewayProperties();
+		properties.setDefaultFilters(new ArrayList<>());
+		RouteDefinitionRouteLocator locator = new RouteDefinitionRouteLocator(
+				() -> Flux.fromIterable(definitions),
+				Collections.singletonList(new PathRoutePredicateFactory()),
+				Collections.singletonList(new AddResponseHeaderGatewayFilterFactory()),
+				properties);
+
+		Map<String, Route> first = locator.getRoutes().collectMap(Route::getId).block();
+		changed.getFilters().add(new FilterDefinition("AddResponseHeader=X-Foo, Bar"));
+		Map<String, Route> second = locator.getRoutes().collectMap(Route::getId).block();
+
+		assertThat(second.get("unchanged")).isSameAs(first.get("unchanged"));
+		assertThat(second.get("changed")).isNotSameAs(first.get("changed"));
+		assertThat(second.get("changed").getFilters()).hasSize(1);
+	}
+
+	private RouteDefinition definition(String id, String path) {
+		RouteDefinition definition = new RouteDefinition();
+		definition.setId(id);
+		definition.setUri(URI.create("http://example.org"));
+		definition.getPredicates().add(new PredicateDefinition("Path=" + path));
+		return definition;
+	}
+
+	private Route route(String id, int order) {
+		return Route.builder().id(id).uri("http://example.org").order(order)
+				.predicate(alwaysTrue()).build();
+	}
+}
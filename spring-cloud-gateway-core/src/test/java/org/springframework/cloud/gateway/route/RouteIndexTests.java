@@ -0,0 +1,175 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.route;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.junit.Test;
+import org.springframework.cloud.gateway.handler.predicate.AndRoutePredicate;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.handler.predicate.RoutePredicates.host;
+import static org.springframework.cloud.gateway.handler.predicate.RoutePredicates.method;
+import static org.springframework.cloud.gateway.handler.predicate.RoutePredicates.path;
+
+/**
+ * @author Spencer Gibb
+ */
+public class RouteIndexTests {
+
+	@Test
+	public void firstRouteByOrderWins() {
+		List<Route> routes = Arrays.asList(
+				route("catchall_first", path("/**")),
+				route("literal", path("/foo/bar")));
+		RouteIndex index = new RouteIndex(routes);
+
+		assertThat(index.lookup(exchange(HttpMethod.GET, "www.example.org", "/foo/bar")).getId())
+				.isEqualTo("catchall_first");
+	}
+
+	@Test
+	public void opaquePredicatesAreAlwaysCandidates() {
+		List<Route> routes = Arrays.asList(
+				route("host", host("www.example.org")),
+				route("opaque", path("/foo/**").and(method("GET"))));
+		RouteIndex index = new RouteIndex(routes);
+
+		assertThat(index.lookup(exchange(HttpMethod.GET, "www.other.org", "/foo/bar")).getId())
+				.isEqualTo("opaque");
+		assertThat(index.lookup(exchange(HttpMethod.POST, "www.other.org", "/foo/bar"))).isNull();
+	}
+
+	@Test
+	public void pathParametersAndTrailingSlashesAreIndexed() {
+		List<Route> routes = Arrays.asList(
+				route("foo", path("/foo/bar")),
+				route("templated", path("/foo/{segment}")));
+		RouteIndex index = new RouteIndex(routes);
+
+		assertThat(index.lookup(exchange(HttpMethod.GET, "localhost", "/foo/bar/")).getId())
+				.isEqualTo("foo");
+		assertThat(index.lookup(exchange(HttpMethod.GET, "localhost", "/foo/bar;a=b")).getId())
+				.isEqualTo("foo");
+		assertThat(index.lookup(exchange(HttpMethod.GET, "localhost", "/foo/baz")).getId())
+				.isEqualTo("templated");
+		assertThat(index.lookup(exchange(HttpMethod.GET, "localhost", "/bar"))).isNull();
+	}
+
+	@Test
+	public void wildcardHostsAreIndexed() {
+		List<Route> routes = Arrays.asList(
+				route("exact", host("www.example.org")),
+				route("eu", host("*.eu.example.org")),
+				route("tenants", host("tenant?.example.org")),
+				route("example", host("**.example.org")),
+				route("other", host("**.other.org")),
+				route("anywhere", new AndRoutePredicate(Arrays.asList(host("**"), method("POST")))));
+		RouteIndex index = new RouteIndex(routes);
+
+		for (String host : Arrays.asList("www.example.org", "api.example.org", "example.org", "shop.eu.example.org",
+				"eu.example.org", "tenant1.example.org", "tenant12.example.org", "www.other.org", "other.org",
+				"www.example.org.", "www.example.com", "org", "")) {
+			for (HttpMethod httpMethod : new HttpMethod[] { HttpMethod.GET, HttpMethod.POST }) {
+				ServerWebExchange exchange = exchange(httpMethod, host, "/");
+				assertThat(index.lookup(exchange)).as("%s %s", httpMethod, host).isEqualTo(linearScan(routes, exchange));
+			}
+		}
+		assertThat(index.lookup(exchange(HttpMethod.GET, "shop.eu.example.org", "/")).getId()).isEqualTo("eu");
+		assertThat(index.lookup(exchange(HttpMethod.GET, "www.example.com", "/"))).isNull();
+	}
+
+	@Test
+	public void manyTenantHostsMatchLinearScan() {
+		List<Route> routes = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			routes.add(route("tenant" + i, host("tenant" + i + ".example.org")));
+			if (i % 100 == 0) {
+				routes.add(route("region" + i, host("**.region" + i + ".example.org")));
+			}
+		}
+		routes.add(route("fallback", host("*.example.org")));
+		RouteIndex index = new RouteIndex(routes);
+
+		for (int i = 0; i < 2100; i += 7) {
+			for (String host : Arrays.asList("tenant" + i + ".example.org", "api.region" + i + ".example.org",
+					"tenant" + i + ".example.com")) {
+				ServerWebExchange exchange = exchange(HttpMethod.GET, host, "/");
+				assertThat(index.lookup(exchange)).as(host).isEqualTo(linearScan(routes, exchange));
+			}
+		}
+	}
+
+	@Test
+	public void lookupMatchesLinearScan() {
+		for (int size : new int[] { 10, 1000 }) {
+			List<Route> routes = generateRoutes(size);
+			RouteIndex index = new RouteIndex(routes);
+
+			for (int i = 0; i < size + 5; i++) {
+				for (HttpMethod httpMethod : new HttpMethod[] { HttpMethod.GET, HttpMethod.POST }) {
+					String host = "tenant" + (i % 7) + ".example.org";
+					ServerWebExchange exchange = exchange(httpMethod, host, "/service" + i + "/items/" + i);
+
+					assertThat(index.lookup(exchange)).as("%s %s", httpMethod, exchange.getRequest().getURI())
+							.isEqualTo(linearScan(routes, exchange));
+				}
+			}
+		}
+	}
+
+	private Route linearScan(List<Route> routes, ServerWebExchange exchange) {
+		return routes.stream()
+				.filter(route -> route.getPredicate().test(exchange))
+				.findFirst().orElse(null);
+	}
+
+	private List<Route> generateRoutes(int size) {
+		List<Route> routes = new ArrayList<>(size + 1);
+		for (int i = 0; i < size; i++) {
+			List<Predicate<ServerWebExchange>> predicates = new ArrayList<>();
+			predicates.add(path("/service" + i + "/**"));
+			if (i % 3 == 0) {
+				predicates.add(host("tenant" + (i % 5) + ".example.org"));
+			}
+			if (i % 4 == 0) {
+				predicates.add(method("GET"));
+			}
+			routes.add(route("route" + i, new AndRoutePredicate(predicates)));
+		}
+		routes.add(route("catchall", new AndRoutePredicate(Arrays.asList(path("/**"), method("POST")))));
+		return routes;
+	}
+
+	private Route route(String id, Predicate<ServerWebExchange> predicate) {
+		return Route.builder().id(id).uri("http://example.org").predicate(predicate).build();
+	}
+
+	private ServerWebExchange exchange(HttpMethod method, String host, String path) {
+		MockServerHttpRequest request = MockServerHttpRequest.method(method, path)
+				.header("Host", host).build();
+		return MockServerWebExchange.from(request);
+	}
+}
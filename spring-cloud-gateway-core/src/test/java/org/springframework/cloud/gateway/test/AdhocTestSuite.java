@@ -24,14 +24,21 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 import org.junit.runners.model.Statement;
+import org.springframework.cloud.gateway.filter.FlushStrategyTests;
+import org.springframework.cloud.gateway.filter.HttpClientPoolsTests;
+import org.springframework.cloud.gateway.filter.WebClientWriteResponseFilterTests;
+import org.springframework.cloud.gateway.filter.circuitbreaker.CircuitBreakerTests;
 import org.springframework.cloud.gateway.filter.factory.AddRequestHeaderGatewayFilterFactoryTests;
+import org.springframework.cloud.gateway.filter.factory.CircuitBreakerGatewayFilterFactoryTests;
 import org.springframework.cloud.gateway.filter.factory.AddRequestParameterGatewayFilterFactoryTests;
+import org.springframework.cloud.gateway.filter.factory.HedgeGatewayFilterFactoryTests;
 import org.springframework.cloud.gateway.filter.factory.HystrixGatewayFilterFactoryTests;
 import org.springframework.cloud.gateway.filter.factory.RedirectToGatewayFilterFactoryTests;
 import org.springframework.cloud.gateway.filter.factory.RemoveNonProxyHeadersGatewayFilterFactoryTests;
 import org.springframework.cloud.gateway.filter.factory.RemoveRequestHeaderGatewayFilterFactoryTests;
 import org.springframework.cloud.gateway.filter.factory.RemoveResponseHeaderGatewayFilterFactoryTests;
 import org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactoryTests;
+import org.springframework.cloud.gateway.filter.factory.RetryGatewayFilterFactoryTests;
 import org.springframework.cloud.gateway.filter.factory.RewritePathGatewayFilterFactoryTests;
 import org.springframework.cloud.gateway.filter.factory.RewritePathGatewayFilterFactoryIntegrationTests;
 import org.springframework.cloud.gateway.filter.factory.SecureHeadersGatewayFilterFactoryTests;
@@ -39,8 +46,15 @@ import org.springframework.cloud.gateway.filter.factory.SetPathGatewayFilterFact
 import org.springframework.cloud.gateway.filter.factory.SetPathGatewayFilterFactoryTests;
 import org.springframework.cloud.gateway.filter.factory.SetResponseGatewayFilterFactoryTests;
 import org.springframework.cloud.gateway.filter.factory.SetStatusGatewayFilterFactoryTests;
+import org.springframework.cloud.gateway.filter.loadbalancer.DiscoveryClientLoadBalancerTests;
+import org.springframework.cloud.gateway.filter.loadbalancer.HashRingTests;
+import org.springframework.cloud.gateway.filter.loadbalancer.OutlierDetectionTests;
+import org.springframework.cloud.gateway.filter.ratelimit.LocalRateLimiterTests;
 import org.springframework.cloud.gateway.filter.ratelimit.PrincipalNameKeyResolverIntegrationTests;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiterBatcherTests;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiterCircuitTests;
 import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiterTests;
+import org.springframework.cloud.gateway.handler.FilteringWebHandlerTests;
 import org.springframework.cloud.gateway.handler.predicate.AfterRoutePredicateFactoryTests;
 import org.springframework.cloud.gateway.handler.predicate.BeforeRoutePredicateFactoryTests;
 import org.springframework.cloud.gateway.handler.predicate.BetweenRoutePredicateFactoryTests;
@@ -48,7 +62,11 @@ import org.springframework.cloud.gateway.handler.predicate.HostRoutePredicateFac
 import org.springframework.cloud.gateway.handler.predicate.MethodRoutePredicateFactoryTests;
 import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactoryTests;
 import org.springframework.cloud.gateway.handler.predicate.RoutePredicatesTest;
+import org.springframework.cloud.gateway.handler.support.HostPatternTests;
+import org.springframework.cloud.gateway.handler.support.RegexpMatcherTests;
+import org.springframework.cloud.gateway.route.CachingRouteLocatorTests;
 import org.springframework.cloud.gateway.route.RouteDefinitionRouteLocatorTests;
+import org.springframework.cloud.gateway.route.RouteIndexTests;
 import org.springframework.cloud.gateway.test.websocket.WebSocketIntegrationTests;
 
 import static org.hamcrest.Matchers.equalTo;
@@ -71,10 +89,14 @@ import static org.junit.Assume.assumeThat;
 		// FilterFactory Tests
 		RemoveNonProxyHeadersGatewayFilterFactoryTests.class,
 		RemoveResponseHeaderGatewayFilterFactoryTests.class,
+		HedgeGatewayFilterFactoryTests.class,
 		HystrixGatewayFilterFactoryTests.class,
+		CircuitBreakerGatewayFilterFactoryTests.class,
+		CircuitBreakerTests.class,
 		RewritePathGatewayFilterFactoryIntegrationTests.class,
 		RemoveRequestHeaderGatewayFilterFactoryTests.class,
 		SetPathGatewayFilterFactoryTests.class,
+		RetryGatewayFilterFactoryTests.class,
 		RewritePathGatewayFilterFactoryTests.class,
 		SetStatusGatewayFilterFactoryTests.class,
 		RedirectToGatewayFilterFactoryTests.class,
@@ -86,11 +108,26 @@ import static org.junit.Assume.assumeThat;
 		SetResponseGatewayFilterFactoryTests.class,
 		PrincipalNameKeyResolverIntegrationTests.class,
 		RedisRateLimiterTests.class,
+		LocalRateLimiterTests.class,
+		RedisRateLimiterBatcherTests.class,
+		RedisRateLimiterCircuitTests.class,
 		RouteDefinitionRouteLocatorTests.class,
+		RouteIndexTests.class,
+		CachingRouteLocatorTests.class,
+		RequestBodyLeakTests.class,
+		HttpClientPoolsTests.class,
+		DiscoveryClientLoadBalancerTests.class,
+		HashRingTests.class,
+		OutlierDetectionTests.class,
+		FlushStrategyTests.class,
+		WebClientWriteResponseFilterTests.class,
+		FilteringWebHandlerTests.class,
 		// PredicateFactory Tests
 		MethodRoutePredicateFactoryTests.class,
 		HostRoutePredicateFactoryTests.class,
 		RoutePredicatesTest.class,
+		RegexpMatcherTests.class,
+		HostPatternTests.class,
 		AfterRoutePredicateFactoryTests.class,
 		PathRoutePredicateFactoryTests.class,
 		BetweenRoutePredicateFactoryTests.class,
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.gateway.test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.ResourceLeakDetector;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.rule.OutputCapture;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.web.reactive.function.BodyExtractors.toMono;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * Proxies request bodies under Netty's paranoid leak detector, which tracks every buffer
+ * and logs a leak once a buffer that was not released is garbage collected.
+ * @author Spencer Gibb
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@DirtiesContext
+@SuppressWarnings("unchecked")
+public class RequestBodyLeakTests extends BaseWebClientTests {
+
+	private static ResourceLeakDetector.Level level;
+
+	@Rule
+	public OutputCapture output = new OutputCapture();
+
+	@BeforeClass
+	public static void enableLeakDetection() {
+		level = ResourceLeakDetector.getLevel();
+		ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+	}
+
+	@AfterClass
+	public static void restoreLeakDetection() {
+		ResourceLeakDetector.setLevel(level);
+	}
+
+	@Test
+	public void proxiedRequestBodiesAreReleased() throws Exception {
+		char[] data = new char[512 * 1024];
+		Arrays.fill(data, 'a');
+		String body = new String(data);
+
+		for (int i = 0; i < 5; i++) {
+			Mono<Map> result = webClient.post()
+					.uri("/post")
+					.header("Host", "www.example.org")
+					.syncBody(body)
+					.exchange()
+					.flatMap(response -> response.body(toMono(Map.class)));
+
+			StepVerifier.create(result)
+					.consumeNextWith(map -> assertThat(map).containsEntry("data", body))
+					.expectComplete()
+					.verify(DURATION);
+		}
+
+		// leaks are reported by the allocations that follow the collection of the buffers
+		for (int i = 0; i < 10; i++) {
+			System.gc();
+			Thread.sleep(50);
+			ByteBuf buffer = PooledByteBufAllocator.DEFAULT.buffer(16);
+			buffer.release();
+		}
+
+		assertThat(this.output.toString()).doesNotContain("LEAK:");
+	}
+
+	@EnableAutoConfiguration
+	@SpringBootConfiguration
+	@Import(DefaultTestConfig.class)
+	public static class TestConfig { }
+
+}